@@ -0,0 +1,79 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.service.ConfigurationRequest;
+import org.github.schmittjoaopedro.service.ConfigurationResponse;
+import org.github.schmittjoaopedro.service.ConfigurationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Measures the throughput of {@link ConfigurationService} on financial-service queries for 1, 2, 4, ... workers up
+ * to the number of cores, keeping the queue full so every worker stays busy.
+ * <p>
+ * Usage: {@code ConfigurationServiceLoadTest [requests per run] [queue capacity]}
+ */
+public class ConfigurationServiceLoadTest {
+
+    private static final String[] INPUTS = {"willingnessToRisk", "investmentDuration", "expectedReturnRate"};
+
+    public static void main(String[] args) throws Exception {
+        int nrRequests = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int queueCapacity = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<ConfigurationRequest> requests = requests(nrRequests, new Random(0));
+
+        System.out.println("workers, requests/s, speed-up, solved, unsatisfiable");
+        double baseline = 0;
+        for (int nrWorkers = 1; nrWorkers <= cores; nrWorkers = nrWorkers == cores ? cores + 1 : Math.min(cores, nrWorkers * 2)) {
+            try (ConfigurationService service = new ConfigurationService(nrWorkers, queueCapacity)) {
+                // Warm-up builds the models of every worker and lets the JIT compile the hot paths
+                run(service, requests.subList(0, Math.min(nrRequests, 5000)), queueCapacity);
+                long start = System.nanoTime();
+                int[] outcome = run(service, requests, queueCapacity);
+                double throughput = nrRequests / ((System.nanoTime() - start) / 1e9);
+                if (nrWorkers == 1) {
+                    baseline = throughput;
+                }
+                System.out.printf("%d, %.0f, %.2f, %d, %d%n", nrWorkers, throughput, throughput / baseline, outcome[0], outcome[1]);
+            }
+        }
+    }
+
+    // Random user requirements on the inputs of the financial service, some of them conflicting
+    private static List<ConfigurationRequest> requests(int nrRequests, Random random) {
+        List<ConfigurationRequest> requests = new ArrayList<>(nrRequests);
+        for (int i = 0; i < nrRequests; i++) {
+            List<Requirement> requirements = new ArrayList<>();
+            for (String input : INPUTS) {
+                if (random.nextBoolean()) {
+                    requirements.add(Requirement.eq(input, random.nextInt(3)));
+                }
+            }
+            requests.add(new ConfigurationRequest(UseCase.FINANCIAL_SERVICE, requirements, 1000));
+        }
+        return requests;
+    }
+
+    // Submits the requests, never more than the queue capacity in flight, and counts solved/unsatisfiable answers
+    private static int[] run(ConfigurationService service, List<ConfigurationRequest> requests, int inFlight) throws Exception {
+        Semaphore permits = new Semaphore(inFlight);
+        List<CompletableFuture<ConfigurationResponse>> responses = new ArrayList<>(requests.size());
+        for (ConfigurationRequest request : requests) {
+            permits.acquire();
+            responses.add(service.submit(request).whenComplete((response, error) -> permits.release()));
+        }
+        int[] outcome = new int[2];
+        for (CompletableFuture<ConfigurationResponse> response : responses) {
+            ConfigurationResponse.Status status = response.get().getStatus();
+            outcome[status == ConfigurationResponse.Status.UNSATISFIABLE ? 1 : 0]++;
+        }
+        return outcome;
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.github.schmittjoaopedro.definition.DefinitionCache;
+import org.github.schmittjoaopedro.definition.ModelDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Loading a generated product catalogue definition: parsing, building the model, and both through the cache
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefinitionLoadBenchmark {
+
+    @State(Scope.Thread)
+    public static class Definition {
+
+        @Param({"100", "1000"})
+        public int rules;
+
+        public String text;
+
+        public ModelDefinition parsed;
+
+        public DefinitionCache cache;
+
+        @Setup
+        public void setup() {
+            text = generate(rules, new Random(0));
+            parsed = ModelDefinition.parse(text);
+            cache = new DefinitionCache(16);
+            cache.get(text);
+        }
+
+    }
+
+    @Benchmark
+    public ModelDefinition parse(Definition definition) {
+        return ModelDefinition.parse(definition.text);
+    }
+
+    @Benchmark
+    public Model build(Definition definition) {
+        return definition.parsed.createModel();
+    }
+
+    @Benchmark
+    public Model parseAndBuild(Definition definition) {
+        return ModelDefinition.parse(definition.text).createModel();
+    }
+
+    // Hashes the text instead of parsing it
+    @Benchmark
+    public Model cachedParseAndBuild(Definition definition) {
+        return definition.cache.get(definition.text).createModel();
+    }
+
+    // Financial-service style rules over one variable per 5 rules: implications, exclusions and linear bounds
+    static String generate(int nrRules, Random random) {
+        int nrVars = Math.max(2, nrRules / 5);
+        StringBuilder text = new StringBuilder("model \"Catalogue\"\n\n")
+                .append("enum Level { LOW, MEDIUM, HIGH }\n")
+                .append("enum Product { EQUITY_FUND, INVESTMENT_FUND, BANK_BOOK }\n\n");
+        for (int i = 0; i < nrVars; i++) {
+            text.append("var option").append(i).append(" : Level\n");
+        }
+        text.append("var product : Product\nvar budget : 0..").append(2 * nrVars).append("\n\n");
+        for (int rule = 0; rule < nrRules; rule++) {
+            int a = random.nextInt(nrVars);
+            int b = random.nextInt(nrVars);
+            switch (rule % 5) {
+                case 0:
+                    text.append("option").append(a).append(" = LOW -> product = BANK_BOOK\n");
+                    break;
+                case 1:
+                    text.append("option").append(a).append(" = HIGH -> product != BANK_BOOK\n");
+                    break;
+                case 2:
+                    text.append("not (option").append(a).append(" = HIGH and option").append(b).append(" = LOW)\n");
+                    break;
+                case 3:
+                    text.append("option").append(a).append(" = MEDIUM or option").append(b).append(" = MEDIUM -> product != EQUITY_FUND\n");
+                    break;
+                default:
+                    text.append("option").append(a).append(" + option").append(b).append(" <= budget\n");
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.stream.SolutionWriter;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+// Formatting one solution of the map coloring, as the print loops do and with SolutionWriter (run with -prof gc)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    private static final String[] COLORS = {"RED", "GREEN", "BLUE"};
+
+    @State(Scope.Thread)
+    public static class SolvedMap {
+
+        @Param({"10", "1000"})
+        public int regions;
+
+        public Utils utils;
+
+        public IntVar[] vars;
+
+        public SolutionWriter csv;
+
+        public SolutionWriter json;
+
+        @Setup(Level.Trial)
+        public void solve() {
+            Model model = MapColoringProblem.createModel(regions);
+            model.getSolver().solve();
+            utils = new Utils(model);
+            vars = utils.getIntVars("R[*]");
+            csv = new SolutionWriter(new NullWriter(), SolutionWriter.Format.CSV, vars);
+            json = new SolutionWriter(new NullWriter(), SolutionWriter.Format.JSON_LINES, vars);
+            for (IntVar var : vars) {
+                csv.setLabels(var, COLORS);
+            }
+        }
+
+    }
+
+    @Benchmark
+    public int printLoop(SolvedMap state) {
+        String line = "";
+        for (IntVar var : state.vars) {
+            line += state.utils.getEnumVarFormatted(var.getName(), COLORS) + ", ";
+        }
+        return line.length();
+    }
+
+    @Benchmark
+    public long csvRow(SolvedMap state) throws IOException {
+        state.csv.write();
+        return state.csv.getNrRows();
+    }
+
+    @Benchmark
+    public long jsonRow(SolvedMap state) throws IOException {
+        state.json.write();
+        return state.json.getNrRows();
+    }
+
+    private static class NullWriter extends Writer {
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.github.schmittjoaopedro.usecase1.Graph;
+import org.github.schmittjoaopedro.usecase1.GraphColoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Solve time and heap of {@link GraphColoring} as graphs grow. Three kinds of graph are written to an edge-list file
+ * and read back: planar maps, random conflict graphs (average degree 6) and unions of random 6-cliques. Each is
+ * colored with the DSatur number of colors and with one less, with allDifferent on cliques of 3 nodes or more and
+ * with {@code ne} only.
+ * <p>
+ * Usage: {@code GraphColoringScaling [max nodes] [time limit ms below the DSatur bound]}
+ */
+public class GraphColoringScaling {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int maxNodes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long timeLimitMs = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        System.out.println("graph, nodes, edges, read ms, min clique, constraints, colors, build ms, solve ms, result, heap MB");
+        for (int nrNodes : new int[]{10000, 25000, 50000, 100000}) {
+            if (nrNodes > maxNodes) {
+                break;
+            }
+            int side = (int) Math.sqrt(nrNodes);
+            run("map", Graph.randomMap(side, side, 0), timeLimitMs);
+            run("conflicts", Graph.randomConflicts(nrNodes, 6, 0), timeLimitMs);
+            run("cliques", Graph.randomCliques(nrNodes, 6, 3, 0), timeLimitMs);
+        }
+    }
+
+    private static void run(String name, Graph generated, long timeLimitMs) throws Exception {
+        Path file = Files.createTempFile(name, ".edges");
+        try {
+            generated.write(file);
+            long start = System.nanoTime();
+            Graph graph = Graph.read(file);
+            double readMs = (System.nanoTime() - start) / 1e6;
+            GraphColoring coloring = new GraphColoring(graph);
+            for (int minCliqueSize : new int[]{3, Integer.MAX_VALUE}) {
+                for (int nrColors = coloring.getNrGreedyColors(); nrColors >= coloring.getNrGreedyColors() - 1; nrColors--) {
+                    System.gc();
+                    long heapBefore = MEMORY.getHeapMemoryUsage().getUsed();
+                    start = System.nanoTime();
+                    Model model = coloring.createModel(nrColors, minCliqueSize);
+                    double buildMs = (System.nanoTime() - start) / 1e6;
+                    Solver solver = model.getSolver();
+                    solver.limitTime(timeLimitMs);
+                    start = System.nanoTime();
+                    boolean solved = solver.solve();
+                    double solveMs = (System.nanoTime() - start) / 1e6;
+                    String result = solved ? "colored" : solver.isStopCriterionMet() ? "time limit" : "no coloring";
+                    System.gc();
+                    // The model is still reachable here, it is printed below
+                    double heapMb = (MEMORY.getHeapMemoryUsage().getUsed() - heapBefore) / 1e6;
+                    System.out.printf("%s, %d, %d, %.0f, %s, %d, %d, %.0f, %.0f, %s, %.1f%n", name, graph.getNrNodes(),
+                            graph.getNrEdges(), readMs, minCliqueSize == Integer.MAX_VALUE ? "none" : minCliqueSize, model.getNbCstrs(), nrColors, buildMs, solveMs, result, heapMb);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+import org.github.schmittjoaopedro.usecase2.FinancialServiceProblem;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// createModel() of every use case
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBuildBenchmark {
+
+    @Benchmark
+    public Model mapColoring(ProblemParams.MapColoringSize size) {
+        return MapColoringProblem.createModel(size.regions);
+    }
+
+    @Benchmark
+    public Model financialService() {
+        return FinancialServiceProblem.createModel();
+    }
+
+    @Benchmark
+    public Model wagon(ProblemParams.WagonSize size) {
+        return WagonOptimizationProblem.createModel(size.options());
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Solver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Full while (solver.solve()) loop maximizing wagon.used_space, runs take seconds so each one is timed alone
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OptimizationBenchmark {
+
+    @Benchmark
+    public long wagon(ProblemParams.WagonModel state) {
+        Solver solver = state.model.getSolver();
+        while (solver.solve()) ;
+        return solver.getSolutionCount();
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.pareto.ParetoSearch;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+import org.github.schmittjoaopedro.usecase3.CapacityEncoding;
+import org.github.schmittjoaopedro.usecase3.SeatEncoding;
+import org.github.schmittjoaopedro.usecase3.WagonModelOptions;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+import org.github.schmittjoaopedro.usecase3.WagonSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Front of max wagon.used_space / max wagon.nr_seats over any number of passengers (81 points), with the
+ * {@link ParetoSearch} in 1 or more slices, against the epsilon-constraint loop: maximize used_space with
+ * nr_seats >= epsilon, then nr_seats at that used_space, and start again above the seats found. Both reuse the same
+ * wagon search; the loop runs every solve on one {@link ModelTemplate}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParetoBenchmark {
+
+    private static final String USED_SPACE = "wagon.used_space";
+
+    private static final String NR_SEATS = "wagon.nr_seats";
+
+    private static final Supplier<Model> WAGON = () -> WagonOptimizationProblem.createModel(new WagonModelOptions()
+            .setSeatEncoding(SeatEncoding.COMPACT)
+            .setCapacityEncoding(CapacityEncoding.INTEGER));
+
+    @State(Scope.Benchmark)
+    public static class Slices {
+
+        @Param({"1", "4"})
+        public int slices;
+
+    }
+
+    @Benchmark
+    public int paretoSearch(Slices state) throws Exception {
+        return new ParetoSearch(WAGON, ParetoSearch.Objective.maximize(USED_SPACE), ParetoSearch.Objective.maximize(NR_SEATS))
+                .setSearch(WagonSearch::configure)
+                .setWorkers(Runtime.getRuntime().availableProcessors())
+                .setSlices(state.slices)
+                .run().size();
+    }
+
+    @Benchmark
+    public int epsilonConstraint() throws ContradictionException {
+        ModelTemplate template = new ModelTemplate(WAGON);
+        Model model = template.getModel();
+        WagonSearch.configure(model);
+        int points = 0;
+        int epsilon = 0;
+        while (true) {
+            Requirement minSeats = new Requirement(NR_SEATS, ">=", epsilon);
+            model.setObjective(Model.MAXIMIZE, template.getUtils().getIntVar(USED_SPACE));
+            Number usedSpace = template.query(Arrays.asList(minSeats), solver -> {
+                while (solver.solve()) ;
+                return solver.getSolutionCount() > 0 ? solver.getBestSolutionValue() : null;
+            });
+            if (usedSpace == null) {
+                return points;
+            }
+            // The most seats at that used_space, otherwise the point may be dominated
+            model.setObjective(Model.MAXIMIZE, template.getUtils().getIntVar(NR_SEATS));
+            Number seats = template.query(Arrays.asList(minSeats, Requirement.eq(USED_SPACE, usedSpace.intValue())), solver -> {
+                while (solver.solve()) ;
+                return solver.getBestSolutionValue();
+            });
+            points++;
+            epsilon = seats.intValue() + 1;
+        }
+    }
+
+}
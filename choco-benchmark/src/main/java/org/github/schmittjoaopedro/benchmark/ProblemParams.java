@@ -0,0 +1,85 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+import org.github.schmittjoaopedro.usecase2.FinancialServiceProblem;
+import org.github.schmittjoaopedro.usecase3.CapacityEncoding;
+import org.github.schmittjoaopedro.usecase3.SeatEncoding;
+import org.github.schmittjoaopedro.usecase3.WagonModelOptions;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Problem sizes shared by the benchmarks. The *Model states build a fresh model before every invocation, so
+ * benchmarks that propagate or search do not time model construction (the GC profiler still counts its
+ * allocations, compare with ModelBuildBenchmark).
+ */
+public class ProblemParams {
+
+    @State(Scope.Thread)
+    public static class MapColoringSize {
+
+        @Param({"10", "100", "1000"})
+        public int regions;
+
+    }
+
+    @State(Scope.Thread)
+    public static class MapColoringModel extends MapColoringSize {
+
+        public Model model;
+
+        @Setup(Level.Invocation)
+        public void build() {
+            model = MapColoringProblem.createModel(regions);
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class FinancialServiceModel {
+
+        public Model model;
+
+        @Setup(Level.Invocation)
+        public void build() {
+            model = FinancialServiceProblem.createModel();
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class WagonSize {
+
+        @Param({"50", "200"})
+        public int maxSeats;
+
+        @Param({"PAIRWISE", "COMPACT"})
+        public SeatEncoding encoding;
+
+        @Param({"REAL", "INTEGER"})
+        public CapacityEncoding capacity;
+
+        public WagonModelOptions options() {
+            return new WagonModelOptions().setMaxSeats(maxSeats).setSeatEncoding(encoding).setCapacityEncoding(capacity);
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class WagonModel extends WagonSize {
+
+        public Model model;
+
+        @Setup(Level.Invocation)
+        public void build() {
+            model = WagonOptimizationProblem.createModel(options());
+        }
+
+    }
+
+}
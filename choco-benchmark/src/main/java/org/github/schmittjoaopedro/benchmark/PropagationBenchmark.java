@@ -0,0 +1,43 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Initial solver.propagate() on a freshly built model
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropagationBenchmark {
+
+    @Benchmark
+    public Model mapColoring(ProblemParams.MapColoringModel state) throws ContradictionException {
+        return propagate(state.model);
+    }
+
+    @Benchmark
+    public Model financialService(ProblemParams.FinancialServiceModel state) throws ContradictionException {
+        return propagate(state.model);
+    }
+
+    @Benchmark
+    public Model wagon(ProblemParams.WagonModel state) throws ContradictionException {
+        return propagate(state.model);
+    }
+
+    private static Model propagate(Model model) throws ContradictionException {
+        model.getSolver().propagate();
+        return model;
+    }
+
+}
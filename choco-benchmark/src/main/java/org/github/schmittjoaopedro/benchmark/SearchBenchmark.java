@@ -0,0 +1,52 @@
+package org.github.schmittjoaopedro.benchmark;
+
+import org.chocosolver.solver.Solver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// First solution and all solutions of the satisfaction problems, first solution of the wagon
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Benchmark
+    public boolean mapColoringFirstSolution(ProblemParams.MapColoringModel state) {
+        return state.model.getSolver().solve();
+    }
+
+    @Benchmark
+    public long mapColoringAllSolutions(ProblemParams.MapColoringModel state) {
+        return allSolutions(state.model.getSolver());
+    }
+
+    @Benchmark
+    public boolean financialServiceFirstSolution(ProblemParams.FinancialServiceModel state) {
+        return state.model.getSolver().solve();
+    }
+
+    @Benchmark
+    public long financialServiceAllSolutions(ProblemParams.FinancialServiceModel state) {
+        return allSolutions(state.model.getSolver());
+    }
+
+    @Benchmark
+    public boolean wagonFirstSolution(ProblemParams.WagonModel state) {
+        return state.model.getSolver().solve();
+    }
+
+    private static long allSolutions(Solver solver) {
+        while (solver.solve()) ;
+        return solver.getSolutionCount();
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.github.schmittjoaopedro;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * User requirement on an integer variable of a use case, e.g. {@code WA = 1} or {@code wagon.nr_seats <= 30}.
+ */
+public class Requirement {
+
+    private static final List<String> OPERATORS = Arrays.asList("=", "!=", "<", "<=", ">", ">=");
+
+    private static final Pattern PATTERN = Pattern.compile("\\s*([^<>!=\\s]+)\\s*(<=|>=|!=|=|<|>)\\s*(-?\\d+)\\s*");
+
+    private final String name;
+
+    private final String operator;
+
+    private final int value;
+
+    public Requirement(String name, String operator, int value) {
+        if (!OPERATORS.contains(operator)) {
+            throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+        this.name = name;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public static Requirement eq(String name, int value) {
+        return new Requirement(name, "=", value);
+    }
+
+    // Parses "name op value", e.g. "wagon.nr_passengers = 160"
+    public static Requirement parse(String text) {
+        Matcher matcher = PATTERN.matcher(text);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid requirement " + text);
+        }
+        return new Requirement(matcher.group(1), matcher.group(2), Integer.parseInt(matcher.group(3)));
+    }
+
+    public Constraint toConstraint(Utils utils) {
+        IntVar var = utils.getIntVar(name);
+        if (var == null) {
+            throw new IllegalArgumentException("Unknown variable " + name);
+        }
+        return var.getModel().arithm(var, operator, value);
+    }
+
+    // Whether a value of the variable satisfies the requirement
+    public boolean accepts(int candidate) {
+        switch (operator) {
+            case "=":
+                return candidate == value;
+            case "!=":
+                return candidate != value;
+            case "<":
+                return candidate < value;
+            case "<=":
+                return candidate <= value;
+            case ">":
+                return candidate > value;
+            default:
+                return candidate >= value;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Requirement)) return false;
+        Requirement that = (Requirement) o;
+        return value == that.value && name.equals(that.name) && operator.equals(that.operator);
+    }
+
+    @Override
+    public int hashCode() {
+        return (name.hashCode() * 31 + operator.hashCode()) * 31 + value;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + operator + " " + value;
+    }
+}
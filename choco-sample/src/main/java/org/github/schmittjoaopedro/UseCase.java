@@ -0,0 +1,41 @@
+package org.github.schmittjoaopedro;
+
+import org.chocosolver.solver.Model;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+import org.github.schmittjoaopedro.usecase2.FinancialServiceProblem;
+import org.github.schmittjoaopedro.usecase3.CapacityEncoding;
+import org.github.schmittjoaopedro.usecase3.SeatEncoding;
+import org.github.schmittjoaopedro.usecase3.WagonModelOptions;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+
+import java.util.function.Supplier;
+
+/**
+ * Model factories of the use cases, for code that serves all of them. The wagon uses the compact seat encoding and
+ * the integer capacity encoding, Ibex models cannot be solved by several threads at once.
+ */
+public enum UseCase {
+
+    MAP_COLORING(MapColoringProblem::createModel),
+
+    FINANCIAL_SERVICE(FinancialServiceProblem::createModel),
+
+    WAGON(() -> WagonOptimizationProblem.createModel(new WagonModelOptions()
+            .setSeatEncoding(SeatEncoding.COMPACT)
+            .setCapacityEncoding(CapacityEncoding.INTEGER)));
+
+    private final Supplier<Model> factory;
+
+    UseCase(Supplier<Model> factory) {
+        this.factory = factory;
+    }
+
+    public Model createModel() {
+        return factory.get();
+    }
+
+    public Supplier<Model> getFactory() {
+        return factory;
+    }
+
+}
@@ -1,23 +1,32 @@
 package org.github.schmittjoaopedro;
 
 import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.RealVar;
-import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.iterators.DisposableValueIterator;
 
 import java.text.DecimalFormat;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 
 public class Utils {
 
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+
+    private static final String CAST_REAL_HOOK = "castReal";
+
+    // DecimalFormat is not thread safe, one per thread instead of one per call
+    private static final ThreadLocal<DecimalFormat> SHORT_FORMAT = ThreadLocal.withInitial(() -> new DecimalFormat("#.#####"));
+
     private Model model;
 
-    private Map<String, Variable> variableMap = new HashMap<>();
+    private VariableRegistry registry;
 
     public Utils(Model model) {
         this.model = model;
+        this.registry = new VariableRegistry(model);
     }
 
     public String getEnumVarFormatted(String name, String... descriptions) {
@@ -35,48 +44,59 @@ public class Utils {
 
     public String getRealVarFormatted(String name) {
         RealVar var = getRealVar(name);
+        StringBuilder desc = new StringBuilder(name).append(" = ");
         if (var.isInstantiated()) {
-            return name + " = " + String.format("%.6f", var.getUB());
+            appendFixed(desc, var.getUB(), 6);
         } else {
-            return name + " = [" + String.format("%.6f", var.getLB()) + ", " + String.format("%.6f", var.getUB()) + "]";
+            appendFixed(desc.append('['), var.getLB(), 6).append(", ");
+            appendFixed(desc, var.getUB(), 6).append(']');
         }
+        return desc.toString();
     }
 
     public IntVar getIntVar(String name) {
-        if (variableMap.isEmpty()) {
-            for (Variable var : model.getVars()) {
-                variableMap.put(var.getName(), var);
-            }
-        }
-        IntVar var = null;
-        for (Variable v : model.getVars()) {
-            if (name.equals(v.getName())) {
-                var = (IntVar) v;
-                break;
-            }
-        }
-        return var;
+        return registry.getIntVar(name);
+    }
+
+    public BoolVar getBoolVar(String name) {
+        return registry.getBoolVar(name);
     }
 
     public RealVar getRealVar(String name) {
-        if (variableMap.isEmpty()) {
-            for (Variable var : model.getVars()) {
-                variableMap.put(var.getName(), var);
-            }
-        }
-        RealVar var = null;
-        for (Variable v : model.getVars()) {
-            if (name.equals(v.getName())) {
-                var = (RealVar) v;
-                break;
-            }
-        }
-        return var;
+        return registry.getRealVar(name);
+    }
+
+    public IntVar[] getIntVars(String pattern) {
+        return registry.getIntVars(pattern);
+    }
+
+    public BoolVar[] getBoolVars(String pattern) {
+        return registry.getBoolVars(pattern);
+    }
+
+    public RealVar[] getRealVars(String pattern) {
+        return registry.getRealVars(pattern);
     }
 
+    public VariableRegistry getRegistry() {
+        return registry;
+    }
+
+    // Real view of the integer variable, created and bound by an equation on the first call, then reused
+    @SuppressWarnings("unchecked")
     public static RealVar castReal(IntVar intVar) {
-        RealVar realVar = intVar.getModel().realVar(intVar.getLB(), intVar.getUB(), 1e-6);
-        intVar.getModel().eq(realVar, intVar).post();
+        Model model = intVar.getModel();
+        Map<IntVar, RealVar> casts = (Map<IntVar, RealVar>) model.getHook(CAST_REAL_HOOK);
+        if (casts == null) {
+            casts = new HashMap<>();
+            model.addHook(CAST_REAL_HOOK, casts);
+        }
+        RealVar realVar = casts.get(intVar);
+        if (realVar == null) {
+            realVar = model.realVar(intVar.getLB(), intVar.getUB(), 1e-6);
+            model.eq(realVar, intVar).post();
+            casts.put(intVar, realVar);
+        }
         return realVar;
     }
 
@@ -85,25 +105,67 @@ public class Utils {
     }
 
     public String getVarDesc(IntVar var, String... descriptions) {
-        String desc = "";
         if (var.isInstantiated()) {
-            desc = descriptions[var.getValue()];
-        } else {
-            Iterator<Integer> iter = var.iterator();
-            desc += "[";
-            while (iter.hasNext()) {
-                desc += descriptions[iter.next()];
-                if (iter.hasNext()) {
-                    desc += ", ";
+            return descriptions[var.getValue()];
+        }
+        return appendVarDesc(new StringBuilder(), var, descriptions).toString();
+    }
+
+    // Appends the description of the value, or the descriptions of the domain values as [a, b, c]
+    public static StringBuilder appendVarDesc(StringBuilder desc, IntVar var, String... descriptions) {
+        if (var.isInstantiated()) {
+            return desc.append(descriptions[var.getValue()]);
+        }
+        desc.append('[');
+        DisposableValueIterator values = var.getValueIterator(true);
+        try {
+            while (values.hasNext()) {
+                desc.append(descriptions[values.next()]);
+                if (values.hasNext()) {
+                    desc.append(", ");
                 }
             }
-            desc += "]";
+        } finally {
+            values.dispose();
+        }
+        return desc.append(']');
+    }
+
+    /**
+     * Appends the value rounded half up to the given number of decimals, always with a dot. Unlike
+     * {@code String.format("%.6f")} it does not allocate, except for magnitudes too large to scale into a long.
+     */
+    public static StringBuilder appendFixed(StringBuilder desc, double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= Long.MAX_VALUE / POWERS_OF_TEN[decimals]) {
+            return desc.append(String.format(Locale.ROOT, "%." + decimals + "f", value));
+        }
+        long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[decimals]);
+        if (value < 0 && scaled != 0) {
+            desc.append('-');
+        }
+        desc.append(scaled / POWERS_OF_TEN[decimals]);
+        if (decimals > 0) {
+            desc.append('.');
+            long fraction = scaled % POWERS_OF_TEN[decimals];
+            for (long power = POWERS_OF_TEN[decimals - 1]; power > 1 && fraction < power; power /= 10) {
+                desc.append('0');
+            }
+            desc.append(fraction);
         }
         return desc;
     }
 
+    // Heap in use after a few collections, to measure what a build retains
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     public static String fmt(RealVar realVar) {
-        return realVar.getName() + " = " + new DecimalFormat("#.#####").format(realVar.getUB());
+        return realVar.getName() + " = " + SHORT_FORMAT.get().format(realVar.getUB());
     }
 
 }
@@ -0,0 +1,194 @@
+package org.github.schmittjoaopedro;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Name index over the variables of a {@link Model}.
+ * <p>
+ * Variables are indexed incrementally: every lookup first indexes the variables added to the model since the
+ * previous lookup, so variables created after construction (user constraints, reified expressions) are found too.
+ * Names like {@code seat.type[3]} are also grouped by array, so {@code seat.type[*]} returns the whole array.
+ */
+public class VariableRegistry {
+
+    // Names Choco gives to the variables it creates for expressions, reifications, constants and views
+    private static final Pattern GENERATED = Pattern.compile(".*_exp_\\d+|(REIF|IV|BV|RV|SV|TMP)_\\d+|cste -- .*|not\\(.*\\)|\\(.*\\)|-\\(.*\\)");
+
+    private final Model model;
+
+    private final Map<String, Variable> byName = new HashMap<>();
+
+    private final NavigableMap<String, Variable> sortedByName = new TreeMap<>();
+
+    private final Map<String, List<Variable>> arrays = new HashMap<>();
+
+    private int indexed = 0;
+
+    public VariableRegistry(Model model) {
+        this.model = model;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public Variable getVar(String name) {
+        sync();
+        return byName.get(name);
+    }
+
+    public IntVar getIntVar(String name) {
+        return asIntVar(getVar(name), name);
+    }
+
+    public BoolVar getBoolVar(String name) {
+        return asBoolVar(getVar(name), name);
+    }
+
+    public RealVar getRealVar(String name) {
+        return asRealVar(getVar(name), name);
+    }
+
+    /**
+     * Returns the variables matching the pattern, either an array pattern like {@code seat.type[*]} (ordered by
+     * index) or a prefix pattern like {@code wagon.*} (ordered by name). An array must have every index from 0 to its
+     * last one, otherwise the element at position i would not be the variable [i].
+     */
+    public Variable[] getVars(String pattern) {
+        sync();
+        if (pattern.endsWith("[*]")) {
+            List<Variable> array = arrays.get(pattern.substring(0, pattern.length() - 3));
+            if (array == null) {
+                return new Variable[0];
+            }
+            int gap = array.indexOf(null);
+            if (gap >= 0) {
+                throw new IllegalArgumentException(pattern + " has no element [" + gap + "] but has [" + (array.size() - 1) + "]");
+            }
+            return array.toArray(new Variable[0]);
+        }
+        String prefix = pattern.endsWith("*") ? pattern.substring(0, pattern.length() - 1) : pattern;
+        return sortedByName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().toArray(new Variable[0]);
+    }
+
+    public IntVar[] getIntVars(String pattern) {
+        Variable[] vars = getVars(pattern);
+        IntVar[] intVars = new IntVar[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            intVars[i] = asIntVar(vars[i], pattern);
+        }
+        return intVars;
+    }
+
+    public BoolVar[] getBoolVars(String pattern) {
+        Variable[] vars = getVars(pattern);
+        BoolVar[] boolVars = new BoolVar[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            boolVars[i] = asBoolVar(vars[i], pattern);
+        }
+        return boolVars;
+    }
+
+    public RealVar[] getRealVars(String pattern) {
+        Variable[] vars = getVars(pattern);
+        RealVar[] realVars = new RealVar[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            realVars[i] = asRealVar(vars[i], pattern);
+        }
+        return realVars;
+    }
+
+    // Variables declared by the modeller, in declaration order, without those Choco generated
+    public Variable[] getDeclaredVars() {
+        sync();
+        List<Variable> declared = new ArrayList<>();
+        for (Variable var : byName.values()) {
+            if (!isGenerated(var.getName())) {
+                declared.add(var);
+            }
+        }
+        declared.sort(Comparator.comparingInt(Variable::getId));
+        return declared.toArray(new Variable[0]);
+    }
+
+    public static boolean isGenerated(String name) {
+        return GENERATED.matcher(name).matches();
+    }
+
+    public int size() {
+        sync();
+        return byName.size();
+    }
+
+    private void sync() {
+        int nbVars = model.getNbVars();
+        for (; indexed < nbVars; indexed++) {
+            register(model.getVar(indexed));
+        }
+    }
+
+    private void register(Variable var) {
+        String name = var.getName();
+        // Keep the first declaration when names clash, as the former linear scan did
+        if (byName.putIfAbsent(name, var) != null) {
+            return;
+        }
+        sortedByName.put(name, var);
+        int open = name.lastIndexOf('[');
+        if (open > 0 && name.endsWith("]")) {
+            try {
+                int index = Integer.parseInt(name.substring(open + 1, name.length() - 1));
+                List<Variable> array = arrays.computeIfAbsent(name.substring(0, open), k -> new ArrayList<>());
+                while (array.size() <= index) {
+                    array.add(null);
+                }
+                array.set(index, var);
+            } catch (NumberFormatException e) {
+                // Not an array element, only indexed by name
+            }
+        }
+    }
+
+    private static IntVar asIntVar(Variable var, String name) {
+        if (var == null) {
+            return null;
+        }
+        if ((var.getTypeAndKind() & Variable.INT) == 0) {
+            throw new IllegalArgumentException(name + " is not an integer variable");
+        }
+        return (IntVar) var;
+    }
+
+    private static BoolVar asBoolVar(Variable var, String name) {
+        if (var == null) {
+            return null;
+        }
+        if ((var.getTypeAndKind() & Variable.KIND) != Variable.BOOL) {
+            throw new IllegalArgumentException(name + " is not a boolean variable");
+        }
+        return (BoolVar) var;
+    }
+
+    private static RealVar asRealVar(Variable var, String name) {
+        if (var == null) {
+            return null;
+        }
+        if ((var.getTypeAndKind() & Variable.REAL) == 0) {
+            throw new IllegalArgumentException(name + " is not a real variable");
+        }
+        return (RealVar) var;
+    }
+}
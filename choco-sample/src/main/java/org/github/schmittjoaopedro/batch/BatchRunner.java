@@ -0,0 +1,429 @@
+package org.github.schmittjoaopedro.batch;
+
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.service.ConfigurationResponse;
+import org.github.schmittjoaopedro.service.ConfigurationService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a scenario file (see {@link ScenarioReader}) on the workers of a {@link ConfigurationService}, one model per
+ * worker and use case, and writes one JSON line per scenario to the output, in the order of the file whatever the
+ * order they finish in.
+ * <p>
+ * About every second the output is flushed and a checkpoint next to it ({@code <output>.checkpoint}) records how many
+ * scenarios it holds and its length. Running again on the same files resumes after the last checkpoint: the output is
+ * cut back to the checkpointed length and the scenarios already written are skipped, so a killed run loses at most
+ * the last second of work and never writes a scenario twice.
+ * <p>
+ * Usage: {@code BatchRunner <scenarios.csv|.jsonl> <output> [--use-case U] [--workers N] [--in-flight N]
+ * [--time-limit MS] [--values] [--limit N]}. Without arguments, runs wagon and financial service sweeps, the wagon
+ * one killed halfway and resumed.
+ */
+public class BatchRunner {
+
+    private static final long CHECKPOINT_NANOS = 1000000000L;
+
+    private static final long PROGRESS_NANOS = 10000000000L;
+
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    private int inFlight = 256;
+
+    private UseCase useCase;
+
+    private long timeLimitMs = 10000;
+
+    private boolean values;
+
+    private long limit = Long.MAX_VALUE;
+
+    private PrintStream progress = System.out;
+
+    public BatchRunner setWorkers(int workers) {
+        this.workers = workers;
+        return this;
+    }
+
+    // Scenarios submitted and not written yet
+    public BatchRunner setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+        return this;
+    }
+
+    // For files without use_case column
+    public BatchRunner setUseCase(UseCase useCase) {
+        this.useCase = useCase;
+        return this;
+    }
+
+    // For files without time_limit_ms column
+    public BatchRunner setTimeLimitMs(long timeLimitMs) {
+        this.timeLimitMs = timeLimitMs;
+        return this;
+    }
+
+    // Writes the values of the declared variables of each solution
+    public BatchRunner setValues(boolean values) {
+        this.values = values;
+        return this;
+    }
+
+    // Stops after this many scenarios in this run
+    public BatchRunner setLimit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    // Progress lines every 10 seconds, null for none
+    public BatchRunner setProgress(PrintStream progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public Report run(Path scenarios, Path output) throws IOException, InterruptedException {
+        Path checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+        String input = scenarios.toAbsolutePath().normalize().toString();
+        long done = 0;
+        long offset = 0;
+        if (Files.exists(checkpoint)) {
+            Properties state = new Properties();
+            try (InputStream in = Files.newInputStream(checkpoint)) {
+                state.load(in);
+            }
+            if (!input.equals(state.getProperty("input"))) {
+                throw new IOException(checkpoint + " is the checkpoint of " + state.getProperty("input"));
+            }
+            done = Long.parseLong(state.getProperty("scenarios"));
+            offset = Long.parseLong(state.getProperty("output_bytes"));
+        }
+        Report report = new Report(done);
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ScenarioReader reader = new ScenarioReader(scenarios, useCase, timeLimitMs);
+             ConfigurationService service = new ConfigurationService(workers, inFlight)) {
+            if (channel.size() < offset) {
+                throw new IOException(output + " is shorter than its checkpoint");
+            }
+            // Lines written after the checkpoint are written again
+            channel.truncate(offset);
+            channel.position(offset);
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 64 * 1024);
+            reader.skip(done);
+
+            // Bounded by the permits, and by the writes when a slow scenario holds back the ones after it
+            Semaphore permits = new Semaphore(inFlight);
+            Deque<Pending> pending = new ArrayDeque<>();
+            StringBuilder line = new StringBuilder(256);
+            long lastCheckpoint = System.nanoTime();
+            long lastProgress = lastCheckpoint;
+            long submitted = 0;
+            Scenario scenario;
+            while (submitted++ < limit && (scenario = reader.next()) != null) {
+                CompletableFuture<ConfigurationResponse> response;
+                if (scenario.getError() != null) {
+                    response = new CompletableFuture<>();
+                    response.completeExceptionally(new IllegalArgumentException(scenario.getError()));
+                } else {
+                    permits.acquire();
+                    response = service.submit(scenario.getRequest()).whenComplete((result, error) -> permits.release());
+                }
+                pending.add(new Pending(scenario, response));
+                while (!pending.isEmpty() && (pending.peek().response.isDone() || pending.size() > 16 * inFlight)) {
+                    write(pending.poll(), out, line, report);
+                    long now = System.nanoTime();
+                    if (now - lastCheckpoint >= CHECKPOINT_NANOS) {
+                        checkpoint(checkpoint, input, out, channel, report);
+                        lastCheckpoint = now;
+                    }
+                    if (progress != null && now - lastProgress >= PROGRESS_NANOS) {
+                        progress.printf("%,d scenarios, %.0f/s%n", report.getTotalScenarios(), report.getThroughput());
+                        lastProgress = now;
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, line, report);
+            }
+            checkpoint(checkpoint, input, out, channel, report);
+            report.elapsedNanos = System.nanoTime() - report.start;
+        }
+        return report;
+    }
+
+    private void write(Pending pending, Writer out, StringBuilder line, Report report) throws IOException {
+        Scenario scenario = pending.scenario;
+        line.setLength(0);
+        line.append("{\"id\":");
+        appendString(line, scenario.getId());
+        line.append(',');
+        if (scenario.getRequest() != null) {
+            line.append("\"use_case\":\"").append(scenario.getRequest().getUseCase()).append("\",\"requirements\":[");
+            List<Requirement> requirements = scenario.getRequest().getRequirements();
+            for (int i = 0; i < requirements.size(); i++) {
+                appendString(line.append(i > 0 ? "," : ""), requirements.get(i).toString());
+            }
+            line.append("],");
+        }
+        try {
+            ConfigurationResponse response = pending.response.join();
+            report.add(response);
+            line.append("\"status\":\"").append(response.getStatus()).append('"');
+            if (response.getObjective() != null) {
+                line.append(",\"objective\":").append(response.getObjective());
+            }
+            line.append(",\"nodes\":").append(response.getNodes());
+            line.append(",\"ms\":").append(response.getElapsedNanos() / 1000 / 1e3);
+            if (values && !response.getValues().isEmpty()) {
+                line.append(",\"values\":{");
+                String separator = "";
+                for (Map.Entry<String, Number> value : response.getValues().entrySet()) {
+                    appendString(line.append(separator), value.getKey()).append(':').append(value.getValue());
+                    separator = ",";
+                }
+                line.append('}');
+            }
+        } catch (CompletionException e) {
+            // An invalid line, an unknown variable, an invalid model: reported with the scenario, the run goes on
+            report.errors++;
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            line.append("\"status\":\"ERROR\",\"error\":");
+            appendString(line, String.valueOf(cause.getMessage()));
+        }
+        line.append("}\n");
+        out.append(line);
+        report.scenarios++;
+    }
+
+    private static void checkpoint(Path checkpoint, String input, Writer out, FileChannel channel, Report report) throws IOException {
+        out.flush();
+        channel.force(false);
+        Properties state = new Properties();
+        state.setProperty("input", input);
+        state.setProperty("scenarios", Long.toString(report.getTotalScenarios()));
+        state.setProperty("output_bytes", Long.toString(channel.position()));
+        // Replaced in one step, a kill leaves the old or the new checkpoint
+        Path next = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(next)) {
+            state.store(stream, null);
+        }
+        Files.move(next, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static StringBuilder appendString(StringBuilder line, String text) {
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < ' ') {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        return line.append('"');
+    }
+
+    private static class Pending {
+
+        private final Scenario scenario;
+
+        private final CompletableFuture<ConfigurationResponse> response;
+
+        Pending(Scenario scenario, CompletableFuture<ConfigurationResponse> response) {
+            this.scenario = scenario;
+            this.response = response;
+        }
+
+    }
+
+    /**
+     * Scenarios of a run, with the throughput and the latency of the scenarios solved in this run (from the start of
+     * their solve to their response, waiting in the queue excluded).
+     */
+    public static class Report {
+
+        private final long resumed;
+
+        private final long start = System.nanoTime();
+
+        private long elapsedNanos;
+
+        private long scenarios;
+
+        private long errors;
+
+        private final Map<ConfigurationResponse.Status, Long> statuses = new EnumMap<>(ConfigurationResponse.Status.class);
+
+        private long[] latencies = new long[1024];
+
+        private int nrLatencies;
+
+        private Report(long resumed) {
+            this.resumed = resumed;
+        }
+
+        private void add(ConfigurationResponse response) {
+            statuses.merge(response.getStatus(), 1L, Long::sum);
+            if (nrLatencies == latencies.length) {
+                latencies = Arrays.copyOf(latencies, nrLatencies * 2);
+            }
+            latencies[nrLatencies++] = response.getElapsedNanos();
+        }
+
+        // Scenarios written by an earlier run
+        public long getResumed() {
+            return resumed;
+        }
+
+        // Scenarios written by this run
+        public long getScenarios() {
+            return scenarios;
+        }
+
+        public long getTotalScenarios() {
+            return resumed + scenarios;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getCount(ConfigurationResponse.Status status) {
+            return statuses.getOrDefault(status, 0L);
+        }
+
+        // Scenarios per second of this run
+        public double getThroughput() {
+            long elapsed = elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - start;
+            return scenarios / (elapsed / 1e9);
+        }
+
+        // Latency in ms at a percentile (0 to 100) of the scenarios solved in this run
+        public double getLatencyMs(double percentile) {
+            if (nrLatencies == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, nrLatencies);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * nrLatencies) - 1;
+            return sorted[Math.max(0, Math.min(nrLatencies - 1, rank))] / 1e6;
+        }
+
+        public void print(PrintStream out) {
+            out.printf("%,d scenarios in %.1f s (%,d resumed from the checkpoint), %.0f scenarios/s%n",
+                    scenarios, elapsedNanos / 1e9, resumed, getThroughput());
+            out.println("  " + statuses.entrySet().stream().map(entry -> entry.getKey() + " " + entry.getValue())
+                    .collect(Collectors.joining(", ")) + (errors > 0 ? ", ERROR " + errors : ""));
+            out.printf("  latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    getLatencyMs(50), getLatencyMs(90), getLatencyMs(99), getLatencyMs(99.9), getLatencyMs(100));
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2) {
+            BatchRunner runner = new BatchRunner();
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--use-case":
+                        runner.setUseCase(UseCase.valueOf(args[++i]));
+                        break;
+                    case "--workers":
+                        runner.setWorkers(Integer.parseInt(args[++i]));
+                        break;
+                    case "--in-flight":
+                        runner.setInFlight(Integer.parseInt(args[++i]));
+                        break;
+                    case "--time-limit":
+                        runner.setTimeLimitMs(Long.parseLong(args[++i]));
+                        break;
+                    case "--values":
+                        runner.setValues(true);
+                        break;
+                    case "--limit":
+                        runner.setLimit(Long.parseLong(args[++i]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            runner.run(Paths.get(args[0]), Paths.get(args[1])).print(System.out);
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("batch");
+        // Every input profile of the financial service, a free input included
+        Path financial = directory.resolve("financial.jsonl");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(financial))) {
+            for (int profile = 0; profile < 64; profile++) {
+                out.printf("{\"willingnessToRisk\": %s, \"investmentDuration\": %s, \"expectedReturnRate\": %s}%n",
+                        value(profile % 4), value(profile / 4 % 4), value(profile / 16));
+            }
+        }
+        System.out.println("Financial service profiles:");
+        new BatchRunner().setUseCase(UseCase.FINANCIAL_SERVICE).setValues(true)
+                .run(financial, directory.resolve("financial.out.jsonl")).print(System.out);
+
+        // Every nr_passengers x nr_seats pair, by steps of 10
+        Path wagon = directory.resolve("wagon.csv");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(wagon))) {
+            out.println("id,wagon.nr_passengers,wagon.nr_seats");
+            for (int passengers = 50; passengers <= 200; passengers += 10) {
+                for (int seats = 0; seats <= 200; seats += 10) {
+                    out.println("p" + passengers + "s" + seats + "," + passengers + "," + seats);
+                }
+            }
+        }
+        BatchRunner runner = new BatchRunner().setUseCase(UseCase.WAGON).setProgress(null);
+        // Warm-up
+        runner.run(wagon, directory.resolve("warm-up.jsonl"));
+        System.out.println("Wagon sweep, uninterrupted:");
+        Path full = directory.resolve("wagon.full.jsonl");
+        runner.run(wagon, full).print(System.out);
+        System.out.println("Wagon sweep, stopped after 150 scenarios then resumed:");
+        Path resumed = directory.resolve("wagon.out.jsonl");
+        runner.setLimit(150).run(wagon, resumed).print(System.out);
+        // A kill leaves lines after the checkpoint, they are written again
+        Files.write(resumed, "{\"id\":\"half written".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        runner.setLimit(Long.MAX_VALUE).run(wagon, resumed).print(System.out);
+        System.out.println("Same results: " + outcomes(full).equals(outcomes(resumed)));
+    }
+
+    private static String value(int code) {
+        return code == 3 ? "null" : Integer.toString(code);
+    }
+
+    // Lines without the search figures, the node counts depend on what the worker models solved before
+    private static List<String> outcomes(Path output) throws IOException {
+        return Files.readAllLines(output).stream().map(line -> line.replaceAll(",\"(nodes|ms)\":[^,}]*", "")).collect(Collectors.toList());
+    }
+
+}
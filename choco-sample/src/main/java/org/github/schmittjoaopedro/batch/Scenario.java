@@ -0,0 +1,54 @@
+package org.github.schmittjoaopedro.batch;
+
+import org.github.schmittjoaopedro.service.ConfigurationRequest;
+
+public class Scenario {
+
+    // Position in the scenario file, from 0
+    private final long index;
+
+    private final String id;
+
+    private final ConfigurationRequest request;
+
+    private final String error;
+
+    public Scenario(long index, String id, ConfigurationRequest request) {
+        this(index, id, request, null);
+    }
+
+    private Scenario(long index, String id, ConfigurationRequest request, String error) {
+        this.index = index;
+        this.id = id;
+        this.request = request;
+        this.error = error;
+    }
+
+    // A line that could not be read, reported as a scenario so the run goes on
+    public static Scenario error(long index, String id, String error) {
+        return new Scenario(index, id, null, error);
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Null for an invalid line
+    public ConfigurationRequest getRequest() {
+        return request;
+    }
+
+    // Why the line is invalid, with its line number, null when it is valid
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + (error != null ? error : request);
+    }
+}
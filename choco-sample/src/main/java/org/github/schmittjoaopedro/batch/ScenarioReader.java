@@ -0,0 +1,201 @@
+package org.github.schmittjoaopedro.batch;
+
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.service.ConfigurationRequest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams scenarios from a CSV file (a header line, then one scenario per line) or a JSON lines file (one flat
+ * object per line), read one line at a time so files of any size can be run.
+ * <p>
+ * Every column or key is a variable of the model, except {@code id} (the line number by default), {@code use_case}
+ * (a {@link UseCase} name) and {@code time_limit_ms}. A value is either a number, required equal, or an operator and a
+ * number ({@code <= 30}, quoted in JSON); an empty CSV cell or a JSON null leaves the variable free. Blank lines and
+ * lines starting with # are skipped. A line that cannot be read is an error scenario (see {@link Scenario#getError()}).
+ */
+public class ScenarioReader implements Closeable {
+
+    private final BufferedReader in;
+
+    private final boolean json;
+
+    private final UseCase defaultUseCase;
+
+    private final long defaultTimeLimitMs;
+
+    private String[] header;
+
+    private long index;
+
+    private long lineNumber;
+
+    public ScenarioReader(Path path, UseCase defaultUseCase, long defaultTimeLimitMs) throws IOException {
+        this.in = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        this.json = path.getFileName().toString().endsWith(".jsonl") || path.getFileName().toString().endsWith(".json");
+        this.defaultUseCase = defaultUseCase;
+        this.defaultTimeLimitMs = defaultTimeLimitMs;
+    }
+
+    // Next scenario, null at the end of the file, an error scenario for an invalid line
+    public Scenario next() throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#") || !json && header == null && readHeader(line));
+        long scenarioIndex = index++;
+        String id = null;
+        try {
+            Map<String, String> values = json ? parseObject(line) : parseRow(line);
+            id = values.remove("id");
+            return scenario(scenarioIndex, id != null ? id : Long.toString(scenarioIndex + 1), values);
+        } catch (RuntimeException e) {
+            return Scenario.error(scenarioIndex, id != null ? id : Long.toString(scenarioIndex + 1), "Line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // Skips scenarios, e.g. those done before a restart
+    public void skip(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            if (next() == null) {
+                throw new IOException("The scenario file has only " + index + " scenarios");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readHeader(String line) {
+        header = line.split(",", -1);
+        for (int i = 0; i < header.length; i++) {
+            header[i] = header[i].trim();
+        }
+        return true;
+    }
+
+    private Map<String, String> parseRow(String line) {
+        String[] cells = line.split(",", -1);
+        if (cells.length != header.length) {
+            throw new IllegalArgumentException(cells.length + " cells, " + header.length + " columns");
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < cells.length; i++) {
+            String cell = cells[i].trim();
+            if (!cell.isEmpty()) {
+                values.put(header[i], cell);
+            }
+        }
+        return values;
+    }
+
+    private Scenario scenario(long scenarioIndex, String id, Map<String, String> values) {
+        String useCase = values.remove("use_case");
+        String timeLimit = values.remove("time_limit_ms");
+        if (useCase == null && defaultUseCase == null) {
+            throw new IllegalArgumentException("No use case");
+        }
+        List<Requirement> requirements = new ArrayList<>();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            char first = value.getValue().charAt(0);
+            boolean plain = Character.isDigit(first) || first == '-';
+            requirements.add(Requirement.parse(value.getKey() + (plain ? " = " : " ") + value.getValue()));
+        }
+        ConfigurationRequest request = new ConfigurationRequest(useCase != null ? UseCase.valueOf(useCase) : defaultUseCase,
+                requirements, timeLimit != null ? Long.parseLong(timeLimit) : defaultTimeLimitMs);
+        return new Scenario(scenarioIndex, id, request);
+    }
+
+    // Flat object with string, number and null values
+    private static Map<String, String> parseObject(String line) {
+        Map<String, String> values = new LinkedHashMap<>();
+        int[] position = {skipSpaces(line, 0)};
+        expect(line, position, '{');
+        if (peek(line, position) == '}') {
+            return values;
+        }
+        do {
+            String key = parseString(line, position);
+            expect(line, position, ':');
+            String value;
+            if (peek(line, position) == '"') {
+                value = parseString(line, position);
+            } else {
+                int start = position[0];
+                while (position[0] < line.length() && ",} \t".indexOf(line.charAt(position[0])) < 0) {
+                    position[0]++;
+                }
+                value = line.substring(start, position[0]);
+                position[0] = skipSpaces(line, position[0]);
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            if (value != null && !value.trim().isEmpty()) {
+                values.put(key, value.trim());
+            }
+        } while (tryExpect(line, position, ','));
+        expect(line, position, '}');
+        return values;
+    }
+
+    private static String parseString(String line, int[] position) {
+        expect(line, position, '"');
+        StringBuilder text = new StringBuilder();
+        while (position[0] < line.length() && line.charAt(position[0]) != '"') {
+            char c = line.charAt(position[0]++);
+            if (c == '\\' && position[0] < line.length()) {
+                c = line.charAt(position[0]++);
+            }
+            text.append(c);
+        }
+        expect(line, position, '"');
+        return text.toString();
+    }
+
+    private static char peek(String line, int[] position) {
+        if (position[0] >= line.length()) {
+            throw new IllegalArgumentException("Unexpected end of line");
+        }
+        return line.charAt(position[0]);
+    }
+
+    private static void expect(String line, int[] position, char c) {
+        if (!tryExpect(line, position, c)) {
+            throw new IllegalArgumentException("Expected " + c + " at column " + (position[0] + 1));
+        }
+    }
+
+    private static boolean tryExpect(String line, int[] position, char c) {
+        if (position[0] < line.length() && line.charAt(position[0]) == c) {
+            position[0] = skipSpaces(line, position[0] + 1);
+            return true;
+        }
+        return false;
+    }
+
+    private static int skipSpaces(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+}
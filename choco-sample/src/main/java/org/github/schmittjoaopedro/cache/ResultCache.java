@@ -0,0 +1,723 @@
+package org.github.schmittjoaopedro.cache;
+
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.objective.IObjectiveManager;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Results of optimization queries kept across runs, keyed by the normalized requirements of the query: the
+ * objective value, the bound proven on it and the values of the integer variables of the model.
+ * <p>
+ * Results are appended to a binary file, never rewritten. Opening the cache maps the file and indexes every record
+ * (requirements, objective, offset); the values are decoded on demand and the most recently used ones are kept in
+ * memory. A record cut short by a crash is dropped on the next open.
+ * <p>
+ * A query that was never solved still gets bounds from the others: a query with fewer requirements that was solved
+ * to optimality bounds it from above (when maximizing), a query with more requirements that has a solution bounds it
+ * from below. Only integer objectives are supported.
+ */
+public class ResultCache implements AutoCloseable {
+
+    private static final int MAGIC = 0x52435631;
+
+    public enum Status {
+        // The objective is the optimum, or the query has no solution at all
+        OPTIMAL, FEASIBLE, INFEASIBLE
+    }
+
+    private final FileChannel channel;
+
+    // Names of the integer variables whose values are stored, in record order
+    private final String[] names;
+
+    private final Map<String, Record> index = new HashMap<>();
+
+    private final Map<String, int[]> values;
+
+    // Covers the records up to its capacity, mapped again when reading a record appended after it
+    private MappedByteBuffer mapped;
+
+    private long hits;
+
+    private long misses;
+
+    private ResultCache(FileChannel channel, String[] names, int maxEntries) {
+        this.channel = channel;
+        this.names = names;
+        this.values = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Opens the cache file, created if missing, for results over the given variables. A file written for other
+     * variables (another model) is rejected.
+     */
+    public static ResultCache open(Path path, String[] names, int maxEntries) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ResultCache cache = new ResultCache(channel, names.clone(), maxEntries);
+            cache.load();
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Cache over the declared integer variables of the template's model
+    public static ResultCache open(Path path, ModelTemplate template, int maxEntries) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Variable var : template.getUtils().getRegistry().getDeclaredVars()) {
+            if ((var.getTypeAndKind() & Variable.INT) != 0) {
+                names.add(var.getName());
+            }
+        }
+        return open(path, names.toArray(new String[0]), maxEntries);
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Result of exactly these requirements (after normalization), null if none was stored
+    public synchronized Entry get(Collection<Requirement> requirements) throws IOException {
+        Record record = index.get(Key.of(requirements).text);
+        return record == null ? null : entry(record);
+    }
+
+    // What the stored results of other queries tell about this one
+    public synchronized Bounds bounds(Collection<Requirement> requirements, boolean maximize) {
+        Key key = Key.of(requirements);
+        Bounds bounds = new Bounds();
+        for (Record record : index.values()) {
+            if (record.status != Status.INFEASIBLE && record.key.implies(key)
+                    && !Objects.equals(bounds.reached, better(bounds.reached, record.objective, maximize))) {
+                // Its solution meets our requirements too
+                bounds.reached = record.objective;
+                bounds.reachedBy = record;
+            }
+            if (record.status != Status.INFEASIBLE && key.implies(record.key)) {
+                // We can not do better than what was proven with fewer requirements
+                bounds.limit = worse(bounds.limit, record.bound, maximize);
+            }
+            if (record.status == Status.INFEASIBLE && key.implies(record.key)) {
+                bounds.infeasible = true;
+            }
+        }
+        return bounds;
+    }
+
+    public synchronized void put(Collection<Requirement> requirements, Entry entry) throws IOException {
+        if (entry.values != null && entry.values.length != names.length) {
+            throw new IllegalArgumentException(entry.values.length + " values for " + names.length + " variables");
+        }
+        Key key = Key.of(requirements);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        key.write(payload);
+        payload.writeByte(entry.status.ordinal());
+        payload.writeInt(entry.objective);
+        payload.writeInt(entry.bound);
+        int[] values = entry.values == null ? new int[0] : entry.values;
+        writeVarInt(payload, values.length);
+        int previous = 0;
+        for (int value : values) {
+            // Zigzag varint of the difference to the previous value: runs of equal seats take one byte each
+            int delta = value - previous;
+            writeVarInt(payload, (delta << 1) ^ (delta >> 31));
+            previous = value;
+        }
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer record = ByteBuffer.allocate(8 + data.length);
+        record.putInt(data.length).put(data).putInt((int) crc.getValue());
+        record.flip();
+        long offset = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        index.put(key.text, new Record(key, entry.status, entry.objective, entry.bound, offset + 4));
+        this.values.put(key.text, values);
+    }
+
+    /**
+     * Optimizes the query on the template unless its optimum is cached. Otherwise the search starts with the
+     * bounds of the other results, and the result is stored. Returns null if the time limit (none if 0) is reached
+     * before the first solution.
+     */
+    public Entry optimize(ModelTemplate template, Collection<Requirement> requirements, long timeLimitMs) throws IOException, ContradictionException {
+        Entry cached = get(requirements);
+        if (cached != null && cached.status != Status.FEASIBLE) {
+            synchronized (this) {
+                hits++;
+            }
+            return cached;
+        }
+        synchronized (this) {
+            misses++;
+        }
+        IObjectiveManager<?> objectives = template.getModel().getSolver().getObjectiveManager();
+        if (!(objectives.getObjective() instanceof IntVar)) {
+            throw new IllegalArgumentException("The model has no integer objective");
+        }
+        IntVar objective = (IntVar) objectives.getObjective();
+        boolean maximize = objectives.getPolicy() == ResolutionPolicy.MAXIMIZE;
+        Bounds bounds = bounds(requirements, maximize);
+        if (bounds.infeasible) {
+            Entry entry = new Entry(Status.INFEASIBLE, 0, 0, null);
+            put(requirements, entry);
+            return entry;
+        }
+        if (bounds.reached != null && bounds.reached.equals(bounds.limit)) {
+            // A stored solution meets the requirements and reaches the best value possible
+            Entry entry;
+            synchronized (this) {
+                entry = entry(bounds.reachedBy);
+            }
+            entry = new Entry(Status.OPTIMAL, entry.objective, entry.objective, entry.values);
+            put(requirements, entry);
+            return entry;
+        }
+        IntVar[] vars = new IntVar[names.length];
+        for (int i = 0; i < names.length; i++) {
+            vars[i] = template.getUtils().getIntVar(names[i]);
+        }
+        Entry entry = template.query(requirements, solver -> {
+            if (timeLimitMs > 0) {
+                solver.limitTime(timeLimitMs);
+            }
+            return solve(solver, objective, maximize, vars, bounds);
+        });
+        if (entry != null) {
+            put(requirements, entry);
+        }
+        return entry;
+    }
+
+    private static Entry solve(Solver solver, IntVar objective, boolean maximize, IntVar[] vars, Bounds bounds) {
+        try {
+            solver.propagate();
+        } catch (ContradictionException e) {
+            return new Entry(Status.INFEASIBLE, 0, 0, null);
+        }
+        // The objective domain after propagation is already a proven bound
+        int bound = maximize ? objective.getUB() : objective.getLB();
+        if (bounds.limit != null) {
+            bound = maximize ? Math.min(bound, bounds.limit) : Math.max(bound, bounds.limit);
+        }
+        IObjectiveManager<IntVar> objectives = solver.getObjectiveManager();
+        // The bounds were reset on the domain of the previous query
+        objectives.resetBestBounds();
+        if (maximize) {
+            objectives.updateBestUB(bound);
+            if (bounds.reached != null) {
+                // A solution at least as good as the known one, found again by the search
+                objectives.updateBestLB(bounds.reached - 1);
+            }
+        } else {
+            objectives.updateBestLB(bound);
+            if (bounds.reached != null) {
+                objectives.updateBestUB(bounds.reached + 1);
+            }
+        }
+        int[] values = null;
+        int best = 0;
+        while (solver.solve()) {
+            values = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                values[i] = vars[i].getValue();
+            }
+            best = objective.getValue();
+        }
+        boolean complete = !solver.isStopCriterionMet();
+        if (values == null) {
+            return complete ? new Entry(Status.INFEASIBLE, 0, 0, null) : null;
+        }
+        return complete ? new Entry(Status.OPTIMAL, best, best, values) : new Entry(Status.FEASIBLE, best, bound, values);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapped = null;
+        channel.close();
+    }
+
+    // Reads the header, or writes it to a new file, then indexes every complete record
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(names.length);
+            for (String name : names) {
+                header.writeUTF(name);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            return;
+        }
+        ByteBuffer buffer = map();
+        if (size < 8 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a result cache file");
+        }
+        String[] stored = new String[buffer.getInt()];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = readUTF(buffer);
+        }
+        if (!Arrays.equals(stored, names)) {
+            throw new IOException("The cache file holds results of another model");
+        }
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + 4) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer data = buffer.slice();
+            data.limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            buffer.position(buffer.position() + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(start + 4);
+            Key key = Key.read(payload);
+            Status status = Status.values()[payload.get()];
+            index.put(key.text, new Record(key, status, payload.getInt(), payload.getInt(), start + 4));
+        }
+        if (buffer.position() < size) {
+            // Torn record at the end of the file, the next append overwrites it
+            mapped = null;
+            channel.truncate(buffer.position());
+        }
+    }
+
+    private ByteBuffer map() throws IOException {
+        if (mapped == null || mapped.capacity() < channel.size()) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return mapped.duplicate();
+    }
+
+    private Entry entry(Record record) throws IOException {
+        int[] cached = values.get(record.key.text);
+        if (cached == null) {
+            ByteBuffer payload = map();
+            payload.position((int) record.offset);
+            Key.read(payload);
+            payload.position(payload.position() + 9);
+            cached = new int[readVarInt(payload)];
+            int previous = 0;
+            for (int i = 0; i < cached.length; i++) {
+                int zigzag = readVarInt(payload);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                cached[i] = previous;
+            }
+            values.put(record.key.text, cached);
+        }
+        return new Entry(record.status, record.objective, record.bound, record.status == Status.INFEASIBLE ? null : cached.clone());
+    }
+
+    private static Integer better(Integer current, int candidate, boolean maximize) {
+        return current == null || (maximize ? candidate > current : candidate < current) ? candidate : current;
+    }
+
+    private static Integer worse(Integer current, int candidate, boolean maximize) {
+        return current == null || (maximize ? candidate < current : candidate > current) ? candidate : current;
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer input) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = input.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readUTF(ByteBuffer input) {
+        byte[] bytes = new byte[input.getShort() & 0xFFFF];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Entry {
+
+        private final Status status;
+
+        private final int objective;
+
+        private final int bound;
+
+        private final int[] values;
+
+        public Entry(Status status, int objective, int bound, int[] values) {
+            this.status = status;
+            this.objective = objective;
+            this.bound = bound;
+            this.values = values;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        // Best objective value found, meaningless when infeasible
+        public int getObjective() {
+            return objective;
+        }
+
+        // Best objective value possible, equal to the objective when optimal
+        public int getBound() {
+            return bound;
+        }
+
+        // Values in the order of the cache names, null when infeasible
+        public int[] getValues() {
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return status == Status.INFEASIBLE ? "INFEASIBLE" : status + " " + objective + (status == Status.FEASIBLE ? " (bound " + bound + ")" : "");
+        }
+
+    }
+
+    // What the other results tell about a query, values are null when unknown
+    public static class Bounds {
+
+        // Objective of a stored solution that meets the requirements
+        private Integer reached;
+
+        private Record reachedBy;
+
+        // No solution meeting the requirements can do better
+        private Integer limit;
+
+        private boolean infeasible;
+
+        public Integer getReached() {
+            return reached;
+        }
+
+        public Integer getLimit() {
+            return limit;
+        }
+
+        public boolean isInfeasible() {
+            return infeasible;
+        }
+
+        @Override
+        public String toString() {
+            return infeasible ? "infeasible" : "reached " + reached + ", limit " + limit;
+        }
+
+    }
+
+    private static class Record {
+
+        private final Key key;
+
+        private final Status status;
+
+        private final int objective;
+
+        private final int bound;
+
+        // Position of the payload in the file
+        private final long offset;
+
+        private Record(Key key, Status status, int objective, int bound, long offset) {
+            this.key = key;
+            this.status = status;
+            this.objective = objective;
+            this.bound = bound;
+            this.offset = offset;
+        }
+
+    }
+
+    /**
+     * Normalized requirements: one range and a set of excluded values per variable, sorted by name, so that
+     * {@code x > 2, x <= 5, x != 5} and {@code x <= 4, x >= 3} are the same key {@code x >= 3; x <= 4}.
+     */
+    static class Key {
+
+        private final String[] names;
+
+        private final int[] lows;
+
+        private final int[] highs;
+
+        private final int[][] excluded;
+
+        private final String text;
+
+        private Key(String[] names, int[] lows, int[] highs, int[][] excluded) {
+            this.names = names;
+            this.lows = lows;
+            this.highs = highs;
+            this.excluded = excluded;
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                if (lows[i] > highs[i]) {
+                    text.setLength(0);
+                    text.append("false");
+                    break;
+                }
+                if (lows[i] == highs[i]) {
+                    text.append(names[i]).append(" = ").append(lows[i]).append("; ");
+                    continue;
+                }
+                if (lows[i] != Integer.MIN_VALUE) {
+                    text.append(names[i]).append(" >= ").append(lows[i]).append("; ");
+                }
+                if (highs[i] != Integer.MAX_VALUE) {
+                    text.append(names[i]).append(" <= ").append(highs[i]).append("; ");
+                }
+                for (int value : excluded[i]) {
+                    text.append(names[i]).append(" != ").append(value).append("; ");
+                }
+            }
+            this.text = text.toString();
+        }
+
+        static Key of(Collection<Requirement> requirements) {
+            Map<String, List<Requirement>> byName = new HashMap<>();
+            for (Requirement requirement : requirements) {
+                byName.computeIfAbsent(requirement.getName(), k -> new ArrayList<>()).add(requirement);
+            }
+            String[] names = byName.keySet().toArray(new String[0]);
+            Arrays.sort(names);
+            int[] lows = new int[names.length];
+            int[] highs = new int[names.length];
+            int[][] excluded = new int[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                long low = Integer.MIN_VALUE;
+                long high = Integer.MAX_VALUE;
+                List<Integer> holes = new ArrayList<>();
+                for (Requirement requirement : byName.get(names[i])) {
+                    long value = requirement.getValue();
+                    switch (requirement.getOperator()) {
+                        case "=":
+                            low = Math.max(low, value);
+                            high = Math.min(high, value);
+                            break;
+                        case "!=":
+                            holes.add(requirement.getValue());
+                            break;
+                        case "<":
+                            high = Math.min(high, value - 1);
+                            break;
+                        case "<=":
+                            high = Math.min(high, value);
+                            break;
+                        case ">":
+                            low = Math.max(low, value + 1);
+                            break;
+                        default:
+                            low = Math.max(low, value);
+                            break;
+                    }
+                }
+                // Holes at the bounds move them, holes outside the range are dropped
+                Collections.sort(holes);
+                while (low <= high && holes.contains((int) low)) {
+                    low++;
+                }
+                while (low <= high && holes.contains((int) high)) {
+                    high--;
+                }
+                final long first = low;
+                final long last = high;
+                lows[i] = (int) Math.max(Integer.MIN_VALUE, Math.min(low, Integer.MAX_VALUE));
+                highs[i] = (int) Math.max(Integer.MIN_VALUE, Math.min(high, Integer.MAX_VALUE));
+                excluded[i] = holes.stream().filter(v -> v > first && v < last).distinct().mapToInt(Integer::intValue).toArray();
+            }
+            return new Key(names, lows, highs, excluded);
+        }
+
+        // Whether every assignment meeting this key meets the other one
+        boolean implies(Key other) {
+            if (text.equals("false")) {
+                return true;
+            }
+            for (int j = 0; j < other.names.length; j++) {
+                int i = Arrays.binarySearch(names, other.names[j]);
+                if (i < 0) {
+                    return false;
+                }
+                if (lows[i] < other.lows[j] || highs[i] > other.highs[j]) {
+                    return false;
+                }
+                for (int value : other.excluded[j]) {
+                    if (value >= lows[i] && value <= highs[i] && Arrays.binarySearch(excluded[i], value) < 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void write(DataOutputStream output) throws IOException {
+            output.writeShort(names.length);
+            for (int i = 0; i < names.length; i++) {
+                output.writeUTF(names[i]);
+                output.writeInt(lows[i]);
+                output.writeInt(highs[i]);
+                output.writeShort(excluded[i].length);
+                for (int value : excluded[i]) {
+                    output.writeInt(value);
+                }
+            }
+        }
+
+        static Key read(ByteBuffer input) {
+            int size = input.getShort() & 0xFFFF;
+            String[] names = new String[size];
+            int[] lows = new int[size];
+            int[] highs = new int[size];
+            int[][] excluded = new int[size][];
+            for (int i = 0; i < size; i++) {
+                names[i] = readUTF(input);
+                lows[i] = input.getInt();
+                highs[i] = input.getInt();
+                excluded[i] = new int[input.getShort() & 0xFFFF];
+                for (int k = 0; k < excluded[i].length; k++) {
+                    excluded[i][k] = input.getInt();
+                }
+            }
+            return new Key(names, lows, highs, excluded);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+
+    }
+
+
+    // Times the query on the template without the cache
+    private static long optimizeUncached(ModelTemplate template, List<Requirement> requirements) throws ContradictionException {
+        long start = System.nanoTime();
+        template.query(requirements, solver -> {
+            while (solver.solve()) ;
+            return null;
+        });
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws IOException, ContradictionException {
+        Path path = args.length > 0 ? Paths.get(args[0]) : Files.createTempFile("wagon-results", ".bin");
+        if (args.length == 0) {
+            Files.delete(path);
+        }
+        // The scenarios of WagonOptimizationProblem and near misses of them
+        List<List<Requirement>> scenarios = Arrays.asList(
+                Collections.singletonList(Requirement.eq("wagon.nr_passengers", 160)),
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30)),
+                Collections.emptyList());
+        List<List<Requirement>> nearMisses = Arrays.asList(
+                Arrays.asList(Requirement.parse("wagon.nr_passengers >= 150"), Requirement.parse("wagon.nr_passengers <= 170")),
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.parse("wagon.nr_seats >= 30"), Requirement.parse("wagon.nr_seats < 31")),
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30), Requirement.eq("wagon.nr_handrails", 1)),
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30), Requirement.eq("wagon.standing_room", 0)));
+
+        ModelTemplate template = new ModelTemplate(UseCase.WAGON.getFactory());
+        for (int run = 1; run <= 2; run++) {
+            // The second run reopens the file as a restarted process would
+            long start = System.nanoTime();
+            try (ResultCache cache = open(path, template, 64)) {
+                System.out.printf("Run %d: %d results loaded from %s (%d bytes) in %.2f ms%n", run, cache.size(), path,
+                        Files.size(path), (System.nanoTime() - start) / 1e6);
+                for (List<Requirement> requirements : scenarios) {
+                    start = System.nanoTime();
+                    Entry entry = cache.optimize(template, requirements, 0);
+                    System.out.printf("  %s: %s in %.3f ms%n", requirements, entry, (System.nanoTime() - start) / 1e6);
+                }
+                if (run == 2) {
+                    int rounds = 10000;
+                    start = System.nanoTime();
+                    for (int i = 0; i < rounds; i++) {
+                        cache.optimize(template, scenarios.get(i % scenarios.size()), 0);
+                    }
+                    System.out.printf("  %.1f us per repeated query%n", (System.nanoTime() - start) / 1e3 / rounds);
+                    for (List<Requirement> requirements : nearMisses) {
+                        Bounds bounds = cache.bounds(requirements, true);
+                        long uncached = optimizeUncached(template, requirements);
+                        start = System.nanoTime();
+                        Entry entry = cache.optimize(template, requirements, 0);
+                        System.out.printf("  %s: %s, %s, in %.1f ms (%.1f ms without bounds)%n", requirements, entry, bounds,
+                                (System.nanoTime() - start) / 1e6, uncached / 1e6);
+                    }
+                }
+                System.out.println("  " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package org.github.schmittjoaopedro.compile;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.iterators.DisposableValueIterator;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Rule base compiled into the table of its solutions, projected on the integer variables declared by the model.
+ * Each value of each variable indexes the rows holding it in a {@link BitSet}, so a query intersects one bitset per
+ * requirement instead of searching.
+ * <p>
+ * Rule bases with more than {@code maxTuples} solutions are not compiled: the same queries then run on a
+ * {@link ModelTemplate}, one at a time. Compiled queries run concurrently.
+ */
+public class CompiledRuleBase {
+
+    // Integer variables declared by the model, one column each
+    private final IntVar[] vars;
+
+    private final String[] names;
+
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    // Values of the initial domain of each column, ascending
+    private final int[][] values;
+
+    // supports[column][i]: rows where the column takes values[column][i]
+    private final BitSet[][] supports;
+
+    private final List<int[]> rows;
+
+    // Used when the rule base did not compile
+    private final ModelTemplate template;
+
+    private CompiledRuleBase(IntVar[] vars, int[][] values, List<int[]> rows, ModelTemplate template) {
+        this.vars = vars;
+        this.names = new String[vars.length];
+        this.values = values;
+        this.rows = rows;
+        this.template = template;
+        this.supports = new BitSet[vars.length][];
+        for (int column = 0; column < vars.length; column++) {
+            names[column] = vars[column].getName();
+            columns.put(names[column], column);
+            supports[column] = new BitSet[values[column].length];
+            for (int i = 0; i < values[column].length; i++) {
+                supports[column][i] = new BitSet(rows.size());
+            }
+        }
+        for (int row = 0; row < rows.size(); row++) {
+            int[] tuple = rows.get(row);
+            for (int column = 0; column < vars.length; column++) {
+                supports[column][Arrays.binarySearch(values[column], tuple[column])].set(row);
+            }
+        }
+    }
+
+    /**
+     * Enumerates the solutions of the model, or gives up after {@code maxTuples} and keeps the model to answer with
+     * the solver.
+     */
+    public static CompiledRuleBase compile(Supplier<Model> factory, int maxTuples) {
+        ModelTemplate template = new ModelTemplate(factory);
+        Model model = template.getModel();
+        List<IntVar> declared = new ArrayList<>();
+        for (Variable var : template.getUtils().getRegistry().getDeclaredVars()) {
+            if ((var.getTypeAndKind() & Variable.INT) != 0) {
+                declared.add((IntVar) var);
+            }
+        }
+        IntVar[] vars = declared.toArray(new IntVar[0]);
+        int[][] values = new int[vars.length][];
+        for (int i = 0; i < vars.length; i++) {
+            values[i] = domain(vars[i]);
+        }
+        // Every solution is enumerated, not only the improving ones
+        model.clearObjective();
+        Solver solver = model.getSolver();
+        // Variables Choco created for the rules are usually fixed by the declared ones, if not they are branched on.
+        // Not makeCompleteStrategy(true): it appends another default search at every solve after a reset.
+        solver.setSearch(Search.inputOrderLBSearch(vars), Search.defaultSearch(model));
+
+        List<int[]> rows = new ArrayList<>();
+        boolean complete;
+        try {
+            complete = template.query(Collections.emptyList(), s -> enumerate(s, vars, maxTuples, rows::add));
+        } catch (ContradictionException e) {
+            complete = true;
+        }
+        return complete
+                ? new CompiledRuleBase(vars, values, rows, null)
+                : new CompiledRuleBase(vars, values, Collections.emptyList(), template);
+    }
+
+    public static CompiledRuleBase compile(UseCase useCase, int maxTuples) {
+        return compile(useCase.getFactory(), maxTuples);
+    }
+
+    public boolean isCompiled() {
+        return template == null;
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    // Number of solutions of the rule base, -1 if it did not compile
+    public int size() {
+        return isCompiled() ? rows.size() : -1;
+    }
+
+    public boolean isFeasible(Collection<Requirement> requirements) {
+        if (!isCompiled()) {
+            return solverQuery(requirements, Solver::solve);
+        }
+        return !select(requirements).isEmpty();
+    }
+
+    // Values of the variable in at least one solution meeting the requirements, e.g. the valid products. Without the
+    // table this enumerates every solution, prefer isFeasible on large models
+    public int[] getOptions(Collection<Requirement> requirements, String name) {
+        int column = column(name);
+        boolean[] found = new boolean[values[column].length];
+        if (isCompiled()) {
+            BitSet selected = select(requirements);
+            for (int i = 0; i < found.length; i++) {
+                found[i] = supports[column][i].intersects(selected);
+            }
+        } else {
+            solverQuery(requirements, solver -> enumerate(solver, vars, Integer.MAX_VALUE,
+                    tuple -> found[Arrays.binarySearch(values[column], tuple[column])] = true));
+        }
+        int[] options = new int[found.length];
+        int nrOptions = 0;
+        for (int i = 0; i < found.length; i++) {
+            if (found[i]) {
+                options[nrOptions++] = values[column][i];
+            }
+        }
+        return Arrays.copyOf(options, nrOptions);
+    }
+
+    // Solutions meeting the requirements, values in the order of getNames()
+    public List<int[]> getSolutions(Collection<Requirement> requirements) {
+        List<int[]> solutions = new ArrayList<>();
+        if (isCompiled()) {
+            BitSet selected = select(requirements);
+            for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+                solutions.add(rows.get(row).clone());
+            }
+        } else {
+            solverQuery(requirements, solver -> enumerate(solver, vars, Integer.MAX_VALUE, solutions::add));
+        }
+        return solutions;
+    }
+
+    // Rows meeting all the requirements
+    private BitSet select(Collection<Requirement> requirements) {
+        BitSet selected = new BitSet(rows.size());
+        selected.set(0, rows.size());
+        BitSet matching = new BitSet(rows.size());
+        for (Requirement requirement : requirements) {
+            int column = column(requirement.getName());
+            matching.clear();
+            for (int i = 0; i < values[column].length; i++) {
+                if (requirement.accepts(values[column][i])) {
+                    matching.or(supports[column][i]);
+                }
+            }
+            selected.and(matching);
+        }
+        return selected;
+    }
+
+    private int column(String name) {
+        Integer column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown variable " + name);
+        }
+        return column;
+    }
+
+    private <R> R solverQuery(Collection<Requirement> requirements, ModelTemplate.Query<R> query) {
+        synchronized (template) {
+            try {
+                return template.query(requirements, query);
+            } catch (ContradictionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // Passes each distinct solution projected on the variables, returns false if stopped after maxTuples
+    private static boolean enumerate(Solver solver, IntVar[] vars, int maxTuples, Consumer<int[]> consumer) {
+        Set<List<Integer>> seen = new HashSet<>();
+        while (solver.solve()) {
+            int[] tuple = new int[vars.length];
+            List<Integer> key = new ArrayList<>(vars.length);
+            for (int i = 0; i < vars.length; i++) {
+                tuple[i] = vars[i].getValue();
+                key.add(tuple[i]);
+            }
+            if (seen.add(key)) {
+                if (seen.size() > maxTuples) {
+                    return false;
+                }
+                consumer.accept(tuple);
+            }
+        }
+        return true;
+    }
+
+    private static int[] domain(IntVar var) {
+        int[] domain = new int[var.getDomainSize()];
+        DisposableValueIterator values = var.getValueIterator(true);
+        try {
+            for (int i = 0; values.hasNext(); i++) {
+                domain[i] = values.next();
+            }
+        } finally {
+            values.dispose();
+        }
+        return domain;
+    }
+
+    public static void main(String[] args) {
+        String[] inputs = {"willingnessToRisk", "investmentDuration", "expectedReturnRate"};
+        CompiledRuleBase compiled = compile(UseCase.FINANCIAL_SERVICE, 1000);
+        CompiledRuleBase solver = compile(UseCase.FINANCIAL_SERVICE, 0);
+        System.out.println("Financial service: " + compiled.size() + " solutions over " + Arrays.toString(compiled.getNames())
+                + ", compiled = " + compiled.isCompiled() + ", fallback compiled = " + solver.isCompiled());
+
+        // Every combination of the inputs, each one unset or set to one of its 3 values
+        List<List<Requirement>> queries = new ArrayList<>();
+        for (int combination = 0; combination < 64; combination++) {
+            List<Requirement> requirements = new ArrayList<>();
+            for (int input = 0, rest = combination; input < inputs.length; input++, rest /= 4) {
+                if (rest % 4 < 3) {
+                    requirements.add(Requirement.eq(inputs[input], rest % 4));
+                }
+            }
+            queries.add(requirements);
+        }
+        for (List<Requirement> requirements : queries) {
+            if (compiled.isFeasible(requirements) != solver.isFeasible(requirements)
+                    || !Arrays.equals(compiled.getOptions(requirements, "productName"), solver.getOptions(requirements, "productName"))
+                    || compiled.getSolutions(requirements).size() != solver.getSolutions(requirements).size()) {
+                throw new IllegalStateException("Lookup and solver differ on " + requirements);
+            }
+        }
+        System.out.println("Lookup and solver agree on " + queries.size() + " input combinations");
+        List<Requirement> requirements = Arrays.asList(Requirement.eq("willingnessToRisk", 1), Requirement.eq("investmentDuration", 2));
+        System.out.println("Products for " + requirements + ": " + Arrays.toString(compiled.getOptions(requirements, "productName")));
+
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        for (CompiledRuleBase ruleBase : new CompiledRuleBase[]{compiled, solver, compiled, solver}) {
+            long start = System.nanoTime();
+            int options = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (List<Requirement> query : queries) {
+                    options += ruleBase.getOptions(query, "productName").length;
+                }
+            }
+            System.out.printf("%s: %.2f us per options query (%d options)%n", ruleBase.isCompiled() ? "lookup" : "solver",
+                    (System.nanoTime() - start) / 1e3 / rounds / queries.size(), options);
+        }
+
+        // Far more solutions than the limit, answered by the solver
+        long start = System.nanoTime();
+        CompiledRuleBase wagon = compile(UseCase.WAGON, 1000);
+        System.out.printf("Wagon compiled = %s after %.0f ms, 160 passengers feasible = %s%n", wagon.isCompiled(),
+                (System.nanoTime() - start) / 1e6, wagon.isFeasible(Collections.singletonList(Requirement.eq("wagon.nr_passengers", 160))));
+    }
+}
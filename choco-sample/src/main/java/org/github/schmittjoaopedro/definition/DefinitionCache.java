@@ -0,0 +1,101 @@
+package org.github.schmittjoaopedro.definition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed definitions by SHA-256 of their text, so a definition loaded again (every request of a service, a file
+ * reloaded after a deploy that did not change it) is not parsed again. The least recently used definitions are
+ * evicted beyond {@code maxEntries}.
+ * <p>
+ * Thread safe. Two threads missing the same definition at once both parse it, the cache keeps one.
+ */
+public class DefinitionCache {
+
+    private final Map<String, ModelDefinition> definitions;
+
+    private long hits;
+
+    private long misses;
+
+    public DefinitionCache(int maxEntries) {
+        this.definitions = new LinkedHashMap<String, ModelDefinition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ModelDefinition> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public ModelDefinition get(String text) {
+        return get(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ModelDefinition load(Path path) throws IOException {
+        return get(Files.readAllBytes(path));
+    }
+
+    // Definition on the classpath, e.g. /definitions/wagon.model
+    public ModelDefinition loadResource(String name) throws IOException {
+        try (InputStream input = DefinitionCache.class.getResourceAsStream(name)) {
+            if (input == null) {
+                throw new IOException("No resource " + name);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) > 0; ) {
+                bytes.write(buffer, 0, read);
+            }
+            return get(bytes.toByteArray());
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return definitions.size();
+    }
+
+    private ModelDefinition get(byte[] content) {
+        String key = hash(content);
+        synchronized (this) {
+            ModelDefinition definition = definitions.get(key);
+            if (definition != null) {
+                hits++;
+                return definition;
+            }
+            misses++;
+        }
+        // Parsed outside the lock, a large definition does not block the lookups of the others
+        ModelDefinition definition = ModelDefinition.parse(new String(content, StandardCharsets.UTF_8));
+        synchronized (this) {
+            ModelDefinition cached = definitions.putIfAbsent(key, definition);
+            return cached != null ? cached : definition;
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(content)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,520 @@
+package org.github.schmittjoaopedro.definition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recursive descent parser of the definition language. One statement per line, a line ending with an operator,
+ * a comma or a colon, or inside parentheses, continues on the next one. {@code #} starts a comment.
+ * <p>
+ * Operators from the loosest to the tightest: {@code <->}, {@code ->} (right associative), {@code or},
+ * {@code and}, {@code not}, comparisons, {@code + -}, {@code * / %}, unary {@code -}.
+ */
+class DefinitionParser {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "model", "const", "enum", "var", "forall", "in", "maximize", "minimize", "and", "or", "not", "true", "false",
+            "count", "sum"));
+
+    // Tokens after which a line break does not end the statement
+    private static final Set<String> CONTINUATIONS = new HashSet<>(Arrays.asList(
+            "+", "-", "*", "/", "%", "=", "!=", "<", "<=", ">", ">=", "->", "<->", "and", "or", "not", ",", ":", "..", "in"));
+
+    private static final String[] SYMBOLS = {"<->", "->", "..", "<=", ">=", "!=", "=", "<", ">", "+", "-", "*", "/", "%",
+            "(", ")", "[", "]", "{", "}", ",", ":"};
+
+    private static final String NEWLINE = "\n";
+
+    private final String text;
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    private int position;
+
+    private String name = "Model";
+
+    private final Map<String, Integer> constants = new HashMap<>();
+
+    private final Map<String, String[]> enums = new HashMap<>();
+
+    private final Map<String, ModelDefinition.VarDecl> vars = new HashMap<>();
+
+    private final List<ModelDefinition.VarDecl> declarations = new ArrayList<>();
+
+    // Indexes of the enclosing loops, innermost last
+    private final List<String> loops = new ArrayList<>();
+
+    private int maxDepth;
+
+    private int nrRules;
+
+    private Expression objective;
+
+    private boolean maximize;
+
+    DefinitionParser(String text) {
+        this.text = text;
+    }
+
+    ModelDefinition parse() {
+        tokenize();
+        List<ModelDefinition.Statement> statements = statements(true);
+        if (!peek().is(null)) {
+            throw error(peek(), "unexpected " + peek());
+        }
+        return new ModelDefinition(name, declarations, statements, objective, maximize, nrRules, maxDepth);
+    }
+
+    // Statements up to the end of the text (top level) or to the closing brace of a loop
+    private List<ModelDefinition.Statement> statements(boolean topLevel) {
+        List<ModelDefinition.Statement> statements = new ArrayList<>();
+        while (true) {
+            while (accept(NEWLINE)) ;
+            Token token = peek();
+            if (token.is(null) || token.is("}")) {
+                return statements;
+            }
+            if (topLevel && (token.is("model") || token.is("const") || token.is("enum") || token.is("var")
+                    || token.is("maximize") || token.is("minimize"))) {
+                declaration();
+            } else if (token.is("forall")) {
+                statements.add(forall());
+            } else {
+                statements.add(new ModelDefinition.Rule(expression()));
+                nrRules++;
+                endOfStatement();
+            }
+        }
+    }
+
+    private void declaration() {
+        Token keyword = next();
+        switch (keyword.text) {
+            case "model":
+                Token string = next();
+                if (string.type != Type.STRING) {
+                    throw error(string, "expected the model name between quotes");
+                }
+                name = string.text;
+                break;
+            case "const":
+                String constant = newName();
+                expect("=");
+                constants.put(constant, expression().evalConstant());
+                break;
+            case "enum":
+                String enumName = newName();
+                List<String> labels = labels();
+                for (int value = 0; value < labels.size(); value++) {
+                    Integer previous = constants.putIfAbsent(labels.get(value), value);
+                    // Enums may share a constant with the same value, e.g. LOW in two scales
+                    if (previous != null && previous != value) {
+                        throw error(keyword, labels.get(value) + " is already defined as " + previous);
+                    }
+                }
+                enums.put(enumName, labels.toArray(new String[0]));
+                break;
+            case "var":
+                variables();
+                break;
+            default:
+                if (objective != null) {
+                    throw error(keyword, "the model already has an objective");
+                }
+                maximize = keyword.is("maximize");
+                objective = expression();
+                break;
+        }
+        endOfStatement();
+    }
+
+    // var a, b[N] : Enum | Enum { A, B } | lb..ub
+    private void variables() {
+        List<String> names = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        do {
+            names.add(newName());
+            sizes.add(accept("[") ? expressionThen("]").evalConstant() : -1);
+        } while (accept(","));
+        expect(":");
+        Token domain = peek();
+        int[] values = null;
+        String[] labels = null;
+        int lb = 0;
+        int ub = 0;
+        if (domain.type == Type.NAME && enums.containsKey(domain.text)) {
+            next();
+            labels = enums.get(domain.text);
+            List<String> subset = peek().is("{") ? labels() : Arrays.asList(labels);
+            values = new int[subset.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Arrays.asList(labels).indexOf(subset.get(i));
+                if (values[i] < 0) {
+                    throw error(domain, subset.get(i) + " is not a value of " + domain.text);
+                }
+            }
+        } else {
+            lb = expression().evalConstant();
+            expect("..");
+            ub = expression().evalConstant();
+            if (lb > ub) {
+                throw error(domain, "empty domain " + lb + ".." + ub);
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (sizes.get(i) == 0 || sizes.get(i) < -1) {
+                throw error(domain, names.get(i) + " has size " + sizes.get(i));
+            }
+            ModelDefinition.VarDecl var = new ModelDefinition.VarDecl(names.get(i), sizes.get(i), values, lb, ub, labels);
+            vars.put(var.name, var);
+            declarations.add(var);
+        }
+    }
+
+    // forall i in from..to: statement, or forall i in from..to { statements }
+    private ModelDefinition.Statement forall() {
+        next();
+        Token index = peek();
+        String name = newName();
+        expect("in");
+        Expression from = expression();
+        expect("..");
+        Expression to = expression();
+        loops.add(name);
+        maxDepth = Math.max(maxDepth, loops.size());
+        List<ModelDefinition.Statement> body;
+        if (accept("{")) {
+            body = statements(false);
+            expect("}");
+            endOfStatement();
+        } else {
+            expect(":");
+            if (peek().is("forall")) {
+                body = new ArrayList<>();
+                body.add(forall());
+            } else {
+                body = new ArrayList<>();
+                body.add(new ModelDefinition.Rule(expression()));
+                nrRules++;
+                endOfStatement();
+            }
+        }
+        loops.remove(loops.size() - 1);
+        if (body.isEmpty()) {
+            throw error(index, "empty loop");
+        }
+        return new ModelDefinition.Forall(loops.size(), from, to, body);
+    }
+
+    private List<String> labels() {
+        expect("{");
+        List<String> labels = new ArrayList<>();
+        do {
+            while (accept(NEWLINE)) ;
+            Token label = next();
+            if (label.type != Type.NAME || KEYWORDS.contains(label.text)) {
+                throw error(label, "expected a value name");
+            }
+            labels.add(label.text);
+            while (accept(NEWLINE)) ;
+        } while (accept(","));
+        expect("}");
+        return labels;
+    }
+
+    private Expression expressionThen(String closing) {
+        Expression expression = expression();
+        expect(closing);
+        return expression;
+    }
+
+    private Expression expression() {
+        Expression left = implication();
+        if (peek().is("<->")) {
+            Token operator = next();
+            return new Expression.Binary(operator.line, "<->", left, implication());
+        }
+        return left;
+    }
+
+    private Expression implication() {
+        Expression left = disjunction();
+        if (peek().is("->")) {
+            Token operator = next();
+            return new Expression.Binary(operator.line, "->", left, implication());
+        }
+        return left;
+    }
+
+    private Expression disjunction() {
+        Expression left = conjunction();
+        while (peek().is("or")) {
+            Token operator = next();
+            left = new Expression.Binary(operator.line, "or", left, conjunction());
+        }
+        return left;
+    }
+
+    private Expression conjunction() {
+        Expression left = negation();
+        while (peek().is("and")) {
+            Token operator = next();
+            left = new Expression.Binary(operator.line, "and", left, negation());
+        }
+        return left;
+    }
+
+    private Expression negation() {
+        if (peek().is("not")) {
+            Token operator = next();
+            return new Expression.Unary(operator.line, "not", negation());
+        }
+        return comparison();
+    }
+
+    private Expression comparison() {
+        Expression left = sum();
+        Token operator = peek();
+        if (operator.type == Type.SYMBOL && (operator.is("=") || operator.is("!=") || operator.is("<")
+                || operator.is("<=") || operator.is(">") || operator.is(">="))) {
+            next();
+            return new Expression.Binary(operator.line, operator.text, left, sum());
+        }
+        return left;
+    }
+
+    private Expression sum() {
+        Expression left = product();
+        while (peek().is("+") || peek().is("-")) {
+            Token operator = next();
+            left = new Expression.Binary(operator.line, operator.text, left, product());
+        }
+        return left;
+    }
+
+    private Expression product() {
+        Expression left = unary();
+        while (peek().is("*") || peek().is("/") || peek().is("%")) {
+            Token operator = next();
+            left = new Expression.Binary(operator.line, operator.text, left, unary());
+        }
+        return left;
+    }
+
+    private Expression unary() {
+        if (peek().is("-")) {
+            Token operator = next();
+            return new Expression.Unary(operator.line, "-", unary());
+        }
+        return primary();
+    }
+
+    private Expression primary() {
+        Token token = next();
+        if (token.type == Type.INT) {
+            return new Expression.Literal(token.line, Integer.parseInt(token.text));
+        }
+        if (token.is("(")) {
+            return expressionThen(")");
+        }
+        if (token.is("true") || token.is("false")) {
+            return new Expression.Literal(token.line, token.is("true"));
+        }
+        if (token.is("count") || token.is("sum")) {
+            expect("(");
+            Expression value = token.is("count") ? expressionThen(",") : null;
+            String array = arrayName();
+            expect("[");
+            expect("*");
+            expect("]");
+            expect(")");
+            return new Expression.Aggregate(token.line, token.text, value, array);
+        }
+        if (token.type != Type.NAME || KEYWORDS.contains(token.text)) {
+            throw error(token, "unexpected " + token);
+        }
+        int depth = loops.lastIndexOf(token.text);
+        if (depth >= 0) {
+            return new Expression.Index(token.line, depth);
+        }
+        Integer constant = constants.get(token.text);
+        if (constant != null) {
+            return new Expression.Literal(token.line, constant);
+        }
+        ModelDefinition.VarDecl var = vars.get(token.text);
+        if (var == null) {
+            throw error(token, "unknown name " + token.text);
+        }
+        if (var.size < 0) {
+            return new Expression.Var(token.line, var.name);
+        }
+        expect("[");
+        return new Expression.Element(token.line, var.name, expressionThen("]"));
+    }
+
+    private String arrayName() {
+        Token token = next();
+        ModelDefinition.VarDecl var = vars.get(token.text);
+        if (var == null || var.size < 0) {
+            throw error(token, "expected an array variable");
+        }
+        return var.name;
+    }
+
+    // Name not used by anything else yet
+    private String newName() {
+        Token token = next();
+        if (token.type != Type.NAME || KEYWORDS.contains(token.text)) {
+            throw error(token, "expected a name");
+        }
+        if (constants.containsKey(token.text) || enums.containsKey(token.text) || vars.containsKey(token.text) || loops.contains(token.text)) {
+            throw error(token, token.text + " is already defined");
+        }
+        return token.text;
+    }
+
+    private void endOfStatement() {
+        if (!accept(NEWLINE) && !peek().is(null) && !peek().is("}")) {
+            throw error(peek(), "unexpected " + peek());
+        }
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.type != Type.END) {
+            position++;
+        }
+        return token;
+    }
+
+    private boolean accept(String text) {
+        if (peek().is(text) && text != null) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String text) {
+        if (!accept(text)) {
+            throw error(peek(), "expected '" + text + "' but found " + peek());
+        }
+    }
+
+    private IllegalArgumentException error(Token token, String message) {
+        return new IllegalArgumentException("Line " + token.line + ": " + message);
+    }
+
+    private void tokenize() {
+        int line = 1;
+        int depth = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                Token last = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+                if (depth == 0 && last != null && !last.is(NEWLINE) && !CONTINUATIONS.contains(last.text)) {
+                    tokens.add(new Token(Type.SYMBOL, NEWLINE, line));
+                }
+                line++;
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#') {
+                while (i < text.length() && text.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0 || text.substring(i, end).indexOf('\n') >= 0) {
+                    throw new IllegalArgumentException("Line " + line + ": unterminated string");
+                }
+                tokens.add(new Token(Type.STRING, text.substring(i + 1, end), line));
+                i = end + 1;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < text.length() && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(Type.INT, text.substring(start, i), line));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                // Dots belong to names like wagon.nr_seats, not to ranges like i..j
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+                        || text.charAt(i) == '.' && i + 1 < text.length() && (Character.isLetter(text.charAt(i + 1)) || text.charAt(i + 1) == '_'))) {
+                    i++;
+                }
+                tokens.add(new Token(Type.NAME, text.substring(start, i), line));
+            } else {
+                String symbol = null;
+                for (String candidate : SYMBOLS) {
+                    if (text.startsWith(candidate, i)) {
+                        symbol = candidate;
+                        break;
+                    }
+                }
+                if (symbol == null) {
+                    throw new IllegalArgumentException("Line " + line + ": unexpected character '" + c + "'");
+                }
+                if (symbol.equals("(") || symbol.equals("[")) {
+                    depth++;
+                } else if ((symbol.equals(")") || symbol.equals("]")) && depth > 0) {
+                    depth--;
+                }
+                tokens.add(new Token(Type.SYMBOL, symbol, line));
+                i += symbol.length();
+            }
+        }
+        tokens.add(new Token(Type.END, null, line));
+    }
+
+    private enum Type {
+        NAME, INT, STRING, SYMBOL, END
+    }
+
+    private static class Token {
+
+        private final Type type;
+
+        private final String text;
+
+        private final int line;
+
+        private Token(Type type, String text, int line) {
+            this.type = type;
+            this.text = text;
+            this.line = line;
+        }
+
+        // Whether the token is the given keyword or symbol, or the end of the text for null
+        private boolean is(String expected) {
+            if (expected == null) {
+                return type == Type.END;
+            }
+            return type != Type.STRING && type != Type.END && expected.equals(text);
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case END:
+                    return "end of text";
+                case STRING:
+                    return '"' + text + '"';
+                default:
+                    return text.equals(NEWLINE) ? "end of line" : "'" + text + "'";
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,470 @@
+package org.github.schmittjoaopedro.definition;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.expression.discrete.arithmetic.ArExpression;
+import org.chocosolver.solver.expression.discrete.relational.ReExpression;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Map;
+
+/**
+ * Expression of a model definition. Evaluating it against a model gives an {@link Integer} or a {@link Boolean} when
+ * it only depends on constants and loop indexes, an {@link ArExpression} or a {@link ReExpression} otherwise.
+ */
+abstract class Expression {
+
+    final int line;
+
+    Expression(int line) {
+        this.line = line;
+    }
+
+    abstract Object eval(Context context);
+
+    // Integer value of an expression without variables
+    int evalConstant() {
+        Object value = eval(new Context(null, null, null, new int[0]));
+        if (!(value instanceof Integer)) {
+            throw error("expected an integer");
+        }
+        return (Integer) value;
+    }
+
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ": " + message);
+    }
+
+    ArExpression toAr(Object value, Context context) {
+        if (value instanceof Integer) {
+            return context.model.intVar((Integer) value);
+        }
+        if (value instanceof Boolean) {
+            return context.model.intVar((Boolean) value ? 1 : 0);
+        }
+        if (value instanceof ArExpression) {
+            return (ArExpression) value;
+        }
+        return ((ReExpression) value).boolVar();
+    }
+
+    ReExpression toRe(Object value, Context context) {
+        if (value instanceof Boolean) {
+            return context.model.boolVar((Boolean) value);
+        }
+        if (value instanceof ReExpression) {
+            return (ReExpression) value;
+        }
+        throw error("expected a condition");
+    }
+
+    // Variables of the model being built and values of the enclosing loop indexes
+    static class Context {
+
+        final Model model;
+
+        final Map<String, IntVar> vars;
+
+        final Map<String, IntVar[]> arrays;
+
+        final int[] indexes;
+
+        Context(Model model, Map<String, IntVar> vars, Map<String, IntVar[]> arrays, int[] indexes) {
+            this.model = model;
+            this.vars = vars;
+            this.arrays = arrays;
+            this.indexes = indexes;
+        }
+
+    }
+
+    static class Literal extends Expression {
+
+        private final Object value;
+
+        Literal(int line, Object value) {
+            super(line);
+            this.value = value;
+        }
+
+        @Override
+        Object eval(Context context) {
+            return value;
+        }
+
+    }
+
+    // Index of the forall loop at the given depth
+    static class Index extends Expression {
+
+        private final int depth;
+
+        Index(int line, int depth) {
+            super(line);
+            this.depth = depth;
+        }
+
+        @Override
+        Object eval(Context context) {
+            return context.indexes[depth];
+        }
+
+    }
+
+    static class Var extends Expression {
+
+        private final String name;
+
+        Var(int line, String name) {
+            super(line);
+            this.name = name;
+        }
+
+        @Override
+        Object eval(Context context) {
+            if (context.model == null) {
+                throw error(name + " is not a constant");
+            }
+            return context.vars.get(name);
+        }
+
+    }
+
+    static class Element extends Expression {
+
+        private final String name;
+
+        private final Expression index;
+
+        Element(int line, String name, Expression index) {
+            super(line);
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        Object eval(Context context) {
+            Object i = index.eval(context);
+            if (!(i instanceof Integer)) {
+                throw error("index of " + name + " must be a constant or a loop index");
+            }
+            if (context.model == null) {
+                throw error(name + " is not a constant");
+            }
+            IntVar[] array = context.arrays.get(name);
+            if ((Integer) i < 0 || (Integer) i >= array.length) {
+                throw error(name + "[" + i + "] out of bounds, size is " + array.length);
+            }
+            return array[(Integer) i];
+        }
+
+    }
+
+    // count(value, array[*]) and sum(array[*])
+    static class Aggregate extends Expression {
+
+        private final String function;
+
+        private final Expression value;
+
+        private final String array;
+
+        Aggregate(int line, String function, Expression value, String array) {
+            super(line);
+            this.function = function;
+            this.value = value;
+            this.array = array;
+        }
+
+        @Override
+        Object eval(Context context) {
+            if (context.model == null) {
+                throw error(function + " is not a constant");
+            }
+            Model model = context.model;
+            IntVar[] vars = context.arrays.get(array);
+            if (function.equals("count")) {
+                IntVar count = model.intVar(0, vars.length);
+                Object counted = value.eval(context);
+                if (counted instanceof Integer) {
+                    model.count((Integer) counted, vars, count).post();
+                } else {
+                    model.count(toAr(counted, context).intVar(), vars, count).post();
+                }
+                return count;
+            }
+            int lb = 0;
+            int ub = 0;
+            for (IntVar var : vars) {
+                lb += var.getLB();
+                ub += var.getUB();
+            }
+            IntVar sum = model.intVar(lb, ub);
+            model.sum(vars, "=", sum).post();
+            return sum;
+        }
+
+    }
+
+    static class Unary extends Expression {
+
+        private final String operator;
+
+        private final Expression operand;
+
+        Unary(int line, String operator, Expression operand) {
+            super(line);
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        Object eval(Context context) {
+            Object value = operand.eval(context);
+            if (operator.equals("-")) {
+                if (value instanceof Integer) {
+                    return -(Integer) value;
+                }
+                return toAr(value, context).neg();
+            }
+            if (value instanceof Boolean) {
+                return !(Boolean) value;
+            }
+            return toRe(value, context).not();
+        }
+
+    }
+
+    static class Binary extends Expression {
+
+        final String operator;
+
+        final Expression left;
+
+        final Expression right;
+
+        Binary(int line, String operator, Expression left, Expression right) {
+            super(line);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object eval(Context context) {
+            Object l = left.eval(context);
+            // Short-circuits, e.g. i > 0 -> seat.type[i - 1] = ... must not evaluate seat.type[-1]
+            if (l instanceof Boolean && ((Boolean) l ? operator.equals("or") : operator.equals("and") || operator.equals("->"))) {
+                return operator.equals("or") || operator.equals("->");
+            }
+            Object r = right.eval(context);
+            switch (operator) {
+                case "+":
+                case "-":
+                case "*":
+                case "/":
+                case "%":
+                    return arithmetic(l, r, context);
+                case "=":
+                case "!=":
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    return comparison(l, r, context);
+                default:
+                    return logical(l, r, context);
+            }
+        }
+
+        private Object arithmetic(Object l, Object r, Context context) {
+            if (l instanceof Integer && r instanceof Integer) {
+                int a = (Integer) l;
+                int b = (Integer) r;
+                if ((operator.equals("/") || operator.equals("%")) && b == 0) {
+                    throw error("division by zero");
+                }
+                switch (operator) {
+                    case "+":
+                        return a + b;
+                    case "-":
+                        return a - b;
+                    case "*":
+                        return a * b;
+                    case "/":
+                        return a / b;
+                    default:
+                        return a % b;
+                }
+            }
+            // Constants on the right stay constants, Choco has an int version of every operator
+            if (r instanceof Integer) {
+                ArExpression a = toAr(l, context);
+                int b = (Integer) r;
+                switch (operator) {
+                    case "+":
+                        return a.add(b);
+                    case "-":
+                        return a.sub(b);
+                    case "*":
+                        return a.mul(b);
+                    case "/":
+                        return a.div(b);
+                    default:
+                        return a.mod(b);
+                }
+            }
+            if (l instanceof Integer && (operator.equals("+") || operator.equals("*"))) {
+                return operator.equals("+") ? toAr(r, context).add((Integer) l) : toAr(r, context).mul((Integer) l);
+            }
+            ArExpression a = toAr(l, context);
+            ArExpression b = toAr(r, context);
+            switch (operator) {
+                case "+":
+                    return a.add(b);
+                case "-":
+                    return a.sub(b);
+                case "*":
+                    return a.mul(b);
+                case "/":
+                    return a.div(b);
+                default:
+                    return a.mod(b);
+            }
+        }
+
+        private Object comparison(Object l, Object r, Context context) {
+            String op = operator;
+            if (l instanceof Integer && !(r instanceof Integer)) {
+                // c < x is x > c
+                Object swap = l;
+                l = r;
+                r = swap;
+                op = mirror(op);
+            }
+            if (l instanceof Integer) {
+                int a = (Integer) l;
+                int b = (Integer) r;
+                switch (op) {
+                    case "=":
+                        return a == b;
+                    case "!=":
+                        return a != b;
+                    case "<":
+                        return a < b;
+                    case "<=":
+                        return a <= b;
+                    case ">":
+                        return a > b;
+                    default:
+                        return a >= b;
+                }
+            }
+            ArExpression a = toAr(l, context);
+            if (r instanceof Integer) {
+                int b = (Integer) r;
+                switch (op) {
+                    case "=":
+                        return a.eq(b);
+                    case "!=":
+                        return a.ne(b);
+                    case "<":
+                        return a.lt(b);
+                    case "<=":
+                        return a.le(b);
+                    case ">":
+                        return a.gt(b);
+                    default:
+                        return a.ge(b);
+                }
+            }
+            ArExpression b = toAr(r, context);
+            switch (op) {
+                case "=":
+                    return a.eq(b);
+                case "!=":
+                    return a.ne(b);
+                case "<":
+                    return a.lt(b);
+                case "<=":
+                    return a.le(b);
+                case ">":
+                    return a.gt(b);
+                default:
+                    return a.ge(b);
+            }
+        }
+
+        private static String mirror(String op) {
+            switch (op) {
+                case "<":
+                    return ">";
+                case "<=":
+                    return ">=";
+                case ">":
+                    return "<";
+                case ">=":
+                    return "<=";
+                default:
+                    return op;
+            }
+        }
+
+        private Object logical(Object l, Object r, Context context) {
+            // Constant operands are folded away, e.g. the bounds of a loop making a rule trivially true
+            if (l instanceof Boolean && r instanceof Boolean) {
+                boolean a = (Boolean) l;
+                boolean b = (Boolean) r;
+                switch (operator) {
+                    case "and":
+                        return a && b;
+                    case "or":
+                        return a || b;
+                    case "->":
+                        return !a || b;
+                    default:
+                        return a == b;
+                }
+            }
+            if (l instanceof Boolean) {
+                boolean a = (Boolean) l;
+                switch (operator) {
+                    case "and":
+                        return a ? toRe(r, context) : false;
+                    case "or":
+                        return a ? true : toRe(r, context);
+                    case "->":
+                        return a ? toRe(r, context) : true;
+                    default:
+                        return a ? toRe(r, context) : toRe(r, context).not();
+                }
+            }
+            if (r instanceof Boolean) {
+                boolean b = (Boolean) r;
+                switch (operator) {
+                    case "and":
+                        return b ? toRe(l, context) : false;
+                    case "or":
+                        return b ? true : toRe(l, context);
+                    case "->":
+                        return b ? true : toRe(l, context).not();
+                    default:
+                        return b ? toRe(l, context) : toRe(l, context).not();
+                }
+            }
+            ReExpression a = toRe(l, context);
+            ReExpression b = toRe(r, context);
+            switch (operator) {
+                case "and":
+                    return a.and(b);
+                case "or":
+                    return a.or(b);
+                case "->":
+                    return a.imp(b);
+                default:
+                    return a.iff(b);
+            }
+        }
+
+    }
+
+}
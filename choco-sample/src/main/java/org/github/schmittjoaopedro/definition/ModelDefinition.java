@@ -0,0 +1,287 @@
+package org.github.schmittjoaopedro.definition;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.expression.discrete.relational.ReExpression;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.Utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Use case described in the definition language instead of Java, e.g.
+ * <pre>
+ * model "Map coloring"
+ * enum Color { RED, GREEN, BLUE }
+ * var WA, NT, SA : Color
+ * WA != NT
+ * forall i in 0..N - 2: seat.type[i] = SPECIAL -> seat.color[i] = RED
+ * maximize wagon.used_space
+ * </pre>
+ * Enum variables get an enumerated domain, ranges like {@code 0..200} a bounded one. Rules are posted with the
+ * expression API of Choco, as the hand-written models do. See the definitions in {@code src/main/resources/definitions}.
+ * <p>
+ * A definition is parsed once and builds as many models as needed, it can be the factory of a
+ * {@link org.github.schmittjoaopedro.session.ModelTemplate}.
+ */
+public class ModelDefinition implements Supplier<Model> {
+
+    private final String name;
+
+    private final List<VarDecl> vars;
+
+    private final List<Statement> statements;
+
+    // null when the model has no objective
+    private final Expression objective;
+
+    private final boolean maximize;
+
+    private final Map<String, String[]> labels = new HashMap<>();
+
+    private final int nrRules;
+
+    private final int maxDepth;
+
+    ModelDefinition(String name, List<VarDecl> vars, List<Statement> statements, Expression objective, boolean maximize,
+                    int nrRules, int maxDepth) {
+        this.name = name;
+        this.vars = vars;
+        this.statements = statements;
+        this.objective = objective;
+        this.maximize = maximize;
+        this.nrRules = nrRules;
+        this.maxDepth = maxDepth;
+        for (VarDecl var : vars) {
+            if (var.labels != null) {
+                labels.put(var.name, var.labels);
+            }
+        }
+    }
+
+    // Throws IllegalArgumentException with the line of the first error
+    public static ModelDefinition parse(String text) {
+        return new DefinitionParser(text).parse();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Rules as written, a rule inside a loop counts once
+    public int getNrRules() {
+        return nrRules;
+    }
+
+    public Model createModel() {
+        Model model = new Model(name);
+        Map<String, IntVar> scalars = new HashMap<>();
+        Map<String, IntVar[]> arrays = new HashMap<>();
+        for (VarDecl var : vars) {
+            if (var.size < 0) {
+                scalars.put(var.name, var.values != null ? model.intVar(var.name, var.values) : model.intVar(var.name, var.lb, var.ub, true));
+            } else {
+                arrays.put(var.name, var.values != null ? model.intVarArray(var.name, var.size, var.values) : model.intVarArray(var.name, var.size, var.lb, var.ub, true));
+            }
+        }
+        Expression.Context context = new Expression.Context(model, scalars, arrays, new int[maxDepth]);
+        for (Statement statement : statements) {
+            statement.post(context);
+        }
+        if (objective != null) {
+            Object value = objective.eval(context);
+            model.setObjective(maximize, objective.toAr(value, context).intVar());
+        }
+        return model;
+    }
+
+    @Override
+    public Model get() {
+        return createModel();
+    }
+
+    // Labels of the enum values of the variable (seat.type[3] has those of seat.type), null if it is not an enum
+    public String[] getLabels(String name) {
+        String[] values = labels.get(name);
+        int open = name.lastIndexOf('[');
+        if (values == null && open > 0) {
+            values = labels.get(name.substring(0, open));
+        }
+        return values;
+    }
+
+    // "name = label" for enum variables, "name = value" or "name = [lb, ub]" for the others
+    public String format(Utils utils, String name) {
+        String[] values = getLabels(name);
+        return values != null ? utils.getEnumVarFormatted(name, values) : utils.getIntVarFormatted(name);
+    }
+
+    // Variable or array of variables, enumerated domain when values is not null
+    static class VarDecl {
+
+        final String name;
+
+        // -1 for a single variable
+        final int size;
+
+        final int[] values;
+
+        final int lb;
+
+        final int ub;
+
+        final String[] labels;
+
+        VarDecl(String name, int size, int[] values, int lb, int ub, String[] labels) {
+            this.name = name;
+            this.size = size;
+            this.values = values;
+            this.lb = lb;
+            this.ub = ub;
+            this.labels = labels;
+        }
+
+    }
+
+    abstract static class Statement {
+
+        abstract void post(Expression.Context context);
+
+    }
+
+    static class Rule extends Statement {
+
+        private final Expression condition;
+
+        Rule(Expression condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        void post(Expression.Context context) {
+            post(condition, context);
+        }
+
+        // Conjunctions are posted as separate constraints instead of one reified and
+        private static void post(Expression condition, Expression.Context context) {
+            if (condition instanceof Expression.Binary && ((Expression.Binary) condition).operator.equals("and")) {
+                post(((Expression.Binary) condition).left, context);
+                post(((Expression.Binary) condition).right, context);
+                return;
+            }
+            Object value = condition.eval(context);
+            if (value instanceof Boolean) {
+                if (!(Boolean) value) {
+                    context.model.falseConstraint().post();
+                }
+                return;
+            }
+            if (!(value instanceof ReExpression)) {
+                throw condition.error("a rule must be a condition");
+            }
+            ((ReExpression) value).post();
+        }
+
+    }
+
+    static class Forall extends Statement {
+
+        private final int depth;
+
+        private final Expression from;
+
+        private final Expression to;
+
+        private final List<Statement> body;
+
+        Forall(int depth, Expression from, Expression to, List<Statement> body) {
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
+            this.body = Collections.unmodifiableList(body);
+        }
+
+        @Override
+        void post(Expression.Context context) {
+            int first = bound(from, context);
+            int last = bound(to, context);
+            for (int i = first; i <= last; i++) {
+                context.indexes[depth] = i;
+                for (Statement statement : body) {
+                    statement.post(context);
+                }
+            }
+        }
+
+        private static int bound(Expression bound, Expression.Context context) {
+            Object value = bound.eval(context);
+            if (!(value instanceof Integer)) {
+                throw bound.error("loop bounds must be constants");
+            }
+            return (Integer) value;
+        }
+
+    }
+
+
+    // Solution count, or best objective value with 160 passengers for optimization models
+    private static Number check(Model model) {
+        Solver solver = model.getSolver();
+        if (!solver.hasObjective()) {
+            while (solver.solve()) ;
+            return solver.getSolutionCount();
+        }
+        new Utils(model).getIntVar("wagon.nr_passengers").eq(160).post();
+        while (solver.solve()) ;
+        return solver.getBestSolutionValue();
+    }
+
+    public static void main(String[] args) throws IOException {
+        DefinitionCache cache = new DefinitionCache(16);
+        String[] resources = {"/definitions/map-coloring.model", "/definitions/financial-service.model", "/definitions/wagon.model"};
+        UseCase[] useCases = {UseCase.MAP_COLORING, UseCase.FINANCIAL_SERVICE, UseCase.WAGON};
+        for (int i = 0; i < resources.length; i++) {
+            long start = System.nanoTime();
+            ModelDefinition definition = cache.loadResource(resources[i]);
+            double parseMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            Model model = definition.createModel();
+            double buildMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            Number result = check(model);
+            double solveMs = (System.nanoTime() - start) / 1e6;
+            Number expected = check(useCases[i].createModel());
+            if (!result.equals(expected)) {
+                throw new IllegalStateException(definition.getName() + ": " + result + " from the definition, " + expected + " from Java");
+            }
+            System.out.printf("%s: %d rules, parsed in %.1f ms, built in %.1f ms, %s %s in %.0f ms as the Java model%n",
+                    definition.getName(), definition.getNrRules(), parseMs, buildMs,
+                    model.getSolver().hasObjective() ? "best value" : "solutions", result, solveMs);
+        }
+
+        // Labels come with the definition
+        ModelDefinition financial = cache.loadResource(resources[1]);
+        Model model = financial.createModel();
+        Utils utils = new Utils(model);
+        model.getSolver().solve();
+        StringBuilder solution = new StringBuilder("First financial solution:");
+        for (Variable var : utils.getRegistry().getDeclaredVars()) {
+            solution.append(' ').append(financial.format(utils, var.getName())).append(';');
+        }
+        System.out.println(solution);
+        System.out.println("Cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+
+        try {
+            parse("enum Color { RED, GREEN }\nvar WA, NT : Color\nWA != NT and\n  NT = BLUE");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid definition: " + e.getMessage());
+        }
+    }
+}
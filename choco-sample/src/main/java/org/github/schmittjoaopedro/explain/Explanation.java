@@ -0,0 +1,69 @@
+package org.github.schmittjoaopedro.explain;
+
+import org.github.schmittjoaopedro.Requirement;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Why a set of requirements has no solution: a minimal subset of the requirements that already has none, and the
+ * rules of the model that clash with it. Removing any requirement of the conflict, or any of the rules, makes
+ * the conflict go away.
+ */
+public class Explanation {
+
+    private final List<Requirement> requirements;
+
+    private final List<Requirement> conflict;
+
+    private final List<Rule> rules;
+
+    private final List<String> variables;
+
+    public Explanation(List<Requirement> requirements, List<Requirement> conflict, List<Rule> rules, List<String> variables) {
+        this.requirements = Collections.unmodifiableList(requirements);
+        this.conflict = Collections.unmodifiableList(conflict);
+        this.rules = Collections.unmodifiableList(rules);
+        this.variables = Collections.unmodifiableList(variables);
+    }
+
+    // The requirements have a solution, nothing to explain
+    public static Explanation consistent(List<Requirement> requirements) {
+        return new Explanation(requirements, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+    public boolean isConsistent() {
+        return conflict.isEmpty() && rules.isEmpty();
+    }
+
+    public List<Requirement> getRequirements() {
+        return requirements;
+    }
+
+    // Minimal subset of the requirements without solution
+    public List<Requirement> getConflict() {
+        return conflict;
+    }
+
+    // Minimal subset of the rules that clash with the conflict
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    // Declared variables the rules constrain
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    @Override
+    public String toString() {
+        if (isConsistent()) {
+            return requirements + " is consistent";
+        }
+        StringBuilder desc = new StringBuilder(conflict.toString()).append(" clashes with the rules on ").append(variables).append(':');
+        for (Rule rule : rules) {
+            desc.append("\n    ").append(rule);
+        }
+        return desc.toString();
+    }
+}
@@ -0,0 +1,234 @@
+package org.github.schmittjoaopedro.explain;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.VariableRegistry;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Explains batches of conflicting requirement sets on one model built once.
+ * <p>
+ * Conflicts are computed with QuickXPlain (Junker, 2004): first a minimal subset of the requirements without
+ * solution, given all the rules, then a minimal subset of the rules without solution, given that conflict. The rules
+ * are those the model recorded with {@link Rules} while it was built, each with all the constraints it posted. Each
+ * consistency check posts the candidate constraints on the shared model, solves and restores it, so no model is
+ * rebuilt. Explanations are cached by the sorted requirements, least recently used first out.
+ * <p>
+ * Not thread safe, use one per thread.
+ */
+public class ExplanationService {
+
+    private final ModelTemplate template;
+
+    private final Model model;
+
+    private final Solver solver;
+
+    // Rules of the base model requirements can clash with, and the constraints they posted
+    private final Map<Rule, Constraint[]> rules;
+
+    private final Map<String, Explanation> cache;
+
+    private long nrChecks = 0;
+
+    public ExplanationService(Supplier<Model> factory, int cacheSize) {
+        this.template = new ModelTemplate(factory);
+        this.model = template.getModel();
+        this.solver = model.getSolver();
+        this.rules = Rules.resolve(model);
+        this.cache = new LinkedHashMap<String, Explanation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Explanation> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public ExplanationService(UseCase useCase, int cacheSize) {
+        this(useCase.getFactory(), cacheSize);
+    }
+
+    public List<Explanation> explainAll(Collection<? extends Collection<Requirement>> batch) {
+        List<Explanation> explanations = new ArrayList<>(batch.size());
+        for (Collection<Requirement> requirements : batch) {
+            explanations.add(explain(requirements));
+        }
+        return explanations;
+    }
+
+    public Explanation explain(Collection<Requirement> requirements) {
+        String key = key(requirements);
+        Explanation explanation = cache.get(key);
+        if (explanation == null) {
+            try {
+                explanation = template.query(Collections.emptyList(), solver -> compute(new ArrayList<>(requirements)));
+            } catch (ContradictionException e) {
+                throw new IllegalStateException(e);
+            }
+            cache.put(key, explanation);
+        }
+        return explanation;
+    }
+
+    // Same key for the same requirements in any order
+    public static String key(Collection<Requirement> requirements) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (Requirement requirement : requirements) {
+            sorted.add(requirement.toString());
+        }
+        return String.join(";", sorted);
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    // Number of consistency checks (solver runs) done so far
+    public long getNrChecks() {
+        return nrChecks;
+    }
+
+    private Explanation compute(List<Requirement> requirements) {
+        Constraint[] constraints = new Constraint[requirements.size()];
+        for (int i = 0; i < constraints.length; i++) {
+            constraints[i] = requirements.get(i).toConstraint(template.getUtils());
+        }
+        List<Constraint> all = Arrays.asList(constraints);
+        if (consistent(all, null)) {
+            return Explanation.consistent(requirements);
+        }
+        List<Constraint> conflict = quickXPlain(all, candidates -> consistent(candidates, null));
+        // Requirements can clash among themselves (x = 1 and x = 2), then no rule takes part
+        List<Rule> clash = consistent(conflict, Collections.emptyList())
+                ? quickXPlain(new ArrayList<>(rules.keySet()), candidates -> consistent(conflict, candidates))
+                : Collections.emptyList();
+
+        List<Requirement> conflictRequirements = new ArrayList<>();
+        for (Constraint constraint : conflict) {
+            conflictRequirements.add(requirements.get(all.indexOf(constraint)));
+        }
+        TreeSet<String> variables = new TreeSet<>();
+        for (Rule rule : clash) {
+            for (Constraint constraint : rules.get(rule)) {
+                for (Propagator<?> propagator : constraint.getPropagators()) {
+                    for (Variable var : propagator.getVars()) {
+                        if (!VariableRegistry.isGenerated(var.getName())) {
+                            variables.add(var.getName());
+                        }
+                    }
+                }
+            }
+        }
+        return new Explanation(requirements, conflictRequirements, clash, new ArrayList<>(variables));
+    }
+
+    // Whether the requirements have a solution when only the given rules are posted, all of them if null
+    private boolean consistent(List<Constraint> requirements, List<Rule> activeRules) {
+        nrChecks++;
+        List<Constraint> removed = new ArrayList<>();
+        if (activeRules != null) {
+            Set<Rule> active = new HashSet<>(activeRules);
+            for (Map.Entry<Rule, Constraint[]> rule : rules.entrySet()) {
+                if (!active.contains(rule.getKey())) {
+                    removed.addAll(Arrays.asList(rule.getValue()));
+                }
+            }
+            model.unpost(removed.toArray(new Constraint[0]));
+        }
+        Constraint[] posted = requirements.toArray(new Constraint[0]);
+        model.post(posted);
+        try {
+            return solver.solve();
+        } finally {
+            solver.reset();
+            model.unpost(posted);
+            model.post(removed.toArray(new Constraint[0]));
+        }
+    }
+
+    /**
+     * QuickXPlain: a minimal inconsistent subset of the candidates. Assumes all the candidates together are
+     * inconsistent and no candidate at all is consistent.
+     */
+    private static <T> List<T> quickXPlain(List<T> candidates, Check<T> check) {
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return quickXPlain(Collections.emptyList(), false, candidates, check);
+    }
+
+    private static <T> List<T> quickXPlain(List<T> background, boolean added, List<T> candidates, Check<T> check) {
+        if (added && !check.consistent(background)) {
+            return Collections.emptyList();
+        }
+        if (candidates.size() == 1) {
+            return candidates;
+        }
+        int half = candidates.size() / 2;
+        List<T> first = candidates.subList(0, half);
+        List<T> second = candidates.subList(half, candidates.size());
+        List<T> secondConflict = quickXPlain(union(background, first), !first.isEmpty(), second, check);
+        List<T> firstConflict = quickXPlain(union(background, secondConflict), !secondConflict.isEmpty(), first, check);
+        return union(firstConflict, secondConflict);
+    }
+
+    private static <T> List<T> union(List<T> a, List<T> b) {
+        List<T> union = new ArrayList<>(a.size() + b.size());
+        union.addAll(a);
+        union.addAll(b);
+        return union;
+    }
+
+    public static void main(String[] args) {
+        int nrRequests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        // Random requirement sets on the financial service, some of them conflicting
+        String[] inputs = {"willingnessToRisk", "investmentDuration", "expectedReturnRate", "productName"};
+        Random random = new Random(0);
+        List<List<Requirement>> batch = new ArrayList<>();
+        for (int i = 0; i < nrRequests; i++) {
+            List<Requirement> requirements = new ArrayList<>();
+            for (String input : inputs) {
+                if (random.nextInt(3) > 0) {
+                    requirements.add(Requirement.eq(input, random.nextInt(3)));
+                }
+            }
+            Collections.shuffle(requirements, random);
+            batch.add(requirements);
+        }
+
+        long start = System.currentTimeMillis();
+        ExplanationService service = new ExplanationService(UseCase.FINANCIAL_SERVICE, 1000);
+        List<Explanation> explanations = service.explainAll(batch);
+        long elapsed = System.currentTimeMillis() - start;
+        long conflicts = explanations.stream().filter(explanation -> !explanation.isConsistent()).count();
+        System.out.println(nrRequests + " requirement sets, " + conflicts + " conflicting, " + service.getCacheSize() +
+                " distinct, " + service.getNrChecks() + " solver runs in " + elapsed + " ms");
+        explanations.stream().filter(explanation -> !explanation.isConsistent()).limit(3).forEach(System.out::println);
+    }
+
+    private interface Check<T> {
+
+        boolean consistent(List<T> candidates);
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.github.schmittjoaopedro.explain;
+
+/**
+ * A business rule of a model as written in its source, e.g. "low-risk: a low willingness to risk requires a bank
+ * book", whatever the number of constraints Choco decomposes it into. See {@link Rules}.
+ */
+public class Rule {
+
+    private final String id;
+
+    private final String description;
+
+    public Rule(String id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + description;
+    }
+}
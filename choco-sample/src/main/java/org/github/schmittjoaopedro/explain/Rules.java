@@ -0,0 +1,108 @@
+package org.github.schmittjoaopedro.explain;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records, while a model is built, which constraints each source rule posts, so conflicts can be reported as the
+ * rules the modeller wrote rather than as the constraints Choco decomposed them into. The record is kept in a hook
+ * of the model and holds positions in the constraints of the model, so it is read with {@link #resolve(Model)}
+ * before any constraint is unposted.
+ */
+public final class Rules {
+
+    private static final String HOOK = "rules";
+
+    private Rules() {
+    }
+
+    // Runs the posting and records the constraints it posts as the rule
+    public static void post(Model model, String id, String description, Runnable posting) {
+        define(model, id, description, () -> {
+            posting.run();
+            return null;
+        });
+    }
+
+    // Same for a rule defining a variable (e.g. a reification), returned by the posting
+    public static <T> T define(Model model, String id, String description, Supplier<T> posting) {
+        Record record = record(model);
+        if (record.open) {
+            throw new IllegalStateException("Rule " + id + " is posted by another rule");
+        }
+        int from = model.getNbCstrs();
+        record.open = true;
+        try {
+            T value = posting.get();
+            record.rules.add(new Rule(id, description));
+            record.ranges.add(new int[]{from, model.getNbCstrs()});
+            return value;
+        } finally {
+            record.open = false;
+        }
+    }
+
+    /**
+     * Constraints of every rule of the model, in posting order. A constraint posted outside any rule is a rule of its
+     * own named after the constraint, and rules that posted nothing are left out.
+     */
+    public static Map<Rule, Constraint[]> resolve(Model model) {
+        return resolve(model, true);
+    }
+
+    // Same with the rules recorded by the model only, empty if it recorded none
+    public static Map<Rule, Constraint[]> recorded(Model model) {
+        return resolve(model, false);
+    }
+
+    private static Map<Rule, Constraint[]> resolve(Model model, boolean unrecorded) {
+        Record record = record(model);
+        Constraint[] constraints = model.getCstrs();
+        Map<Rule, Constraint[]> rules = new LinkedHashMap<>();
+        int next = 0;
+        for (int r = 0; r <= record.rules.size(); r++) {
+            int from = r < record.rules.size() ? record.ranges.get(r)[0] : constraints.length;
+            int to = r < record.rules.size() ? record.ranges.get(r)[1] : constraints.length;
+            if (to > constraints.length) {
+                throw new IllegalStateException("Constraints were unposted since the rules were recorded");
+            }
+            for (; unrecorded && next < from; next++) {
+                Constraint constraint = constraints[next];
+                rules.put(new Rule(constraint.getName() + "#" + next, constraint.toString()), new Constraint[]{constraint});
+            }
+            if (from < to) {
+                rules.put(record.rules.get(r), Arrays.copyOfRange(constraints, from, to));
+            }
+            next = to;
+        }
+        return rules;
+    }
+
+    private static Record record(Model model) {
+        Record record = (Record) model.getHook(HOOK);
+        if (record == null) {
+            record = new Record();
+            model.addHook(HOOK, record);
+        }
+        return record;
+    }
+
+    private static class Record {
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        // [first, last + 1) constraint of each rule
+        private final List<int[]> ranges = new ArrayList<>();
+
+        private boolean open;
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.github.schmittjoaopedro.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes one CSV line per search. The objective timeline is one column of {@code time_us:value} pairs separated by
+ * spaces.
+ */
+public class CsvMetricsSink implements MetricsSink, AutoCloseable {
+
+    private static final String HEADER = "label,build_us,vars,constraints,initial_propagation_us,nodes,backtracks,fails," +
+            "restarts,solutions,first_solution_us,search_us,state,objective_timeline\n";
+
+    private final Writer out;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    public CsvMetricsSink(Writer out) {
+        this.out = out;
+        write(HEADER);
+    }
+
+    @Override
+    public synchronized void accept(SolverMetrics metrics) {
+        line.setLength(0);
+        String label = metrics.getLabel();
+        if (label.indexOf(',') >= 0 || label.indexOf('"') >= 0) {
+            line.append('"').append(label.replace("\"", "\"\"")).append('"');
+        } else {
+            line.append(label);
+        }
+        line.append(',').append(micros(metrics.getBuildNanos()))
+                .append(',').append(metrics.getNbVars())
+                .append(',').append(metrics.getNbConstraints())
+                .append(',').append(micros(metrics.getInitialPropagationNanos()))
+                .append(',').append(metrics.getNodes())
+                .append(',').append(metrics.getBacktracks())
+                .append(',').append(metrics.getFails())
+                .append(',').append(metrics.getRestarts())
+                .append(',').append(metrics.getSolutions())
+                .append(',').append(micros(metrics.getFirstSolutionNanos()))
+                .append(',').append(micros(metrics.getSearchNanos()))
+                .append(',').append(metrics.getSearchState())
+                .append(',');
+        long[] times = metrics.getObjectiveTimes();
+        double[] values = metrics.getObjectiveValues();
+        for (int i = 0; i < times.length; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(times[i] / 1000).append(':').append(values[i]);
+        }
+        write(line.append('\n'));
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private static long micros(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1000;
+    }
+
+    private void write(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.github.schmittjoaopedro.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the most recent measures, the oldest are dropped once the capacity is reached
+public class InMemoryMetricsSink implements MetricsSink {
+
+    private final ArrayDeque<SolverMetrics> records;
+
+    private final int capacity;
+
+    public InMemoryMetricsSink(int capacity) {
+        this.capacity = capacity;
+        this.records = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    @Override
+    public synchronized void accept(SolverMetrics metrics) {
+        if (records.size() == capacity) {
+            records.pollFirst();
+        }
+        records.addLast(metrics);
+    }
+
+    public synchronized List<SolverMetrics> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+}
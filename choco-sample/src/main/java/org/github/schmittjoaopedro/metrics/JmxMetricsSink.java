@@ -0,0 +1,116 @@
+package org.github.schmittjoaopedro.metrics;
+
+import org.chocosolver.solver.search.SearchState;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Aggregates the measures and exposes them as an MXBean named
+ * {@code org.github.schmittjoaopedro:type=SolverMetrics,name=<name>} on the platform MBean server.
+ */
+public class JmxMetricsSink implements MetricsSink, SolverMetricsMXBean, AutoCloseable {
+
+    private final ObjectName objectName;
+
+    private long searches;
+
+    private long nodes;
+
+    private long fails;
+
+    private long solutions;
+
+    private long timeOuts;
+
+    private long totalSearchNanos;
+
+    private long maxSearchNanos;
+
+    private String slowestSearch = "";
+
+    private String lastSearch = "";
+
+    public JmxMetricsSink(String name) throws JMException {
+        this.objectName = new ObjectName("org.github.schmittjoaopedro:type=SolverMetrics,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+    }
+
+    @Override
+    public synchronized void accept(SolverMetrics metrics) {
+        searches++;
+        nodes += metrics.getNodes();
+        fails += metrics.getFails();
+        solutions += metrics.getSolutions();
+        if (metrics.getSearchState() == SearchState.STOPPED) {
+            timeOuts++;
+        }
+        totalSearchNanos += metrics.getSearchNanos();
+        if (metrics.getSearchNanos() > maxSearchNanos) {
+            maxSearchNanos = metrics.getSearchNanos();
+            slowestSearch = metrics.getLabel();
+        }
+        lastSearch = metrics.getLabel();
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public synchronized long getFails() {
+        return fails;
+    }
+
+    @Override
+    public synchronized long getSolutions() {
+        return solutions;
+    }
+
+    @Override
+    public synchronized long getTimeOuts() {
+        return timeOuts;
+    }
+
+    @Override
+    public synchronized double getMeanSearchMillis() {
+        return searches == 0 ? 0 : totalSearchNanos / 1e6 / searches;
+    }
+
+    @Override
+    public synchronized double getMaxSearchMillis() {
+        return maxSearchNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String getSlowestSearch() {
+        return slowestSearch;
+    }
+
+    @Override
+    public synchronized String getLastSearch() {
+        return lastSearch;
+    }
+
+    @Override
+    public synchronized void reset() {
+        searches = nodes = fails = solutions = timeOuts = totalSearchNanos = maxSearchNanos = 0;
+        slowestSearch = lastSearch = "";
+    }
+
+    // Unregisters the MBean
+    @Override
+    public void close() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+}
@@ -0,0 +1,10 @@
+package org.github.schmittjoaopedro.metrics;
+
+/**
+ * Where {@link SolverProbe} publishes the measures of each search. Sinks may be called by several threads.
+ */
+public interface MetricsSink {
+
+    void accept(SolverMetrics metrics);
+
+}
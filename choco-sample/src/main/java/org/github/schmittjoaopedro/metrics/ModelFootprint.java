@@ -0,0 +1,438 @@
+package org.github.schmittjoaopedro.metrics;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Settings;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.propagation.PropagationEngine;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.view.IView;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.VariableRegistry;
+import org.github.schmittjoaopedro.explain.Rule;
+import org.github.schmittjoaopedro.explain.Rules;
+import org.github.schmittjoaopedro.usecase3.CapacityEncoding;
+import org.github.schmittjoaopedro.usecase3.SeatEncoding;
+import org.github.schmittjoaopedro.usecase3.WagonModelOptions;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where the variables, constraints and heap of a built model come from. An expression like
+ * {@code nr_seats.gt(j).and(seat_type[i].ne(SPECIAL)).imp(...)} posts several reified constraints linked by the
+ * BoolVars Choco generates for it. When the model recorded its rules with {@link Rules}, each rule is one instance
+ * of a source expression, and the rules whose ids only differ by their indexes ({@code seat[*]}) are one family, i.e.
+ * one rule written in a loop. Constraints posted outside any rule fall back to a guess: the constraints connected
+ * through generated variables are one instance, and instances touching the same declared variables (array indexes
+ * dropped, {@code seat.type[*]}) through the same generated operators are one family.
+ * <p>
+ * Every family reports its instances, constraints, generated variables, propagator types, estimated heap and, when
+ * the model was solved with a {@link PropagationCounter}, its propagator calls.
+ */
+public class ModelFootprint {
+
+    private static final Pattern INDEX = Pattern.compile("\\[\\d+]");
+
+    // Indexes of a rule id, [3] or [1,2]
+    private static final Pattern RULE_INDEX = Pattern.compile("\\[[\\d,]+]");
+
+    // Operator of a generated variable, GT for GT_exp_12, REIF for REIF_3
+    private static final Pattern OPERATOR = Pattern.compile("(.+?)(_exp)?_\\d+");
+
+    private final String name;
+
+    private final int nbVars;
+
+    private final int nbGeneratedVars;
+
+    private final int nbConstraints;
+
+    private final long declaredBytes;
+
+    private final List<Group> families;
+
+    private final List<Group> propagatorTypes;
+
+    private ModelFootprint(String name, int nbVars, int nbGeneratedVars, int nbConstraints, long declaredBytes,
+                           List<Group> families, List<Group> propagatorTypes) {
+        this.name = name;
+        this.nbVars = nbVars;
+        this.nbGeneratedVars = nbGeneratedVars;
+        this.nbConstraints = nbConstraints;
+        this.declaredBytes = declaredBytes;
+        this.families = families;
+        this.propagatorTypes = propagatorTypes;
+    }
+
+    public static ModelFootprint analyze(Model model) {
+        return analyze(model, null);
+    }
+
+    // Propagator calls come from the counter, null to leave them out
+    public static ModelFootprint analyze(Model model, PropagationCounter counter) {
+        Variable[] vars = model.getVars();
+        Constraint[] constraints = model.getCstrs();
+        Map<Constraint, Rule> ruleOf = new IdentityHashMap<>();
+        for (Map.Entry<Rule, Constraint[]> rule : Rules.recorded(model).entrySet()) {
+            for (Constraint constraint : rule.getValue()) {
+                ruleOf.put(constraint, rule.getKey());
+            }
+        }
+        // Union-find over the constraints and the generated variables they share
+        Map<Variable, Integer> generated = new LinkedHashMap<>();
+        for (Variable var : vars) {
+            if (isGenerated(var)) {
+                generated.put(var, constraints.length + generated.size());
+            }
+        }
+        int[] parent = new int[constraints.length + generated.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        // The constraints of a rule are one instance, a generated variable belongs to the first constraint using it
+        // unless it links constraints posted outside the rules
+        Map<Rule, Integer> firstOfRule = new IdentityHashMap<>();
+        int[] firstUse = new int[generated.size()];
+        Arrays.fill(firstUse, -1);
+        for (int c = 0; c < constraints.length; c++) {
+            Rule rule = ruleOf.get(constraints[c]);
+            if (rule != null) {
+                Integer first = firstOfRule.putIfAbsent(rule, c);
+                union(parent, c, first != null ? first : c);
+            }
+            for (Propagator<?> propagator : constraints[c].getPropagators()) {
+                for (Variable var : propagator.getVars()) {
+                    Integer node = generated.get(root(var));
+                    if (node == null) {
+                        continue;
+                    }
+                    if (firstUse[node - constraints.length] < 0) {
+                        firstUse[node - constraints.length] = c;
+                    }
+                    if (rule == null) {
+                        union(parent, c, node);
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < firstUse.length; v++) {
+            int node = constraints.length + v;
+            if (firstUse[v] >= 0 && find(parent, node) == node) {
+                union(parent, firstUse[v], node);
+            }
+        }
+
+        // Instances by root node, constraints and generated variables in creation order
+        Map<Integer, Instance> instances = new LinkedHashMap<>();
+        for (int c = 0; c < constraints.length; c++) {
+            Instance instance = instances.computeIfAbsent(find(parent, c), k -> new Instance());
+            instance.constraints.add(constraints[c]);
+            instance.rule = ruleOf.get(constraints[c]);
+        }
+        for (Map.Entry<Variable, Integer> entry : generated.entrySet()) {
+            instances.computeIfAbsent(find(parent, entry.getValue()), k -> new Instance()).vars.add(entry.getKey());
+        }
+        Map<Variable, Instance> instanceOf = new IdentityHashMap<>();
+        for (Instance instance : instances.values()) {
+            instance.vars.sort(Comparator.comparingInt(Variable::getId));
+            for (Variable var : instance.vars) {
+                instanceOf.put(var, instance);
+            }
+        }
+
+        // Declared variables first, so the shared structures they hold are not charged to the expressions
+        ObjectSizeEstimator estimator = new ObjectSizeEstimator(ModelFootprint::isBoundary);
+        long declaredBytes = 0;
+        for (Variable var : vars) {
+            Instance instance = instanceOf.get(root(var));
+            if (instance == null) {
+                declaredBytes += estimator.sizeOf(var);
+            } else {
+                // Generated variable or a view on one
+                instance.bytes += estimator.sizeOf(var);
+            }
+        }
+        Map<String, Group> families = new TreeMap<>();
+        Map<String, Group> propagatorTypes = new TreeMap<>();
+        for (Instance instance : instances.values()) {
+            Group family = families.computeIfAbsent(label(instance), Group::new);
+            family.instances++;
+            family.constraints += instance.constraints.size();
+            family.generatedVars += instance.vars.size();
+            family.bytes += instance.bytes;
+            for (Constraint constraint : instance.constraints) {
+                family.bytes += estimator.sizeOf(constraint);
+                for (Propagator<?> propagator : constraint.getPropagators()) {
+                    String type = propagator.getClass().getSimpleName();
+                    long bytes = estimator.sizeOf(propagator);
+                    long calls = counter != null ? counter.getCalls(propagator) : 0;
+                    family.add(type, bytes, calls);
+                    Group group = propagatorTypes.computeIfAbsent(type, Group::new);
+                    group.instances++;
+                    group.add(type, bytes, calls);
+                }
+            }
+        }
+        return new ModelFootprint(model.getName(), vars.length, generated.size(), constraints.length, declaredBytes,
+                sorted(families), sorted(propagatorTypes));
+    }
+
+    // Variables Choco created for expressions and reifications, constants and views excluded
+    private static boolean isGenerated(Variable var) {
+        return (var.getTypeAndKind() & Variable.TYPE) == Variable.VAR && VariableRegistry.isGenerated(var.getName());
+    }
+
+    private static Variable root(Variable var) {
+        while (var instanceof IView) {
+            var = ((IView) var).getVariable();
+        }
+        return var;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    // Shared by the whole model, or sized on their own
+    private static boolean isBoundary(Object object) {
+        return object instanceof Variable || object instanceof Propagator || object instanceof Constraint ||
+                object instanceof Model || object instanceof Solver || object instanceof IEnvironment ||
+                object instanceof PropagationEngine || object instanceof Settings || object instanceof Thread;
+    }
+
+    // "declared stems: generated operators", e.g. "seat.type[*], wagon.nr_seats: GT NE AND EQ", or for a rule
+    // "rule id: declared stems", e.g. "seat[*]: seat.color[*], seat.shared_color, ..."
+    private static String label(Instance instance) {
+        TreeSet<String> stems = new TreeSet<>();
+        for (Constraint constraint : instance.constraints) {
+            for (Propagator<?> propagator : constraint.getPropagators()) {
+                for (Variable var : propagator.getVars()) {
+                    Variable root = root(var);
+                    if ((root.getTypeAndKind() & Variable.TYPE) != Variable.CSTE && !isGenerated(root)) {
+                        stems.add(INDEX.matcher(root.getName()).replaceAll("[*]"));
+                    }
+                }
+            }
+        }
+        if (instance.rule != null) {
+            return RULE_INDEX.matcher(instance.rule.getId()).replaceAll("[*]") + ": " + String.join(", ", stems);
+        }
+        StringJoiner operators = new StringJoiner(" ");
+        if (instance.vars.isEmpty()) {
+            for (Constraint constraint : instance.constraints) {
+                operators.add(constraint.getName());
+            }
+        }
+        for (Variable var : instance.vars) {
+            Matcher matcher = OPERATOR.matcher(var.getName());
+            operators.add(matcher.matches() ? matcher.group(1) : var.getName());
+        }
+        return (stems.isEmpty() ? "-" : String.join(", ", stems)) + ": " + operators;
+    }
+
+    private static List<Group> sorted(Map<String, Group> groups) {
+        List<Group> list = new ArrayList<>(groups.values());
+        list.sort(Comparator.comparingLong(Group::getBytes).reversed().thenComparing(Group::getLabel));
+        return list;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNbVars() {
+        return nbVars;
+    }
+
+    public int getNbGeneratedVars() {
+        return nbGeneratedVars;
+    }
+
+    public int getNbConstraints() {
+        return nbConstraints;
+    }
+
+    // Declared variables, constants and views on them
+    public long getDeclaredBytes() {
+        return declaredBytes;
+    }
+
+    public long getBytes() {
+        long bytes = declaredBytes;
+        for (Group family : families) {
+            bytes += family.bytes;
+        }
+        return bytes;
+    }
+
+    // Largest estimated heap first
+    public List<Group> getFamilies() {
+        return families;
+    }
+
+    public List<Group> getPropagatorTypes() {
+        return propagatorTypes;
+    }
+
+    public void print(PrintStream out, int top) {
+        out.printf("%s: %d variables (%d generated), %d constraints, %.1f KB estimated, %.1f KB of declared variables%n",
+                name, nbVars, nbGeneratedVars, nbConstraints, getBytes() / 1024.0, declaredBytes / 1024.0);
+        out.printf("  %9s %11s %9s %10s %12s  %s%n", "instances", "constraints", "gen. vars", "KB", "calls", "expression family");
+        for (Group family : families.subList(0, Math.min(top, families.size()))) {
+            out.printf("  %9d %11d %9d %10.1f %12d  %s%n", family.instances, family.constraints, family.generatedVars,
+                    family.bytes / 1024.0, family.calls, family.label);
+            out.printf("  %56s%s%n", "", family.getPropagators());
+        }
+        if (families.size() > top) {
+            out.printf("  ... %d more families%n", families.size() - top);
+        }
+        out.printf("  %9s %10s %12s  %s%n", "count", "KB", "calls", "propagator");
+        for (Group type : propagatorTypes) {
+            out.printf("  %9d %10.1f %12d  %s%n", type.instances, type.bytes / 1024.0, type.calls, type.label);
+        }
+    }
+
+    // Constraints of a rule, or linked by generated variables
+    private static class Instance {
+
+        private Rule rule;
+
+        private final List<Constraint> constraints = new ArrayList<>();
+
+        private final List<Variable> vars = new ArrayList<>();
+
+        private long bytes;
+
+    }
+
+    // Expression family or propagator type
+    public static class Group {
+
+        private final String label;
+
+        private int instances;
+
+        private int constraints;
+
+        private int generatedVars;
+
+        private long bytes;
+
+        private long calls;
+
+        private final Map<String, Integer> propagators = new TreeMap<>();
+
+        Group(String label) {
+            this.label = label;
+        }
+
+        private void add(String type, long bytes, long calls) {
+            this.bytes += bytes;
+            this.calls += calls;
+            propagators.merge(type, 1, Integer::sum);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getInstances() {
+            return instances;
+        }
+
+        public int getConstraints() {
+            return constraints;
+        }
+
+        public int getGeneratedVars() {
+            return generatedVars;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        // Propagator calls, 0 when not counted
+        public long getCalls() {
+            return calls;
+        }
+
+        // Propagators by type
+        public Map<String, Integer> getPropagators() {
+            return propagators;
+        }
+
+    }
+
+    /**
+     * Prints the footprint of the use cases after solving them, e.g. {@code WAGON FINANCIAL_SERVICE --top 5}. Without
+     * use case, all of them plus the pairwise seat encoding of the wagon with 30 seats, whose rules are the ones the
+     * compact encoding rewrote. {@code --no-solve} leaves the propagator calls out.
+     */
+    public static void main(String[] args) {
+        Map<String, Supplier<Model>> models = new LinkedHashMap<>();
+        int top = 10;
+        boolean solve = true;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--top")) {
+                top = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--no-solve")) {
+                solve = false;
+            } else {
+                UseCase useCase = UseCase.valueOf(args[i]);
+                models.put(useCase.name(), useCase.getFactory());
+            }
+        }
+        if (models.isEmpty()) {
+            for (UseCase useCase : UseCase.values()) {
+                models.put(useCase.name(), useCase.getFactory());
+            }
+            models.put("WAGON (pairwise, 30 seats)", () -> WagonOptimizationProblem.createModel(new WagonModelOptions()
+                    .setMaxSeats(30)
+                    .setSeatEncoding(SeatEncoding.PAIRWISE)
+                    .setCapacityEncoding(CapacityEncoding.INTEGER)));
+        }
+        for (Map.Entry<String, Supplier<Model>> entry : models.entrySet()) {
+            // Built once before measuring, class loading is not part of the model
+            entry.getValue().get();
+            long heap = Utils.usedHeap();
+            Model model = entry.getValue().get();
+            long measured = Utils.usedHeap() - heap;
+            PropagationCounter counter = PropagationCounter.attach(model);
+            if (solve) {
+                // All solutions, or every improving solution up to the optimum
+                while (model.getSolver().solve()) ;
+            }
+            ModelFootprint footprint = analyze(model, counter);
+            System.out.println("== " + entry.getKey());
+            footprint.print(System.out, top);
+            System.out.printf("  retained heap measured after the build: %.1f KB%n%n", measured / 1024.0);
+        }
+    }
+
+}
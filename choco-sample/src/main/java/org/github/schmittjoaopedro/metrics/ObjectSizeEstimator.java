@@ -0,0 +1,155 @@
+package org.github.schmittjoaopedro.metrics;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Deep size of object graphs, estimated from the fields like JOL does for a 64-bit JVM with compressed references:
+ * 12 byte object headers, 16 byte array headers, 4 byte references, 8 byte alignment. Field packing gaps are ignored.
+ * <p>
+ * An object is counted once, by the first graph that reaches it. Objects rejected by the boundary (shared by the
+ * whole model, or counted on their own) are not entered. The fields of JDK classes cannot be read on Java 9+, they
+ * count their shallow size only, except strings.
+ */
+class ObjectSizeEstimator {
+
+    private static final int HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    private final Map<Class<?>, Layout> layouts = new HashMap<>();
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Predicate<Object> boundary;
+
+    ObjectSizeEstimator(Predicate<Object> boundary) {
+        this.boundary = boundary;
+    }
+
+    // Bytes of the objects reachable from the root and not counted yet, the root is entered even if on the boundary
+    long sizeOf(Object root) {
+        if (root == null || !visited.add(root)) {
+            return 0;
+        }
+        long size = 0;
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object object = stack.pop();
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                int length = Array.getLength(object);
+                Class<?> component = type.getComponentType();
+                if (component.isPrimitive()) {
+                    size += align(ARRAY_HEADER + (long) length * primitiveSize(component));
+                    continue;
+                }
+                size += align(ARRAY_HEADER + (long) length * REFERENCE);
+                for (Object element : (Object[]) object) {
+                    visit(element, stack);
+                }
+            } else if (object instanceof String) {
+                // Compact strings: the object and its latin-1 byte array
+                size += align(HEADER + 12) + align(ARRAY_HEADER + ((String) object).length());
+            } else {
+                Layout layout = layout(type);
+                size += layout.size;
+                for (Field field : layout.references) {
+                    try {
+                        visit(field.get(object), stack);
+                    } catch (IllegalAccessException e) {
+                        // Accessible since the layout was built
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private void visit(Object object, Deque<Object> stack) {
+        if (object != null && !(object instanceof Class) && !(object instanceof Enum) && !boundary.test(object) && visited.add(object)) {
+            stack.push(object);
+        }
+    }
+
+    private Layout layout(Class<?> type) {
+        Layout layout = layouts.get(type);
+        if (layout == null) {
+            long fields = 0;
+            List<Field> references = new ArrayList<>();
+            boolean opaque = false;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        fields += primitiveSize(field.getType());
+                        continue;
+                    }
+                    fields += REFERENCE;
+                    if (!opaque) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // Module encapsulation of the JDK, the contents are not followed
+                            opaque = true;
+                        }
+                    }
+                }
+            }
+            layout = new Layout(align(HEADER + fields), opaque ? Collections.emptyList() : references);
+            layouts.put(type, layout);
+        }
+        return layout;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static class Layout {
+
+        private final long size;
+
+        private final List<Field> references;
+
+        Layout(long size, List<Field> references) {
+            this.size = size;
+            this.references = references;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.github.schmittjoaopedro.metrics;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.propagation.PropagationEngine;
+
+import java.util.Arrays;
+
+/**
+ * Propagation engine counting the propagator calls: every time a propagator enters the propagation queue (it is
+ * then run once, unless the queue is flushed by a failure) and every full propagation (initial propagation,
+ * propagators added during the search).
+ * <p>
+ * Attach it before the first solve of the model, the counts accumulate across searches.
+ */
+public class PropagationCounter extends PropagationEngine {
+
+    // By propagator id
+    private long[] calls = new long[64];
+
+    public PropagationCounter(Model model) {
+        super(model);
+    }
+
+    public static PropagationCounter attach(Model model) {
+        PropagationCounter counter = new PropagationCounter(model);
+        model.getSolver().setEngine(counter);
+        return counter;
+    }
+
+    // Raw as in PropagationEngine, a Propagator<?> parameter would not override it
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void schedule(Propagator prop, int pindice, int mask) {
+        if (!prop.isScheduled()) {
+            count(prop);
+        }
+        super.schedule(prop, pindice, mask);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void execute(Propagator propagator) throws ContradictionException {
+        if (propagator.isStateLess() || propagator.isActive()) {
+            count(propagator);
+        }
+        super.execute(propagator);
+    }
+
+    public long getCalls(Propagator<?> propagator) {
+        int id = propagator.getId();
+        return id < calls.length ? calls[id] : 0;
+    }
+
+    private void count(Propagator<?> propagator) {
+        int id = propagator.getId();
+        if (id >= calls.length) {
+            calls = Arrays.copyOf(calls, Math.max(id + 1, calls.length * 2));
+        }
+        calls[id]++;
+    }
+
+}
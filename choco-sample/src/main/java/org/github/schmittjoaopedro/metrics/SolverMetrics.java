@@ -0,0 +1,141 @@
+package org.github.schmittjoaopedro.metrics;
+
+import org.chocosolver.solver.search.SearchState;
+
+/**
+ * Measures of one search (one query on a template, or one solve loop): the size of the model and how long it took
+ * to build, the initial propagation, the search counters, and when each improving solution was found.
+ * Times are in nanoseconds, -1 when not measured.
+ */
+public class SolverMetrics {
+
+    private final String label;
+
+    private final long buildNanos;
+
+    private final int nbVars;
+
+    private final int nbConstraints;
+
+    private final long initialPropagationNanos;
+
+    private final long nodes;
+
+    private final long backtracks;
+
+    private final long fails;
+
+    private final long restarts;
+
+    private final long solutions;
+
+    private final long firstSolutionNanos;
+
+    private final long searchNanos;
+
+    private final SearchState searchState;
+
+    // Time since the start of the search and objective value of each solution, empty without objective
+    private final long[] objectiveTimes;
+
+    private final double[] objectiveValues;
+
+    public SolverMetrics(String label, long buildNanos, int nbVars, int nbConstraints, long initialPropagationNanos,
+                         long nodes, long backtracks, long fails, long restarts, long solutions, long firstSolutionNanos,
+                         long searchNanos, SearchState searchState, long[] objectiveTimes, double[] objectiveValues) {
+        this.label = label;
+        this.buildNanos = buildNanos;
+        this.nbVars = nbVars;
+        this.nbConstraints = nbConstraints;
+        this.initialPropagationNanos = initialPropagationNanos;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.fails = fails;
+        this.restarts = restarts;
+        this.solutions = solutions;
+        this.firstSolutionNanos = firstSolutionNanos;
+        this.searchNanos = searchNanos;
+        this.searchState = searchState;
+        this.objectiveTimes = objectiveTimes;
+        this.objectiveValues = objectiveValues;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public int getNbVars() {
+        return nbVars;
+    }
+
+    public int getNbConstraints() {
+        return nbConstraints;
+    }
+
+    public long getInitialPropagationNanos() {
+        return initialPropagationNanos;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getFails() {
+        return fails;
+    }
+
+    public long getRestarts() {
+        return restarts;
+    }
+
+    public long getSolutions() {
+        return solutions;
+    }
+
+    public long getFirstSolutionNanos() {
+        return firstSolutionNanos;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public SearchState getSearchState() {
+        return searchState;
+    }
+
+    public long[] getObjectiveTimes() {
+        return objectiveTimes;
+    }
+
+    public double[] getObjectiveValues() {
+        return objectiveValues;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder desc = new StringBuilder(label)
+                .append(": ").append(nbVars).append(" vars, ").append(nbConstraints).append(" constraints")
+                .append(", build ").append(buildNanos / 1000).append(" us")
+                .append(", initial propagation ").append(initialPropagationNanos / 1000).append(" us")
+                .append(", ").append(nodes).append(" nodes, ").append(backtracks).append(" backtracks, ")
+                .append(fails).append(" fails, ").append(restarts).append(" restarts, ")
+                .append(solutions).append(" solutions");
+        if (firstSolutionNanos >= 0) {
+            desc.append(", first after ").append(firstSolutionNanos / 1000).append(" us");
+        }
+        desc.append(", search ").append(searchNanos / 1000).append(" us, ").append(searchState);
+        if (objectiveValues.length > 0) {
+            desc.append(", objective ").append(objectiveValues[objectiveValues.length - 1]);
+        }
+        return desc.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package org.github.schmittjoaopedro.metrics;
+
+// Aggregated measures exposed through JMX by JmxMetricsSink
+public interface SolverMetricsMXBean {
+
+    long getSearches();
+
+    long getNodes();
+
+    long getFails();
+
+    long getSolutions();
+
+    long getTimeOuts();
+
+    double getMeanSearchMillis();
+
+    double getMaxSearchMillis();
+
+    // Label of the search that took the longest, the query to look at first
+    String getSlowestSearch();
+
+    String getLastSearch();
+
+    void reset();
+
+}
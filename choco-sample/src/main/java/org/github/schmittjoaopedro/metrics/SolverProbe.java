@@ -0,0 +1,138 @@
+package org.github.schmittjoaopedro.metrics;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorInitialize;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.measure.IMeasures;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * Search monitor that measures the searches of a model. Node, backtrack, fail and restart counts come from the
+ * counters the solver keeps anyway; the probe itself only reads the clock when the solver initializes (initial
+ * propagation) and on each solution (time to first solution, objective timeline), so it can stay plugged in
+ * production.
+ * <p>
+ * Measures are per search: a template query resets the solver, which resets the counters and runs the initial
+ * propagation again. Take the {@link #snapshot(String)} before the solver is reset.
+ */
+public class SolverProbe implements IMonitorInitialize, IMonitorSolution {
+
+    private final Model model;
+
+    private final Solver solver;
+
+    private final long buildNanos;
+
+    private long start = -1;
+
+    private long initialPropagationNanos = -1;
+
+    private long firstSolutionNanos = -1;
+
+    private long[] objectiveTimes = new long[8];
+
+    private double[] objectiveValues = new double[8];
+
+    private int nbImprovements = 0;
+
+    public SolverProbe(Model model, long buildNanos) {
+        this.model = model;
+        this.solver = model.getSolver();
+        this.buildNanos = buildNanos;
+        solver.plugMonitor(this);
+    }
+
+    // Builds the model with the factory, measuring how long it takes
+    public static SolverProbe build(Supplier<Model> factory) {
+        long start = System.nanoTime();
+        Model model = factory.get();
+        return new SolverProbe(model, System.nanoTime() - start);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    @Override
+    public void beforeInitialize() {
+        start = System.nanoTime();
+        initialPropagationNanos = -1;
+        firstSolutionNanos = -1;
+        nbImprovements = 0;
+    }
+
+    @Override
+    public void afterInitialize(boolean correct) {
+        initialPropagationNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public void onSolution() {
+        long elapsed = System.nanoTime() - start;
+        if (firstSolutionNanos < 0) {
+            firstSolutionNanos = elapsed;
+        }
+        if (solver.getObjectiveManager().isOptimization()) {
+            if (nbImprovements == objectiveTimes.length) {
+                objectiveTimes = Arrays.copyOf(objectiveTimes, nbImprovements * 2);
+                objectiveValues = Arrays.copyOf(objectiveValues, nbImprovements * 2);
+            }
+            objectiveTimes[nbImprovements] = elapsed;
+            objectiveValues[nbImprovements] = solver.getObjectiveManager().getBestSolutionValue().doubleValue();
+            nbImprovements++;
+        }
+    }
+
+    // Measures of the current search
+    public SolverMetrics snapshot(String label) {
+        IMeasures measures = solver.getMeasures();
+        return new SolverMetrics(label, buildNanos, model.getNbVars(), model.getNbCstrs(), initialPropagationNanos,
+                measures.getNodeCount(), measures.getBackTrackCount(), measures.getFailCount(),
+                measures.getRestartCount(), measures.getSolutionCount(), firstSolutionNanos,
+                measures.getTimeCountInNanoSeconds(), measures.getSearchState(),
+                Arrays.copyOf(objectiveTimes, nbImprovements), Arrays.copyOf(objectiveValues, nbImprovements));
+    }
+
+    public void publish(String label, MetricsSink sink) {
+        sink.accept(snapshot(label));
+    }
+
+    public static void main(String[] args) throws Exception {
+        CsvMetricsSink csv = new CsvMetricsSink(new PrintWriter(new OutputStreamWriter(System.out)));
+        InMemoryMetricsSink memory = new InMemoryMetricsSink(100);
+        try (JmxMetricsSink jmx = new JmxMetricsSink("demo")) {
+            MetricsSink sinks = metrics -> {
+                csv.accept(metrics);
+                memory.accept(metrics);
+                jmx.accept(metrics);
+            };
+            for (UseCase useCase : UseCase.values()) {
+                // Same probe for every query of the template
+                SolverProbe[] probe = new SolverProbe[1];
+                ModelTemplate template = new ModelTemplate(() -> (probe[0] = build(useCase.getFactory())).getModel());
+                template.query(Collections.emptyList(), solver -> {
+                    // All solutions, or every improving solution up to the optimum
+                    while (solver.solve()) ;
+                    probe[0].publish(useCase + " all", sinks);
+                    return null;
+                });
+                template.query(Collections.emptyList(), solver -> {
+                    solver.solve();
+                    probe[0].publish(useCase + " first", sinks);
+                    return null;
+                });
+            }
+            csv.flush();
+            System.out.println("Slowest search: " + jmx.getSlowestSearch() + " (" + jmx.getMaxSearchMillis() + " ms), " +
+                    jmx.getSearches() + " searches, " + memory.getRecords().size() + " kept in memory");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.github.schmittjoaopedro.pareto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A solution of the Pareto front: its objective values, in the order and direction of the objectives of the search,
+ * and the values of the declared integer variables of the model.
+ */
+public class ParetoPoint {
+
+    private final List<ParetoSearch.Objective> objectives;
+
+    private final int[] objectiveValues;
+
+    private final Map<String, Integer> values;
+
+    private final int slice;
+
+    private final long elapsedNanos;
+
+    ParetoPoint(List<ParetoSearch.Objective> objectives, int[] objectiveValues, Map<String, Integer> values, int slice, long elapsedNanos) {
+        this.objectives = objectives;
+        this.objectiveValues = objectiveValues;
+        this.values = values;
+        this.slice = slice;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getObjectiveValue(int objective) {
+        return objectiveValues[objective];
+    }
+
+    public int[] getObjectiveValues() {
+        return objectiveValues.clone();
+    }
+
+    public Map<String, Integer> getValues() {
+        return values;
+    }
+
+    // Slice of the objective space it was found in
+    public int getSlice() {
+        return slice;
+    }
+
+    // Since the start of the search
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // At least as good on every objective, better on one (equal points do not dominate each other)
+    public boolean dominates(ParetoPoint other) {
+        return dominates(other.objectiveValues);
+    }
+
+    boolean dominates(int[] other) {
+        boolean better = false;
+        for (int i = 0; i < objectiveValues.length; i++) {
+            int delta = objectives.get(i).isMaximize() ? objectiveValues[i] - other[i] : other[i] - objectiveValues[i];
+            if (delta < 0) {
+                return false;
+            }
+            better |= delta > 0;
+        }
+        return better;
+    }
+
+    boolean sameObjectives(ParetoPoint other) {
+        return Arrays.equals(objectiveValues, other.objectiveValues);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < objectiveValues.length; i++) {
+            text.append(i > 0 ? ", " : "").append(objectives.get(i).getName()).append(" = ").append(objectiveValues[i]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,407 @@
+package org.github.schmittjoaopedro.pareto;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.nary.sat.PropSat;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.objective.ParetoOptimizer;
+import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.usecase3.CapacityEncoding;
+import org.github.schmittjoaopedro.usecase3.SeatEncoding;
+import org.github.schmittjoaopedro.usecase3.WagonModelOptions;
+import org.github.schmittjoaopedro.usecase3.WagonOptimizationProblem;
+import org.github.schmittjoaopedro.usecase3.WagonSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pareto front of a model over several integer objectives, each maximized or minimized. Every search runs with
+ * Choco's {@link ParetoOptimizer}: each solution adds a clause that the next ones must be better on at least one
+ * objective, so dominated parts of the tree are pruned. The minimized objectives are negated views, the optimizer
+ * only maximizes. Real objectives are not supported, use an integer-scaled encoding of the model (e.g.
+ * {@link CapacityEncoding#INTEGER} for the wagon).
+ * <p>
+ * The range of the first objective can be split into slices, each one searched on its own model by a pool of
+ * workers, best slice first. The points found by a worker are shared: a worker adds the clauses of the others' points
+ * when it starts a slice and at each of its own solutions. Each point is merged into the common front as soon as it is
+ * found and passed to the listener, which may later see a point that dominates it.
+ */
+public class ParetoSearch {
+
+    public static class Objective {
+
+        private final String name;
+
+        private final boolean maximize;
+
+        private Objective(String name, boolean maximize) {
+            this.name = name;
+            this.maximize = maximize;
+        }
+
+        public static Objective maximize(String name) {
+            return new Objective(name, true);
+        }
+
+        public static Objective minimize(String name) {
+            return new Objective(name, false);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isMaximize() {
+            return maximize;
+        }
+
+        @Override
+        public String toString() {
+            return (maximize ? "max " : "min ") + name;
+        }
+    }
+
+    private final Supplier<Model> factory;
+
+    private final List<Objective> objectives;
+
+    private List<Requirement> requirements = Collections.emptyList();
+
+    private Consumer<Model> search = model -> {
+    };
+
+    private int workers = 1;
+
+    private int slices;
+
+    private long timeLimitMs;
+
+    private Consumer<ParetoPoint> listener;
+
+    // Guarded by front
+    private final List<ParetoPoint> front = new ArrayList<>();
+
+    // Objectives of every point that entered the front, in order, even if dominated since, and the slice last
+    private final List<int[]> found = new ArrayList<>();
+
+    private long start;
+
+    private boolean complete;
+
+    public ParetoSearch(Supplier<Model> factory, Objective... objectives) {
+        if (objectives.length == 0) {
+            throw new IllegalArgumentException("No objective");
+        }
+        this.factory = factory;
+        this.objectives = Arrays.asList(objectives);
+    }
+
+    public ParetoSearch setRequirements(List<Requirement> requirements) {
+        this.requirements = requirements;
+        return this;
+    }
+
+    // Sets the search strategy of a new model, the objectives must be instantiated in every solution
+    public ParetoSearch setSearch(Consumer<Model> search) {
+        this.search = search;
+        return this;
+    }
+
+    public ParetoSearch setWorkers(int workers) {
+        this.workers = workers;
+        return this;
+    }
+
+    // Slices of the range of the first objective, as many as workers by default
+    public ParetoSearch setSlices(int slices) {
+        this.slices = slices;
+        return this;
+    }
+
+    // For the whole search, 0 for none
+    public ParetoSearch setTimeLimitMs(long timeLimitMs) {
+        this.timeLimitMs = timeLimitMs;
+        return this;
+    }
+
+    // Called for every point entering the front, by the workers, one at a time
+    public ParetoSearch setListener(Consumer<ParetoPoint> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    // Front sorted by the objectives, empty when the requirements are infeasible
+    public List<ParetoPoint> run() throws InterruptedException, ExecutionException {
+        start = System.nanoTime();
+        synchronized (front) {
+            front.clear();
+            found.clear();
+        }
+        int[] range = firstObjectiveRange();
+        if (range == null) {
+            complete = true;
+            return getFront();
+        }
+        int nrSlices = (int) Math.min(slices > 0 ? slices : workers, (long) range[1] - range[0] + 1);
+        long width = ((long) range[1] - range[0] + nrSlices) / nrSlices;
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, nrSlices), runnable -> {
+            Thread thread = new Thread(runnable, "pareto-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < nrSlices; i++) {
+                int lb = (int) (range[0] + i * width);
+                int ub = (int) Math.min(range[1], lb + width - 1);
+                int slice = i;
+                tasks.add(() -> solveSlice(slice, lb, ub));
+            }
+            if (objectives.get(0).isMaximize()) {
+                // Points with a high first objective dominate the most
+                Collections.reverse(tasks);
+            }
+            complete = true;
+            for (Future<Boolean> task : executor.invokeAll(tasks)) {
+                complete &= task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return getFront();
+    }
+
+    // Whether the last run explored every slice to the end, otherwise the front may miss points
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<ParetoPoint> getFront() {
+        List<ParetoPoint> points;
+        synchronized (front) {
+            points = new ArrayList<>(front);
+        }
+        Comparator<ParetoPoint> order = Comparator.comparingInt(point -> point.getObjectiveValue(0));
+        for (int i = 1; i < objectives.size(); i++) {
+            int objective = i;
+            order = order.thenComparingInt(point -> point.getObjectiveValue(objective));
+        }
+        points.sort(order);
+        return points;
+    }
+
+    // Bounds of the first objective after propagating the requirements, null when they fail
+    private int[] firstObjectiveRange() {
+        Model model = createModel();
+        IntVar first = objectiveVars(model)[0];
+        try {
+            model.getSolver().propagate();
+        } catch (ContradictionException e) {
+            return null;
+        }
+        return new int[]{first.getLB(), first.getUB()};
+    }
+
+    private Model createModel() {
+        Model model = factory.get();
+        Utils utils = new Utils(model);
+        for (Requirement requirement : requirements) {
+            requirement.toConstraint(utils).post();
+        }
+        model.clearObjective();
+        return model;
+    }
+
+    private IntVar[] objectiveVars(Model model) {
+        Utils utils = new Utils(model);
+        IntVar[] vars = new IntVar[objectives.size()];
+        for (int i = 0; i < vars.length; i++) {
+            String name = objectives.get(i).getName();
+            Variable var = utils.getRegistry().getVar(name);
+            if (var == null || (var.getTypeAndKind() & Variable.INT) == 0) {
+                throw new IllegalArgumentException(name + " is not an integer variable of the model");
+            }
+            vars[i] = (IntVar) var;
+        }
+        return vars;
+    }
+
+    // Whether the slice was searched to the end
+    private boolean solveSlice(int slice, int lb, int ub) {
+        long remaining = timeLimitMs <= 0 ? Long.MAX_VALUE : timeLimitMs - (System.nanoTime() - start) / 1000000;
+        if (remaining <= 0) {
+            return false;
+        }
+        Model model = createModel();
+        IntVar[] vars = objectiveVars(model);
+        model.arithm(vars[0], ">=", lb).post();
+        model.arithm(vars[0], "<=", ub).post();
+        search.accept(model);
+        IntVar[] maximized = new IntVar[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            maximized[i] = objectives.get(i).isMaximize() ? vars[i] : model.intMinusView(vars[i]);
+        }
+        Solver solver = model.getSolver();
+        if (remaining != Long.MAX_VALUE) {
+            solver.limitTime(remaining);
+        }
+        SliceMonitor monitor = new SliceMonitor(slice, model, vars, maximized);
+        // Before the optimizer, the points of the others are imported before its own clause
+        solver.plugMonitor(monitor);
+        solver.plugMonitor(new ParetoOptimizer(true, maximized));
+        monitor.importPoints(true);
+        while (solver.solve()) ;
+        return solver.getSearchState() == SearchState.TERMINATED;
+    }
+
+    // Merges a point into the front, false when a point of the front dominates it or has the same objectives
+    private boolean merge(ParetoPoint point) {
+        synchronized (front) {
+            for (ParetoPoint other : front) {
+                if (other.dominates(point) || other.sameObjectives(point)) {
+                    return false;
+                }
+            }
+            front.removeIf(point::dominates);
+            front.add(point);
+            int[] objectiveValues = Arrays.copyOf(point.getObjectiveValues(), objectives.size() + 1);
+            objectiveValues[objectives.size()] = point.getSlice();
+            found.add(objectiveValues);
+            if (listener != null) {
+                listener.accept(point);
+            }
+            return true;
+        }
+    }
+
+    private class SliceMonitor implements IMonitorSolution {
+
+        private final int slice;
+
+        private final Model model;
+
+        private final IntVar[] vars;
+
+        private final IntVar[] maximized;
+
+        private final Variable[] declared;
+
+        // Points of found already turned into clauses
+        private int imported;
+
+        SliceMonitor(int slice, Model model, IntVar[] vars, IntVar[] maximized) {
+            this.slice = slice;
+            this.model = model;
+            this.vars = vars;
+            this.maximized = maximized;
+            this.declared = new Utils(model).getRegistry().getDeclaredVars();
+        }
+
+        @Override
+        public void onSolution() {
+            int[] values = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                if (!vars[i].isInstantiated()) {
+                    throw new IllegalStateException(vars[i].getName() + " is not instantiated, the search must branch on every objective");
+                }
+                values[i] = vars[i].getValue();
+            }
+            Map<String, Integer> solution = new LinkedHashMap<>();
+            for (Variable var : declared) {
+                if ((var.getTypeAndKind() & Variable.INT) != 0 && var.isInstantiated()) {
+                    solution.put(var.getName(), ((IntVar) var).getValue());
+                }
+            }
+            merge(new ParetoPoint(objectives, values, solution, slice, System.nanoTime() - start));
+            importPoints(false);
+        }
+
+        // Clauses of the points found by the other workers since the last import
+        private void importPoints(boolean root) {
+            List<int[]> points;
+            synchronized (front) {
+                points = new ArrayList<>(found.subList(imported, found.size()));
+                imported = found.size();
+            }
+            PropSat sat = root ? null : model.getMinisat().getPropSat();
+            for (int[] point : points) {
+                if (point[maximized.length] == slice) {
+                    // The optimizer adds the clauses of this slice
+                    continue;
+                }
+                if (root) {
+                    Constraint[] better = new Constraint[maximized.length];
+                    for (int i = 0; i < maximized.length; i++) {
+                        better[i] = model.arithm(maximized[i], ">", maximizedValue(point, i));
+                    }
+                    model.or(better).post();
+                } else {
+                    int[] literals = new int[maximized.length];
+                    for (int i = 0; i < maximized.length; i++) {
+                        literals[i] = sat.makeLiteral(model.arithm(maximized[i], ">", maximizedValue(point, i)).reify(), true);
+                    }
+                    sat.addLearnt(literals);
+                }
+            }
+        }
+
+        private int maximizedValue(int[] point, int objective) {
+            return objectives.get(objective).isMaximize() ? point[objective] : -point[objective];
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        Supplier<Model> wagon = () -> WagonOptimizationProblem.createModel(new WagonModelOptions()
+                .setSeatEncoding(SeatEncoding.COMPACT)
+                .setCapacityEncoding(CapacityEncoding.INTEGER));
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Trade-off of 160 passengers, points as they are found:");
+        ParetoSearch search = new ParetoSearch(wagon,
+                Objective.maximize("wagon.used_space"), Objective.minimize("wagon.length_mm"),
+                Objective.maximize("wagon.nr_seats"), Objective.minimize("wagon.standing_room"))
+                .setRequirements(Collections.singletonList(Requirement.eq("wagon.nr_passengers", 160)))
+                .setSearch(WagonSearch::configure)
+                .setListener(point -> System.out.printf("  %6.0f ms  %s%n", point.getElapsedNanos() / 1e6, point));
+        List<ParetoPoint> points = search.run();
+        System.out.println(points.size() + " points on the front, complete: " + search.isComplete());
+
+        System.out.println();
+        // With any number of passengers, the front of four objectives has thousands of points
+        System.out.println("Used space against seats, any number of passengers:");
+        search = new ParetoSearch(wagon, Objective.maximize("wagon.used_space"), Objective.maximize("wagon.nr_seats"))
+                .setSearch(WagonSearch::configure)
+                .setWorkers(workers);
+        for (int slices : new int[]{1, 4}) {
+            long start = System.nanoTime();
+            points = search.setSlices(slices).run();
+            System.out.printf("  %d slices on %d workers: %d points in %.0f ms%n", slices, workers, points.size(), (System.nanoTime() - start) / 1e6);
+        }
+        for (ParetoPoint point : points.subList(0, Math.min(10, points.size()))) {
+            System.out.println("  " + point);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.github.schmittjoaopedro.service;
+
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+
+import java.util.List;
+
+public class ConfigurationRequest {
+
+    private final UseCase useCase;
+
+    private final List<Requirement> requirements;
+
+    private final long timeLimitMs;
+
+    public ConfigurationRequest(UseCase useCase, List<Requirement> requirements, long timeLimitMs) {
+        this.useCase = useCase;
+        this.requirements = requirements;
+        this.timeLimitMs = timeLimitMs;
+    }
+
+    public UseCase getUseCase() {
+        return useCase;
+    }
+
+    public List<Requirement> getRequirements() {
+        return requirements;
+    }
+
+    public long getTimeLimitMs() {
+        return timeLimitMs;
+    }
+
+    @Override
+    public String toString() {
+        return useCase + " " + requirements;
+    }
+}
@@ -0,0 +1,62 @@
+package org.github.schmittjoaopedro.service;
+
+import java.util.Map;
+
+public class ConfigurationResponse {
+
+    public enum Status {
+        // A solution, or the best one found before the time limit for the wagon
+        SOLVED,
+        // Best solution, proved optimal
+        OPTIMAL,
+        // The requirements cannot be satisfied
+        UNSATISFIABLE,
+        // Time limit reached before the first solution
+        TIME_OUT
+    }
+
+    private final Status status;
+
+    private final Map<String, Number> values;
+
+    private final Number objective;
+
+    private final long nodes;
+
+    private final long elapsedNanos;
+
+    public ConfigurationResponse(Status status, Map<String, Number> values, Number objective, long nodes, long elapsedNanos) {
+        this.status = status;
+        this.values = values;
+        this.objective = objective;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Value of every declared variable, upper bound for real variables, empty without solution
+    public Map<String, Number> getValues() {
+        return values;
+    }
+
+    // Best objective value, null for satisfaction problems or without solution
+    public Number getObjective() {
+        return objective;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return status + (objective == null ? "" : " (" + objective + ")") + " " + values;
+    }
+}
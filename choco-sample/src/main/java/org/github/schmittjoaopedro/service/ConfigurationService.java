@@ -0,0 +1,146 @@
+package org.github.schmittjoaopedro.service;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.metrics.MetricsSink;
+import org.github.schmittjoaopedro.metrics.SolverProbe;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves configuration requests of the use cases concurrently. Requests wait in a bounded queue and run on a fixed
+ * pool of workers; every worker builds its own model of each use case on first use and reuses it through a
+ * {@link ModelTemplate}, so no model is ever shared between threads.
+ * <p>
+ * Satisfaction problems answer with their first solution, the wagon with the best solution found within the time
+ * limit of the request.
+ */
+public class ConfigurationService implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+
+    private final ThreadLocal<Map<UseCase, Worker>> workers = ThreadLocal.withInitial(() -> new EnumMap<>(UseCase.class));
+
+    private final MetricsSink metrics;
+
+    public ConfigurationService(int nrWorkers, int queueCapacity) {
+        this(nrWorkers, queueCapacity, null);
+    }
+
+    // Publishes the measures of every request to the sink, labelled with the use case and the requirements
+    public ConfigurationService(int nrWorkers, int queueCapacity, MetricsSink metrics) {
+        this.metrics = metrics;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(nrWorkers, nrWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "configuration-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Throws RejectedExecutionException when the queue is full
+    public CompletableFuture<ConfigurationResponse> submit(ConfigurationRequest request) throws RejectedExecutionException {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return solve(request);
+            } catch (ContradictionException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public ConfigurationResponse solveAndWait(ConfigurationRequest request) throws InterruptedException, ExecutionException {
+        return submit(request).get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ConfigurationResponse solve(ConfigurationRequest request) throws ContradictionException {
+        long start = System.nanoTime();
+        Worker worker = workers.get().computeIfAbsent(request.getUseCase(), Worker::new);
+        return worker.template.query(request.getRequirements(), solver -> {
+            solver.limitTime(request.getTimeLimitMs());
+            Model model = solver.getModel();
+            Solution solution = new Solution(model, worker.outputs);
+            if (solver.hasObjective()) {
+                while (solver.solve()) {
+                    solution.record();
+                }
+            } else if (solver.solve()) {
+                solution.record();
+            }
+            ConfigurationResponse.Status status;
+            if (solver.getSolutionCount() == 0) {
+                status = solver.getSearchState() == SearchState.STOPPED ? ConfigurationResponse.Status.TIME_OUT : ConfigurationResponse.Status.UNSATISFIABLE;
+            } else if (solver.hasObjective() && solver.getSearchState() == SearchState.TERMINATED) {
+                status = ConfigurationResponse.Status.OPTIMAL;
+            } else {
+                status = ConfigurationResponse.Status.SOLVED;
+            }
+            Map<String, Number> values = solver.getSolutionCount() == 0 ? Collections.emptyMap() : values(solution, worker.outputs);
+            Number objective = solver.hasObjective() && solver.getSolutionCount() > 0 ? solver.getBestSolutionValue() : null;
+            if (metrics != null) {
+                worker.probe.publish(request.toString(), metrics);
+            }
+            return new ConfigurationResponse(status, values, objective, solver.getNodeCount(), System.nanoTime() - start);
+        });
+    }
+
+    private static Map<String, Number> values(Solution solution, Variable[] outputs) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (Variable var : outputs) {
+            if ((var.getTypeAndKind() & Variable.REAL) != 0) {
+                values.put(var.getName(), solution.getRealBounds((RealVar) var)[1]);
+            } else {
+                values.put(var.getName(), solution.getIntVal((IntVar) var));
+            }
+        }
+        return values;
+    }
+
+    private static class Worker {
+
+        private final ModelTemplate template;
+
+        private final Variable[] outputs;
+
+        private final SolverProbe probe;
+
+        private Worker(UseCase useCase) {
+            this.probe = SolverProbe.build(useCase.getFactory());
+            this.template = new ModelTemplate(probe::getModel);
+            this.outputs = template.getUtils().getRegistry().getDeclaredVars();
+        }
+
+    }
+
+}
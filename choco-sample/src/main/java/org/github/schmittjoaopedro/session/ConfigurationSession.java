@@ -0,0 +1,281 @@
+package org.github.schmittjoaopedro.session;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.iterators.DisposableValueIterator;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Interactive configuration: the user sets, changes and removes one requirement at a time (at most one per
+ * variable) and reads the remaining options after each step.
+ * <p>
+ * The model and solver live as long as the session. Requirement {@code i} is posted and propagated in its own world
+ * on top of requirement {@code i - 1}, so adding one only propagates its consequences. Changing or removing one
+ * backtracks to the world below it, unposts it and replays the requirements posted after it. The changed requirement
+ * goes last, so tweaking the same input again only propagates that input.
+ * <p>
+ * When a requirement fails, the options stay those of the requirements before it and {@link #getConflict()} returns
+ * it; the requirements after it wait until the conflict is resolved.
+ * <p>
+ * A session is not thread safe.
+ */
+public class ConfigurationSession {
+
+    private final Model model;
+
+    private final Utils utils;
+
+    private final IEnvironment environment;
+
+    // World holding the propagation of the base model
+    private final int baseWorld;
+
+    // In the order they were posted, requirements.get(i) is propagated in world baseWorld + i + 1
+    private final List<Requirement> requirements = new ArrayList<>();
+
+    // Constraints of the requirements posted, built when posted so that none is left free
+    private final List<Constraint> constraints = new ArrayList<>();
+
+    // Number of requirements posted and propagated, the next one (if any) is the conflict
+    private int propagated = 0;
+
+    public ConfigurationSession(Supplier<Model> factory) {
+        this.model = factory.get();
+        this.utils = new Utils(model);
+        this.environment = model.getEnvironment();
+        try {
+            model.getSolver().propagate();
+        } catch (ContradictionException e) {
+            throw new IllegalStateException("The base model " + model.getName() + " has no solution", e);
+        }
+        this.baseWorld = environment.getWorldIndex();
+    }
+
+    public ConfigurationSession(UseCase useCase) {
+        this(useCase.getFactory());
+    }
+
+    // Sets the requirement on its variable, replacing the former one, and returns whether the requirements are consistent
+    public boolean set(Requirement requirement) {
+        int index = indexOf(requirement.getName());
+        if (index >= 0 && requirements.get(index).equals(requirement)) {
+            return isConsistent();
+        }
+        if (utils.getIntVar(requirement.getName()) == null) {
+            throw new IllegalArgumentException("Unknown variable " + requirement.getName());
+        }
+        if (index >= 0) {
+            backtrack(index);
+            requirements.remove(index);
+        }
+        requirements.add(requirement);
+        return replay();
+    }
+
+    // Removes the requirement on the variable, if any, and returns whether the requirements left are consistent
+    public boolean remove(String name) {
+        int index = indexOf(name);
+        if (index >= 0) {
+            backtrack(index);
+            requirements.remove(index);
+        }
+        return replay();
+    }
+
+    public void clear() {
+        backtrack(0);
+        requirements.clear();
+    }
+
+    public List<Requirement> getRequirements() {
+        return Collections.unmodifiableList(requirements);
+    }
+
+    public boolean isConsistent() {
+        return propagated == requirements.size();
+    }
+
+    // First requirement that fails on top of the ones before it, null if consistent
+    public Requirement getConflict() {
+        return isConsistent() ? null : requirements.get(propagated);
+    }
+
+    // Values left in the domain of the variable
+    public int[] getOptions(String name) {
+        IntVar var = utils.getIntVar(name);
+        if (var == null) {
+            throw new IllegalArgumentException("Unknown variable " + name);
+        }
+        int[] options = new int[var.getDomainSize()];
+        DisposableValueIterator values = var.getValueIterator(true);
+        try {
+            for (int i = 0; values.hasNext(); i++) {
+                options[i] = values.next();
+            }
+        } finally {
+            values.dispose();
+        }
+        return options;
+    }
+
+    // Reads the options, e.g. with getVarDesc or getIntVarFormatted
+    public Utils getUtils() {
+        return utils;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    // A solution completing the requirements, null if there is none or they are inconsistent
+    public Solution solve() {
+        return search(false);
+    }
+
+    // Best solution for the objective of the model under the requirements, null if there is none
+    public Solution optimize() {
+        return search(true);
+    }
+
+    private Solution search(boolean optimize) {
+        if (!isConsistent()) {
+            return null;
+        }
+        Solver solver = model.getSolver();
+        // reset() took the bounds of the objective from the domains of the previous search, which may be tighter
+        solver.getObjectiveManager().resetBestBounds();
+        Solution solution = null;
+        // The search starts from the current world and reset() backtracks to it
+        while (solver.solve()) {
+            solution = solution == null ? new Solution(model).record() : solution.record();
+            if (!optimize || model.getObjective() == null) {
+                break;
+            }
+        }
+        solver.reset();
+        return solution;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < requirements.size(); i++) {
+            if (requirements.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Undoes the requirements from the index on, which stay in the list unposted
+    private void backtrack(int index) {
+        if (index >= propagated) {
+            return;
+        }
+        environment.worldPopUntil(baseWorld + index);
+        for (int i = propagated - 1; i >= index; i--) {
+            model.unpost(constraints.remove(i));
+        }
+        propagated = index;
+    }
+
+    // Posts and propagates the requirements not propagated yet, up to the first that fails
+    private boolean replay() {
+        Solver solver = model.getSolver();
+        while (propagated < requirements.size()) {
+            Constraint constraint = requirements.get(propagated).toConstraint(utils);
+            environment.worldPush();
+            model.post(constraint);
+            try {
+                solver.propagate();
+            } catch (ContradictionException e) {
+                environment.worldPop();
+                model.unpost(constraint);
+                return false;
+            }
+            constraints.add(constraint);
+            propagated++;
+        }
+        return true;
+    }
+
+    // Int domains of the variables declared by the model, to compare two models
+    private static String domains(Model model) {
+        StringBuilder domains = new StringBuilder();
+        for (Variable var : new Utils(model).getRegistry().getDeclaredVars()) {
+            if ((var.getTypeAndKind() & Variable.INT) != 0) {
+                domains.append(var).append('\n');
+            }
+        }
+        return domains.toString();
+    }
+
+    public static void main(String[] args) throws ContradictionException {
+        // One input changed at a time on the financial service
+        ConfigurationSession session = new ConfigurationSession(UseCase.FINANCIAL_SERVICE);
+        Utils utils = session.getUtils();
+        String[] steps = {"willingnessToRisk = 1", "investmentDuration = 2", "willingnessToRisk = 2", "expectedReturnRate = 0", "willingnessToRisk = 1"};
+        for (String step : steps) {
+            boolean consistent = session.set(Requirement.parse(step));
+            System.out.println(session.getRequirements() + (consistent ? "" : ", conflict on " + session.getConflict()));
+            System.out.println("  " + utils.getEnumVarFormatted("productName", "EQUITY_FUND", "INVESTMENT_FUND", "BANK_BOOK") + ", "
+                    + utils.getEnumVarFormatted("expectedReturnRate", "LOW", "MEDIUM", "HIGH"));
+        }
+
+        // Random changes on the wagon: options of the session against propagating all requirements from the base
+        // model (the template) and against building the model again, as the use cases did
+        int nrChanges = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String[] inputs = {"wagon.nr_passengers", "wagon.nr_seats", "handrail.type", "seat.shared_color"};
+        int[][] ranges = {{50, 200}, {0, 40}, {0, 3}, {0, 3}};
+        Random random = new Random(0);
+        session = new ConfigurationSession(UseCase.WAGON);
+        ModelTemplate template = new ModelTemplate(UseCase.WAGON.getFactory());
+        long sessionNanos = 0, templateNanos = 0, rebuildNanos = 0;
+        int conflicts = 0;
+        for (int change = 0; change < nrChanges; change++) {
+            int input = random.nextInt(inputs.length);
+            long start = System.nanoTime();
+            if (random.nextInt(5) == 0) {
+                session.remove(inputs[input]);
+            } else {
+                session.set(Requirement.eq(inputs[input], ranges[input][0] + random.nextInt(ranges[input][1] - ranges[input][0] + 1)));
+            }
+            String options = session.isConsistent() ? domains(session.getModel()) : null;
+            sessionNanos += System.nanoTime() - start;
+            conflicts += session.isConsistent() ? 0 : 1;
+            boolean solved = change % 100 == 0 && session.solve() != null;
+
+            List<Requirement> prefix = session.getRequirements().subList(0, session.propagated);
+            start = System.nanoTime();
+            String expected = template.propagate(prefix, solver -> domains(solver.getModel()));
+            templateNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ModelTemplate rebuilt = new ModelTemplate(UseCase.WAGON.getFactory());
+            rebuilt.propagate(prefix, solver -> solver.getModel());
+            rebuildNanos += System.nanoTime() - start;
+
+            if (options != null && !options.equals(expected)) {
+                throw new IllegalStateException("Options differ after " + session.getRequirements());
+            }
+            if (change % 100 == 0 && session.isConsistent() && solved != template.query(prefix, Solver::solve)) {
+                throw new IllegalStateException("Solutions differ after " + session.getRequirements());
+            }
+        }
+        System.out.printf("%n%d changes on the wagon (%d conflicts), same options as propagating from scratch%n", nrChanges, conflicts);
+        System.out.printf("session: %.3f ms, template: %.3f ms, rebuild: %.3f ms per change%n",
+                sessionNanos / 1e6 / nrChanges, templateNanos / 1e6 / nrChanges, rebuildNanos / 1e6 / nrChanges);
+    }
+}
@@ -0,0 +1,81 @@
+package org.github.schmittjoaopedro.session;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Base model built once and queried many times. Every query posts its requirements on top of the base model,
+ * runs, and then restores the base state: the solver is reset, the worlds pushed by the query are popped and the
+ * requirement constraints are unposted. Search heuristics keep what they learnt (e.g. dom/wdeg weights) across
+ * queries.
+ * <p>
+ * A template is not thread safe, use one per thread.
+ */
+public class ModelTemplate {
+
+    private final Model model;
+
+    private final Utils utils;
+
+    public ModelTemplate(Supplier<Model> factory) {
+        this.model = factory.get();
+        this.utils = new Utils(model);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public Utils getUtils() {
+        return utils;
+    }
+
+    // Runs the query (usually a search) with the requirements posted
+    public <R> R query(Collection<Requirement> requirements, Query<R> query) throws ContradictionException {
+        Constraint[] constraints = toConstraints(requirements);
+        IEnvironment environment = model.getEnvironment();
+        int world = environment.getWorldIndex();
+        // Everything the query changes, including a restored Solution, happens above the base world
+        environment.worldPush();
+        model.post(constraints);
+        try {
+            return query.apply(model.getSolver());
+        } finally {
+            model.getSolver().reset();
+            environment.worldPopUntil(world);
+            model.unpost(constraints);
+        }
+    }
+
+    // Runs the query on the domains left by propagating the requirements (the "Options" view)
+    public <R> R propagate(Collection<Requirement> requirements, Query<R> query) throws ContradictionException {
+        return query(requirements, solver -> {
+            solver.propagate();
+            return query.apply(solver);
+        });
+    }
+
+    private Constraint[] toConstraints(Collection<Requirement> requirements) {
+        Constraint[] constraints = new Constraint[requirements.size()];
+        int i = 0;
+        for (Requirement requirement : requirements) {
+            constraints[i++] = requirement.toConstraint(utils);
+        }
+        return constraints;
+    }
+
+    public interface Query<R> {
+
+        R apply(Solver solver) throws ContradictionException;
+
+    }
+
+}
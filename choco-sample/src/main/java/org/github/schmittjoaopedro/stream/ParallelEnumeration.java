@@ -0,0 +1,289 @@
+package org.github.schmittjoaopedro.stream;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+import org.github.schmittjoaopedro.usecase1.Graph;
+import org.github.schmittjoaopedro.usecase1.GraphColoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Enumerates all the solutions of a model on several threads. The search space is split into disjoint sub-problems
+ * by fixing the first variables (e.g. {@code WA} and {@code NT}) to each of their combinations that survives
+ * propagation, and the sub-problems run as tasks of a {@link ForkJoinPool}. Every worker thread solves them on its
+ * own copy of the model, reused through a {@link ModelTemplate}.
+ * <p>
+ * Every solution is enumerated, an objective of the model is ignored.
+ */
+public class ParallelEnumeration implements AutoCloseable {
+
+    private final String[] splitNames;
+
+    private final ForkJoinPool pool;
+
+    // Enumerates the combinations of the split variables, used by one caller at a time
+    private final ModelTemplate splitter;
+
+    private final IntVar[] splitVars;
+
+    private final ThreadLocal<ModelTemplate> templates;
+
+    // Splits on the given variables
+    public ParallelEnumeration(Supplier<Model> factory, int parallelism, String... splitNames) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.templates = ThreadLocal.withInitial(() -> template(factory));
+        this.splitter = template(factory);
+        if (splitNames.length == 0) {
+            splitNames = defaultSplit(splitter, parallelism);
+        }
+        this.splitNames = splitNames;
+        this.splitVars = new IntVar[splitNames.length];
+        for (int i = 0; i < splitNames.length; i++) {
+            splitVars[i] = splitter.getUtils().getIntVar(splitNames[i]);
+            if (splitVars[i] == null) {
+                throw new IllegalArgumentException("Unknown variable " + splitNames[i]);
+            }
+        }
+        // Only the split variables are branched on, a combination is a "solution" once they are all fixed
+        splitter.getModel().getSolver().setSearch(Search.inputOrderLBSearch(splitVars));
+    }
+
+    // Splits on the first declared variables, enough of them for about 30 sub-problems per thread
+    public ParallelEnumeration(Supplier<Model> factory, int parallelism) {
+        this(factory, parallelism, new String[0]);
+    }
+
+    public String[] getSplitNames() {
+        return splitNames.clone();
+    }
+
+    // Combinations of the split variables left by propagation, one sub-problem each
+    public synchronized List<int[]> subproblems() {
+        List<int[]> subproblems = new ArrayList<>();
+        query(splitter, Collections.emptyList(), solver -> {
+            while (solver.solve()) {
+                subproblems.add(values(splitVars));
+            }
+            return null;
+        });
+        return subproblems;
+    }
+
+    // Number of solutions, none of them recorded
+    public long count() {
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (int[] subproblem : subproblems()) {
+            List<Requirement> requirements = requirements(subproblem);
+            tasks.add(pool.submit(() -> query(templates.get(), requirements, solver -> {
+                while (solver.solve()) ;
+                return solver.getSolutionCount();
+            })));
+        }
+        long count = 0;
+        for (ForkJoinTask<Long> task : tasks) {
+            count += join(task);
+        }
+        return count;
+    }
+
+    /**
+     * Distinct solutions projected on the named variables (all declared integer variables when none is given), in
+     * the order of the sub-problems and of the solver within each one. Sub-problems only overlap on the projection
+     * when it leaves out a split variable, only then are their results deduplicated against each other. The stream is
+     * sequential and lazy: the sub-problems are solved in the background and each one is streamed as soon as it and
+     * those before it are done.
+     */
+    public Stream<int[]> solutions(String... projection) {
+        String[] names = projection.length > 0 ? projection : declaredNames(splitter);
+        List<ForkJoinTask<Set<Tuple>>> tasks = new ArrayList<>();
+        for (int[] subproblem : subproblems()) {
+            List<Requirement> requirements = requirements(subproblem);
+            tasks.add(pool.submit(() -> {
+                ModelTemplate template = templates.get();
+                IntVar[] vars = new IntVar[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    vars[i] = template.getUtils().getIntVar(names[i]);
+                    if (vars[i] == null) {
+                        throw new IllegalArgumentException("Unknown variable " + names[i]);
+                    }
+                }
+                return query(template, requirements, solver -> {
+                    Set<Tuple> tuples = new LinkedHashSet<>();
+                    while (solver.solve()) {
+                        tuples.add(new Tuple(values(vars)));
+                    }
+                    return tuples;
+                });
+            }));
+        }
+        boolean disjoint = Arrays.asList(names).containsAll(Arrays.asList(splitNames));
+        Set<Tuple> seen = new HashSet<>();
+        return tasks.stream()
+                .flatMap(task -> join(task).stream())
+                .filter(tuple -> disjoint || seen.add(tuple))
+                .map(tuple -> tuple.values);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Requirement> requirements(int[] subproblem) {
+        List<Requirement> requirements = new ArrayList<>(subproblem.length);
+        for (int i = 0; i < subproblem.length; i++) {
+            requirements.add(Requirement.eq(splitNames[i], subproblem[i]));
+        }
+        return requirements;
+    }
+
+    private static ModelTemplate template(Supplier<Model> factory) {
+        ModelTemplate template = new ModelTemplate(factory);
+        template.getModel().clearObjective();
+        return template;
+    }
+
+    private static String[] defaultSplit(ModelTemplate template, int parallelism) {
+        List<String> names = new ArrayList<>();
+        long combinations = 1;
+        for (Variable var : template.getUtils().getRegistry().getDeclaredVars()) {
+            if (combinations >= 30L * parallelism) {
+                break;
+            }
+            if ((var.getTypeAndKind() & Variable.INT) != 0 && !var.isInstantiated()) {
+                names.add(var.getName());
+                combinations *= ((IntVar) var).getDomainSize();
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static String[] declaredNames(ModelTemplate template) {
+        List<String> names = new ArrayList<>();
+        for (Variable var : template.getUtils().getRegistry().getDeclaredVars()) {
+            if ((var.getTypeAndKind() & Variable.INT) != 0) {
+                names.add(var.getName());
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static int[] values(IntVar[] vars) {
+        int[] values = new int[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            values[i] = vars[i].getValue();
+        }
+        return values;
+    }
+
+    private static <R> R query(ModelTemplate template, List<Requirement> requirements, ModelTemplate.Query<R> query) {
+        try {
+            return template.query(requirements, query);
+        } catch (ContradictionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <R> R join(ForkJoinTask<R> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class Tuple {
+
+        private final int[] values;
+
+        private final int hash;
+
+        private Tuple(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Tuple && Arrays.equals(values, ((Tuple) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    // Sequential count of the all-solutions loop
+    private static long countSequentially(Supplier<Model> factory) {
+        Model model = factory.get();
+        model.clearObjective();
+        Solver solver = model.getSolver();
+        while (solver.solve()) ;
+        return solver.getSolutionCount();
+    }
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        try (ParallelEnumeration australia = new ParallelEnumeration(UseCase.MAP_COLORING.getFactory(), cores, "WA", "NT");
+             ParallelEnumeration financial = new ParallelEnumeration(UseCase.FINANCIAL_SERVICE.getFactory(), cores)) {
+            System.out.println("Map coloring: " + australia.subproblems().size() + " sub-problems, " + australia.count()
+                    + " solutions, " + countSequentially(UseCase.MAP_COLORING.getFactory()) + " sequentially, "
+                    + australia.solutions("SA", "T").count() + " distinct colorings of SA and T");
+            System.out.println("Financial service: split on " + Arrays.toString(financial.getSplitNames()) + ", "
+                    + financial.count() + " solutions, " + countSequentially(UseCase.FINANCIAL_SERVICE.getFactory())
+                    + " sequentially, products " + Arrays.toString(financial.solutions("productName").mapToInt(t -> t[0]).sorted().toArray()));
+        }
+
+        // 4-colorings of a generated map
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        GraphColoring coloring = new GraphColoring(Graph.randomMap(width, height, 0));
+        Supplier<Model> factory = () -> coloring.createModel(4, Integer.MAX_VALUE);
+        long start = System.nanoTime();
+        long sequential = countSequentially(factory);
+        double sequentialMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%dx%d map: %d colorings sequentially in %.0f ms%n", width, height, sequential, sequentialMs);
+        System.out.println("threads, sub-problems, colorings, ms, speed-up");
+        for (int parallelism = 1; parallelism <= cores; parallelism = parallelism == cores ? cores + 1 : Math.min(cores, parallelism * 2)) {
+            try (ParallelEnumeration enumeration = new ParallelEnumeration(factory, parallelism)) {
+                enumeration.count();
+                start = System.nanoTime();
+                long count = enumeration.count();
+                double ms = (System.nanoTime() - start) / 1e6;
+                if (count != sequential) {
+                    throw new IllegalStateException(count + " colorings, " + sequential + " sequentially");
+                }
+                System.out.printf("%d, %d, %d, %.0f, %.2f%n", parallelism, enumeration.subproblems().size(), count, ms, sequentialMs / ms);
+            }
+        }
+    }
+}
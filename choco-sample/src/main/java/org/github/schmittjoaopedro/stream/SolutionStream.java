@@ -0,0 +1,160 @@
+package org.github.schmittjoaopedro.stream;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.VariableRegistry;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy enumeration of the solutions of a model. The search only moves to the next solution when the consumer asks
+ * for it, so a consumer that stops early (or a {@link Stream#limit(long)}) stops the search too.
+ * <p>
+ * Each solution records only the projected variables. Skipped solutions are not recorded at all, and with
+ * {@link #reuseSolution()} the same {@link Solution} is recorded again for every step, so enumerating millions of
+ * solutions runs in constant memory.
+ * <p>
+ * The solver is left where the enumeration stopped, reset it before solving the model again.
+ */
+public class SolutionStream implements Iterator<Solution> {
+
+    private final Model model;
+
+    private final Solver solver;
+
+    private final Variable[] projection;
+
+    private long toSkip = 0;
+
+    private long remaining = Long.MAX_VALUE;
+
+    private Solution reused;
+
+    // Whether the search already moved to the next solution, null until hasNext() looks ahead
+    private Boolean found;
+
+    public SolutionStream(Model model, Variable... projection) {
+        if (projection.length == 0) {
+            // An empty projection makes Solution record every variable, hidden ones included
+            projection = new VariableRegistry(model).getDeclaredVars();
+        }
+        this.model = model;
+        this.solver = model.getSolver();
+        this.projection = projection;
+    }
+
+    // Projection given by names or patterns like seat.type[*] or wagon.*
+    public static SolutionStream of(Utils utils, String... patterns) {
+        List<Variable> projection = new ArrayList<>();
+        for (String pattern : patterns) {
+            Variable var = pattern.endsWith("*") ? null : utils.getRegistry().getVar(pattern);
+            if (var != null) {
+                projection.add(var);
+            } else {
+                Variable[] vars = utils.getRegistry().getVars(pattern);
+                if (vars.length == 0) {
+                    throw new IllegalArgumentException("No variable matches " + pattern);
+                }
+                projection.addAll(Arrays.asList(vars));
+            }
+        }
+        return new SolutionStream(utils.getRegistry().getModel(), projection.toArray(new Variable[0]));
+    }
+
+    // Skips the next n solutions without recording them
+    public SolutionStream skip(long n) {
+        toSkip += n;
+        return this;
+    }
+
+    // Stops the search after n more solutions
+    public SolutionStream limit(long n) {
+        remaining = Math.min(remaining, n);
+        return this;
+    }
+
+    // Records every solution into the same object, consumers must copy what they want to keep
+    public SolutionStream reuseSolution() {
+        reused = new Solution(model, projection);
+        return this;
+    }
+
+    public Variable[] getProjection() {
+        return projection;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (found == null) {
+            found = advance();
+        }
+        return found;
+    }
+
+    @Override
+    public Solution next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        found = null;
+        remaining--;
+        Solution solution = reused != null ? reused : new Solution(model, projection);
+        return solution.record();
+    }
+
+    public Stream<Solution> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private boolean advance() {
+        if (remaining <= 0) {
+            return false;
+        }
+        for (; toSkip > 0; toSkip--) {
+            if (!solver.solve()) {
+                return false;
+            }
+        }
+        return solver.solve();
+    }
+
+    public static void main(String[] args) {
+        // Pages through the Australian map colorings, projected on three regions
+        Utils utils = new Utils(MapColoringProblem.createModel());
+        System.out.println("Colorings 6 to 8 of WA, NT and SA");
+        SolutionStream.of(utils, "WA", "NT", "SA").skip(5).limit(3).stream()
+                .map(solution -> solution.getIntVal(utils.getIntVar("WA")) + " " +
+                        solution.getIntVal(utils.getIntVar("NT")) + " " +
+                        solution.getIntVal(utils.getIntVar("SA")))
+                .forEach(System.out::println);
+
+        // A path of regions has 3 * 2^(n-1) colorings
+        int nrRegions = args.length > 0 ? Integer.parseInt(args[0]) : 21;
+        Model model = new Model("Path coloring");
+        IntVar[] regions = model.intVarArray("R", nrRegions, 0, 2);
+        for (int i = 0; i + 1 < nrRegions; i++) {
+            regions[i].ne(regions[i + 1]).post();
+        }
+        long start = System.currentTimeMillis();
+        long[] reds = new long[1];
+        long count = new SolutionStream(model, regions[0]).reuseSolution().stream()
+                .peek(solution -> reds[0] += solution.getIntVal(regions[0]) == 0 ? 1 : 0)
+                .count();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(count + " colorings of a path of " + nrRegions + " regions, " + reds[0] + " with R[0] = 0, in " +
+                (System.currentTimeMillis() - start) + " ms, " + (runtime.totalMemory() - runtime.freeMemory()) / (1 << 20) + " MB heap used");
+    }
+}
@@ -0,0 +1,255 @@
+package org.github.schmittjoaopedro.stream;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.iterators.DisposableValueIterator;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.usecase1.MapColoringProblem;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes solutions as CSV or JSON lines, one row per solution and one column per variable.
+ * <p>
+ * Rows are built in a single reused {@link StringBuilder} and copied to the writer through a reused char buffer;
+ * domains are walked with the primitive value iterators of Choco and reals are written with
+ * {@link Utils#appendFixed}, so writing a row allocates nothing once the buffers reached their size. Variables that
+ * are not instantiated are written as their domain ({@code [0, 2]} or {@code [1.5, 2.5]}).
+ * <p>
+ * Not thread safe.
+ */
+public class SolutionWriter implements Flushable, Closeable {
+
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    private final Writer out;
+
+    private final Format format;
+
+    private final Variable[] columns;
+
+    // Labels written instead of the values of enumerated variables, by column
+    private final String[][] labels;
+
+    // Text written before each value: the separator in CSV, the separator and the quoted key in JSON
+    private final String[] prefixes;
+
+    private final StringBuilder row = new StringBuilder(256);
+
+    private char[] chars = new char[256];
+
+    private int decimals = 6;
+
+    private long nrRows = 0;
+
+    public SolutionWriter(Writer out, Format format, Variable... columns) {
+        this.out = out;
+        this.format = format;
+        this.columns = columns;
+        this.labels = new String[columns.length][];
+        this.prefixes = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            String separator = i == 0 ? "" : ",";
+            prefixes[i] = format == Format.CSV ? separator : separator + quote(columns[i].getName()) + ":";
+        }
+    }
+
+    // Writes to the file through a FileChannel, replacing its content
+    public static SolutionWriter open(Path path, Format format, Variable... columns) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new SolutionWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 1 << 16), format, columns);
+    }
+
+    // Writes the value of the variable as one of the labels, e.g. RED instead of 0
+    public SolutionWriter setLabels(IntVar var, String... varLabels) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == var) {
+                labels[i] = varLabels;
+                return this;
+            }
+        }
+        throw new IllegalArgumentException(var.getName() + " is not a column");
+    }
+
+    public SolutionWriter setDecimals(int decimals) {
+        if (decimals < 0 || decimals > 9) {
+            throw new IllegalArgumentException("decimals must be within [0, 9]");
+        }
+        this.decimals = decimals;
+        return this;
+    }
+
+    // CSV header with the variable names, JSON lines have none
+    public SolutionWriter writeHeader() throws IOException {
+        if (format == Format.CSV) {
+            row.setLength(0);
+            for (int i = 0; i < columns.length; i++) {
+                row.append(prefixes[i]).append(csvQuote(columns[i].getName()));
+            }
+            flushRow();
+        }
+        return this;
+    }
+
+    // Writes the current assignment of the columns, e.g. from a solve loop or a SolutionStream consumer
+    public void write() throws IOException {
+        row.setLength(0);
+        if (format == Format.JSON_LINES) {
+            row.append('{');
+        }
+        for (int i = 0; i < columns.length; i++) {
+            row.append(prefixes[i]);
+            Variable var = columns[i];
+            if ((var.getTypeAndKind() & Variable.REAL) != 0) {
+                appendReal((RealVar) var);
+            } else {
+                appendInt((IntVar) var, labels[i]);
+            }
+        }
+        if (format == Format.JSON_LINES) {
+            row.append('}');
+        }
+        flushRow();
+    }
+
+    // Writes a recorded solution, its columns must be instantiated integer variables
+    public void write(Solution solution) throws IOException {
+        row.setLength(0);
+        if (format == Format.JSON_LINES) {
+            row.append('{');
+        }
+        for (int i = 0; i < columns.length; i++) {
+            row.append(prefixes[i]);
+            int value = solution.getIntVal((IntVar) columns[i]);
+            appendValue(value, labels[i]);
+        }
+        if (format == Format.JSON_LINES) {
+            row.append('}');
+        }
+        flushRow();
+    }
+
+    // Writes every remaining solution of the solver and returns how many
+    public long writeAll(Solver solver) throws IOException {
+        long written = 0;
+        while (solver.solve()) {
+            write();
+            written++;
+        }
+        return written;
+    }
+
+    public long getNrRows() {
+        return nrRows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendInt(IntVar var, String[] varLabels) {
+        if (var.isInstantiated()) {
+            appendValue(var.getValue(), varLabels);
+            return;
+        }
+        row.append(format == Format.CSV ? "\"[" : "[");
+        DisposableValueIterator values = var.getValueIterator(true);
+        try {
+            while (values.hasNext()) {
+                appendValue(values.next(), varLabels);
+                if (values.hasNext()) {
+                    row.append(format == Format.CSV ? ", " : ",");
+                }
+            }
+        } finally {
+            values.dispose();
+        }
+        row.append(format == Format.CSV ? "]\"" : "]");
+    }
+
+    private void appendValue(int value, String[] varLabels) {
+        if (varLabels == null) {
+            row.append(value);
+        } else if (format == Format.CSV) {
+            row.append(varLabels[value]);
+        } else {
+            row.append('"').append(varLabels[value]).append('"');
+        }
+    }
+
+    private void appendReal(RealVar var) {
+        if (var.isInstantiated()) {
+            Utils.appendFixed(row, var.getUB(), decimals);
+            return;
+        }
+        row.append(format == Format.CSV ? "\"[" : "[");
+        Utils.appendFixed(row, var.getLB(), decimals).append(format == Format.CSV ? ", " : ",");
+        Utils.appendFixed(row, var.getUB(), decimals);
+        row.append(format == Format.CSV ? "]\"" : "]");
+    }
+
+    private void flushRow() throws IOException {
+        row.append('\n');
+        int length = row.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        nrRows++;
+    }
+
+    private static String quote(String name) {
+        return "\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String csvQuote(String name) {
+        return name.indexOf(',') < 0 && name.indexOf('"') < 0 ? name : "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    public static void main(String[] args) throws IOException, ContradictionException {
+        Model model = MapColoringProblem.createModel();
+        Utils utils = new Utils(model);
+        IntVar[] regions = model.retrieveIntVars(false);
+        Writer console = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+
+        // Every coloring of the Australian map, as CSV with the color names
+        SolutionWriter csv = new SolutionWriter(console, Format.CSV, regions);
+        for (IntVar region : regions) {
+            csv.setLabels(region, "RED", "GREEN", "BLUE");
+        }
+        csv.writeHeader();
+        csv.writeAll(model.getSolver());
+        csv.flush();
+
+        // The domains left by WA = GREEN, as a JSON line
+        model.getSolver().reset();
+        utils.getIntVar("WA").eq(1).post();
+        model.getSolver().propagate();
+        SolutionWriter json = new SolutionWriter(console, Format.JSON_LINES, regions);
+        json.write();
+        json.flush();
+    }
+}
@@ -0,0 +1,255 @@
+package org.github.schmittjoaopedro.trace;
+
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperator;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cursor over the events of a trace written by {@link TraceRecorder}, the file is memory-mapped. {@link #next()}
+ * moves to the next event and the getters describe it. A trace cut by a crash ends at the last complete event,
+ * without {@link #END}.
+ */
+public class TraceReader {
+
+    public static final int INT_DECISION = 0;
+
+    public static final int REAL_DECISION = 1;
+
+    public static final int REFUTE = 2;
+
+    public static final int FAIL = 3;
+
+    public static final int SOLUTION = 4;
+
+    public static final int RESTART = 5;
+
+    public static final int TIME = 6;
+
+    public static final int END = 7;
+
+    private final MappedByteBuffer buffer;
+
+    private final String source;
+
+    private final List<String> requirements = new ArrayList<>();
+
+    private final ResolutionPolicy policy;
+
+    private final long startMillis;
+
+    private int event = -1;
+
+    private int var;
+
+    private int value;
+
+    private int operator;
+
+    private double realValue;
+
+    private double epsilon;
+
+    private boolean leftFirst;
+
+    private boolean refutable;
+
+    private Number objective;
+
+    private long micros;
+
+    private boolean completed;
+
+    private long[] counts = new long[4];
+
+    private TraceReader(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < 5 || buffer.getInt() != TraceRecorder.MAGIC || buffer.get() != TraceRecorder.VERSION) {
+            throw new IOException("Not a search trace");
+        }
+        source = readString();
+        int size = (int) readVarLong();
+        for (int i = 0; i < size; i++) {
+            requirements.add(readString());
+        }
+        policy = ResolutionPolicy.values()[buffer.get()];
+        startMillis = buffer.getLong();
+    }
+
+    public static TraceReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TraceReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Requirement texts, see Requirement.parse
+    public List<String> getRequirements() {
+        return Collections.unmodifiableList(requirements);
+    }
+
+    public ResolutionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    // Type of the next event, -1 at the end of the trace
+    public int next() {
+        if (event == END || !buffer.hasRemaining()) {
+            return event = -1;
+        }
+        int position = buffer.position();
+        try {
+            int header = buffer.get() & 0xFF;
+            event = header & 7;
+            switch (event) {
+                case INT_DECISION:
+                    operator = header >> 3 & 3;
+                    refutable = (header & 1 << 5) == 0;
+                    var += (int) unzigzag(readVarLong());
+                    value += (int) unzigzag(readVarLong());
+                    break;
+                case REAL_DECISION:
+                    refutable = (header & 1 << 5) == 0;
+                    leftFirst = (header & 1 << 6) != 0;
+                    var += (int) unzigzag(readVarLong());
+                    realValue = buffer.getDouble();
+                    epsilon = buffer.getDouble();
+                    break;
+                case SOLUTION:
+                    int kind = header >> 3 & 3;
+                    objective = kind == 1 ? (Number) unzigzag(readVarLong()) : kind == 2 ? (Number) buffer.getDouble() : null;
+                    break;
+                case TIME:
+                    micros += readVarLong();
+                    break;
+                case END:
+                    completed = (header & 1 << 3) != 0;
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = readVarLong();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (BufferUnderflowException e) {
+            // Cut in the middle of an event
+            buffer.position(position);
+            return event = -1;
+        }
+        return event;
+    }
+
+    public int getEvent() {
+        return event;
+    }
+
+    // Index in Model.getVars() of the decision variable
+    public int getVar() {
+        return var;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public DecisionOperator<IntVar> getOperator() {
+        @SuppressWarnings("unchecked")
+        DecisionOperator<IntVar> decisionOperator = (DecisionOperator<IntVar>) TraceRecorder.OPERATORS[operator];
+        return decisionOperator;
+    }
+
+    public String getOperatorSymbol() {
+        return new String[]{"=", "!=", "<=", ">="}[operator];
+    }
+
+    public double getRealValue() {
+        return realValue;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public boolean isLeftFirst() {
+        return leftFirst;
+    }
+
+    public boolean isRefutable() {
+        return refutable;
+    }
+
+    // Best objective at a solution, null when satisfying
+    public Number getObjective() {
+        return objective;
+    }
+
+    // Microseconds since the recording started, as of the last time mark
+    public long getMicros() {
+        return micros;
+    }
+
+    // The recorded search explored its whole tree, from the end event
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long getNodeCount() {
+        return counts[0];
+    }
+
+    public long getFailCount() {
+        return counts[1];
+    }
+
+    public long getSolutionCount() {
+        return counts[2];
+    }
+
+    public long getRestartCount() {
+        return counts[3];
+    }
+
+    // Bytes read so far
+    public long getPosition() {
+        return buffer.position();
+    }
+
+    private String readString() {
+        byte[] utf8 = new byte[(int) readVarLong()];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,297 @@
+package org.github.schmittjoaopedro.trace;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.search.loop.monitors.IMonitorContradiction;
+import org.chocosolver.solver.search.loop.monitors.IMonitorDownBranch;
+import org.chocosolver.solver.search.loop.monitors.IMonitorRestart;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.measure.IMeasures;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperator;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.decision.IntDecision;
+import org.chocosolver.solver.search.strategy.decision.RealDecision;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Search monitor writing the search of a solver to a binary trace: decisions, refutations, failures, solutions with
+ * their objective, restarts and a time mark about every millisecond. A refutation only says that the last open
+ * decision is refuted, a decision stores the variable index and the value as deltas from the previous decision, so
+ * most events take 1 to 3 bytes. Events go through a 64 KB buffer to a {@link FileChannel}.
+ * <p>
+ * The header keeps what the {@link TraceReplay} needs to build the same model again: the source (a
+ * {@link org.github.schmittjoaopedro.UseCase} name for the command line), the requirements and the resolution policy.
+ * Close the recorder before the solver is reset (e.g. at the end of a template query), it writes the final counters.
+ * <p>
+ * Format, after the header: one byte per event, the type in the 3 low bits and flags above, followed by
+ * <ul>
+ * <li>int decision: zigzag varint variable delta, zigzag varint value delta, operator in bits 3-4, bit 5 when the
+ * decision cannot be refuted</li>
+ * <li>real decision: zigzag varint variable delta, value and epsilon as doubles, bit 5 as above, bit 6 left first</li>
+ * <li>solution: objective kind in bits 3-4 (none, int as zigzag varint, real as double)</li>
+ * <li>time: varint microseconds since the previous time mark</li>
+ * <li>end: after a last time mark, bit 3 when the search completed, varint nodes, fails, solutions and restarts</li>
+ * </ul>
+ */
+public class TraceRecorder implements IMonitorDownBranch, IMonitorContradiction, IMonitorSolution, IMonitorRestart, AutoCloseable {
+
+    static final int MAGIC = 0x43545243;
+
+    static final int VERSION = 1;
+
+    static final DecisionOperator<?>[] OPERATORS = {DecisionOperatorFactory.makeIntEq(),
+            DecisionOperatorFactory.makeIntNeq(), DecisionOperatorFactory.makeIntSplit(),
+            DecisionOperatorFactory.makeIntReverseSplit()};
+
+    // A time mark at most every TIME_CHECK events, when a millisecond passed
+    private static final int TIME_CHECK = 64;
+
+    private static final long TIME_MARK_NANOS = 1000000;
+
+    // RealDecision has no getters for them
+    private static final Field EPSILON = field("epsilon");
+
+    private static final Field LEFT_FIRST = field("leftFirst");
+
+    private final Model model;
+
+    private final Solver solver;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    // Variable index + 1 by variable id, 0 when unknown
+    private int[] indexes = new int[0];
+
+    private int previousVar;
+
+    private long previousValue;
+
+    private int events;
+
+    private long lastMark;
+
+    private long bytes;
+
+    private boolean closed;
+
+    private TraceRecorder(Model model, FileChannel channel) {
+        this.model = model;
+        this.solver = model.getSolver();
+        this.channel = channel;
+        this.lastMark = System.nanoTime();
+    }
+
+    // Starts recording the next searches of the model, whose requirements are already posted
+    public static TraceRecorder attach(Model model, Path path, String source, Collection<Requirement> requirements) throws IOException {
+        TraceRecorder recorder = new TraceRecorder(model, FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        recorder.writeHeader(source, requirements);
+        model.getSolver().plugMonitor(recorder);
+        return recorder;
+    }
+
+    private void writeHeader(String source, Collection<Requirement> requirements) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        writeString(source);
+        writeVarLong(requirements.size());
+        for (Requirement requirement : requirements) {
+            writeString(requirement.toString());
+        }
+        buffer.put((byte) solver.getObjectiveManager().getPolicy().ordinal());
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    @Override
+    public void beforeDownBranch(boolean left) {
+        ensureCapacity();
+        if (!left) {
+            buffer.put((byte) TraceReader.REFUTE);
+            return;
+        }
+        Decision<?> decision = solver.getDecisionPath().getLastDecision();
+        int refutable = decision.getArity() > 1 ? 0 : 1 << 5;
+        int var = indexOf(decision.getDecisionVariable());
+        if (decision instanceof IntDecision) {
+            IntDecision intDecision = (IntDecision) decision;
+            int value = intDecision.getDecisionValue();
+            buffer.put((byte) (TraceReader.INT_DECISION | operator(intDecision.getDecOp()) << 3 | refutable));
+            writeVarLong(zigzag(var - previousVar));
+            writeVarLong(zigzag(value - previousValue));
+            previousValue = value;
+        } else if (decision instanceof RealDecision) {
+            buffer.put((byte) (TraceReader.REAL_DECISION | refutable | (get(LEFT_FIRST, decision, Boolean.class) ? 1 << 6 : 0)));
+            writeVarLong(zigzag(var - previousVar));
+            buffer.putDouble((Double) decision.getDecisionValue());
+            buffer.putDouble(get(EPSILON, decision, Double.class));
+        } else {
+            throw new IllegalStateException("Cannot trace " + decision.getClass().getSimpleName());
+        }
+        previousVar = var;
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        ensureCapacity();
+        buffer.put((byte) TraceReader.FAIL);
+    }
+
+    @Override
+    public void onSolution() {
+        ensureCapacity();
+        if (!solver.getObjectiveManager().isOptimization()) {
+            buffer.put((byte) TraceReader.SOLUTION);
+            return;
+        }
+        Number objective = solver.getObjectiveManager().getBestSolutionValue();
+        if (solver.getObjectiveManager().getObjective() instanceof IntVar) {
+            buffer.put((byte) (TraceReader.SOLUTION | 1 << 3));
+            writeVarLong(zigzag(objective.longValue()));
+        } else {
+            buffer.put((byte) (TraceReader.SOLUTION | 2 << 3));
+            buffer.putDouble(objective.doubleValue());
+        }
+    }
+
+    @Override
+    public void afterRestart() {
+        ensureCapacity();
+        buffer.put((byte) TraceReader.RESTART);
+    }
+
+    // Bytes written so far
+    public long getBytes() {
+        return bytes + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        solver.unplugMonitor(this);
+        IMeasures measures = solver.getMeasures();
+        ensureCapacity();
+        // Last time mark, the trace then ends at the elapsed time
+        buffer.put((byte) TraceReader.TIME);
+        writeVarLong((System.nanoTime() - lastMark) / 1000);
+        buffer.put((byte) (TraceReader.END | (measures.getSearchState() == SearchState.TERMINATED ? 1 << 3 : 0)));
+        writeVarLong(measures.getNodeCount());
+        writeVarLong(measures.getFailCount());
+        writeVarLong(measures.getSolutionCount());
+        writeVarLong(measures.getRestartCount());
+        flush();
+        channel.close();
+    }
+
+    // Room for the largest event, and a time mark when due
+    private void ensureCapacity() {
+        if (buffer.remaining() < 64) {
+            flush();
+        }
+        if (++events % TIME_CHECK == 0) {
+            long now = System.nanoTime();
+            if (now - lastMark >= TIME_MARK_NANOS) {
+                buffer.put((byte) TraceReader.TIME);
+                writeVarLong((now - lastMark) / 1000);
+                // Keeps the remainder, the marks add up to the elapsed time
+                lastMark += (now - lastMark) / 1000 * 1000;
+            }
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        bytes += buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private int indexOf(Variable var) {
+        int id = var.getId();
+        if (id >= indexes.length || indexes[id] == 0) {
+            // Variables created since the last lookup
+            Variable[] vars = model.getVars();
+            int maxId = id;
+            for (Variable v : vars) {
+                maxId = Math.max(maxId, v.getId());
+            }
+            indexes = Arrays.copyOf(indexes, Math.max(maxId + 1, indexes.length));
+            for (int i = 0; i < vars.length; i++) {
+                indexes[vars[i].getId()] = i + 1;
+            }
+        }
+        return indexes[id] - 1;
+    }
+
+    private static int operator(DecisionOperator<IntVar> operator) {
+        for (int i = 0; i < OPERATORS.length; i++) {
+            if (OPERATORS[i] == operator) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Cannot trace the decision operator " + operator);
+    }
+
+    private void writeString(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length);
+        buffer.put(utf8);
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static Field field(String name) {
+        try {
+            Field field = RealDecision.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T get(Field field, Object decision, Class<T> type) {
+        try {
+            return type.cast(field.get(decision));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+package org.github.schmittjoaopedro.trace;
+
+import org.chocosolver.cutoffseq.LubyCutoffStrategy;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorDownBranch;
+import org.chocosolver.solver.search.loop.monitors.IMonitorRestart;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.decision.IntDecision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.UseCase;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.usecase3.WagonSearch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Replays a search trace on a new model from the same factory: the requirements of the trace are posted and the
+ * search takes the recorded decisions, refutations and restarts instead of choosing them, so it explores the same
+ * tree and ends with the same counters. A propagation that fails where the recorded one did not (or the opposite)
+ * means the model changed since the recording, the replay stops with an {@link IllegalStateException}.
+ * <p>
+ * Searches with large neighborhoods or nogoods from restarts are not replayed, their moves are not in the trace. A
+ * search stopped by a limit may replay one node more than recorded.
+ * <p>
+ * From the command line: {@code TraceReplay <trace> [--top N]}, the trace source must be a {@link UseCase}. Without
+ * arguments, records and replays a wagon optimization and a large enumeration, with the recording overhead.
+ */
+public class TraceReplay implements IMonitorDownBranch, IMonitorRestart {
+
+    private final TraceReader reader;
+
+    private final Model model;
+
+    private Variable[] vars;
+
+    // Next control event of the trace: a decision, a refutation, a solution, a restart or the end
+    private int pending;
+
+    private TraceReplay(TraceReader reader, Model model) {
+        this.reader = reader;
+        this.model = model;
+        this.vars = model.getVars();
+        advance();
+    }
+
+    public static TraceReplay replay(Path trace, Supplier<Model> factory) throws IOException {
+        TraceReader reader = TraceReader.open(trace);
+        Model model = factory.get();
+        Utils utils = new Utils(model);
+        for (String requirement : reader.getRequirements()) {
+            Requirement.parse(requirement).toConstraint(utils).post();
+        }
+        Solver solver = model.getSolver();
+        if (reader.getPolicy() == ResolutionPolicy.SATISFACTION) {
+            model.clearObjective();
+        }
+        TraceReplay replay = new TraceReplay(reader, model);
+        solver.setSearch(replay.new ReplayStrategy());
+        // The cutoff is not used, the criterion only says when the trace restarts
+        solver.setRestarts(limit -> replay.pending == TraceReader.RESTART, new LubyCutoffStrategy(1), Integer.MAX_VALUE);
+        solver.addStopCriterion(() -> replay.pending == TraceReader.END && !reader.isCompleted());
+        solver.plugMonitor(replay);
+        while (solver.solve()) ;
+        return replay;
+    }
+
+    private void advance() {
+        do {
+            pending = reader.next();
+        } while (pending == TraceReader.FAIL || pending == TraceReader.TIME);
+        if (pending < 0) {
+            throw new IllegalStateException("Trace cut before the end, it cannot be replayed");
+        }
+    }
+
+    private IllegalStateException diverges(String what) {
+        return new IllegalStateException("Trace diverges after " + model.getSolver().getNodeCount() + " nodes: " + what);
+    }
+
+    @Override
+    public void beforeDownBranch(boolean left) {
+        if (!left) {
+            if (pending != TraceReader.REFUTE) {
+                throw diverges("the search refutes a decision, the trace does not");
+            }
+            advance();
+        }
+    }
+
+    @Override
+    public void afterRestart() {
+        advance();
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    // Same counters as the recorded search
+    public boolean matches() {
+        Solver solver = model.getSolver();
+        return solver.getNodeCount() == reader.getNodeCount() && solver.getFailCount() == reader.getFailCount()
+                && solver.getSolutionCount() == reader.getSolutionCount() && solver.getRestartCount() == reader.getRestartCount();
+    }
+
+    public String describe() {
+        Solver solver = model.getSolver();
+        return String.format("replayed %,d nodes, %,d fails, %d solutions, %d restarts; recorded %,d, %,d, %d, %d",
+                solver.getNodeCount(), solver.getFailCount(), solver.getSolutionCount(), solver.getRestartCount(),
+                reader.getNodeCount(), reader.getFailCount(), reader.getSolutionCount(), reader.getRestartCount());
+    }
+
+    private Variable var(int index) {
+        if (index >= vars.length) {
+            // Variables created during the search
+            vars = model.getVars();
+        }
+        if (index >= vars.length) {
+            throw diverges("no variable #" + index);
+        }
+        return vars[index];
+    }
+
+    private class ReplayStrategy extends AbstractStrategy<Variable> {
+
+        ReplayStrategy() {
+            super(model.getVars());
+        }
+
+        @Override
+        public Decision<Variable> getDecision() {
+            Decision<?> decision;
+            switch (pending) {
+                case TraceReader.INT_DECISION:
+                    Variable var = var(reader.getVar());
+                    if (!(var instanceof IntVar) || var.isInstantiated()) {
+                        throw diverges("cannot branch on " + var);
+                    }
+                    IntDecision intDecision = model.getSolver().getDecisionPath().makeIntDecision((IntVar) var, reader.getOperator(), reader.getValue());
+                    decision = intDecision;
+                    break;
+                case TraceReader.REAL_DECISION:
+                    Variable real = var(reader.getVar());
+                    if (!(real instanceof RealVar) || real.isInstantiated()) {
+                        throw diverges("cannot branch on " + real);
+                    }
+                    decision = model.getSolver().getDecisionPath().makeRealDecision((RealVar) real, reader.getRealValue(), reader.getEpsilon(), reader.isLeftFirst());
+                    break;
+                case TraceReader.SOLUTION:
+                    advance();
+                    return null;
+                case TraceReader.END:
+                    // The stop criterion is met, this is the last action of the search
+                    return null;
+                default:
+                    throw diverges("the trace refutes a decision, the search does not");
+            }
+            decision.setRefutable(reader.isRefutable());
+            advance();
+            @SuppressWarnings("unchecked")
+            Decision<Variable> next = (Decision<Variable>) decision;
+            return next;
+        }
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            int top = args.length > 2 && args[1].equals("--top") ? Integer.parseInt(args[2]) : 10;
+            Path trace = Paths.get(args[0]);
+            Supplier<Model> factory = UseCase.valueOf(TraceReader.open(trace).getSource()).getFactory();
+            TraceReplay replay = replay(trace, factory);
+            System.out.println(replay.describe());
+            summary(trace, replay.getModel()).print(System.out, top);
+            return;
+        }
+        Path trace = Files.createTempFile("wagon", ".trace");
+        try {
+            // Optimization with the wagon search
+            List<Requirement> query = Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30));
+            record(trace, query, 0);
+            TraceReplay replay = replay(trace, UseCase.WAGON.getFactory());
+            System.out.println("Optimization " + replay.describe() + (replay.matches() ? "" : " MISMATCH"));
+            summary(trace, replay.getModel()).print(System.out, 5);
+
+            // Enumeration of the seats of a short wagon, the overhead is the best of 3 runs with and without recorder
+            List<Requirement> enumeration = Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 16));
+            long plain = Long.MAX_VALUE;
+            long recorded = Long.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                plain = Math.min(plain, record(null, enumeration, 16));
+                recorded = Math.min(recorded, record(trace, enumeration, 16));
+            }
+            long start = System.nanoTime();
+            replay = replay(trace, UseCase.WAGON.getFactory());
+            long replayed = System.nanoTime() - start;
+            System.out.println();
+            System.out.println("Enumeration " + replay.describe() + (replay.matches() ? "" : " MISMATCH"));
+            System.out.printf("search %.0f ms, recorded %.0f ms (%+.1f%%), replayed %.0f ms, trace %.2f MB%n",
+                    plain / 1e6, recorded / 1e6, 100.0 * (recorded - plain) / plain, replayed / 1e6, Files.size(trace) / 1e6);
+            summary(trace, replay.getModel()).print(System.out, 5);
+        } finally {
+            Files.delete(trace);
+        }
+    }
+
+    // Search nanoseconds, with a recorder when the trace is not null. Enumerates the seat assignments of the active
+    // seats if any, otherwise maximizes with the wagon search
+    private static long record(Path trace, List<Requirement> requirements, int activeSeats) throws IOException {
+        Model model = UseCase.WAGON.createModel();
+        Utils utils = new Utils(model);
+        for (Requirement requirement : requirements) {
+            requirement.toConstraint(utils).post();
+        }
+        Solver solver = model.getSolver();
+        if (activeSeats > 0) {
+            model.clearObjective();
+            IntVar[] types = utils.getIntVars("seat.type[*]");
+            IntVar[] colors = utils.getIntVars("seat.color[*]");
+            List<IntVar> seats = new ArrayList<>();
+            for (int i = 0; i < activeSeats; i++) {
+                seats.add(types[i]);
+                seats.add(colors[i]);
+            }
+            solver.setSearch(Search.inputOrderLBSearch(seats.toArray(new IntVar[0])));
+        } else {
+            WagonSearch.configure(model);
+        }
+        TraceRecorder recorder = trace != null ? TraceRecorder.attach(model, trace, UseCase.WAGON.name(), requirements) : null;
+        long start = System.nanoTime();
+        while (solver.solve()) ;
+        long elapsed = System.nanoTime() - start;
+        if (recorder != null) {
+            recorder.close();
+        }
+        return elapsed;
+    }
+
+    private static TraceSummary summary(Path trace, Model model) throws IOException {
+        Variable[] vars = model.getVars();
+        String[] names = new String[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            names[i] = vars[i].getName();
+        }
+        return TraceSummary.of(TraceReader.open(trace), names);
+    }
+
+}
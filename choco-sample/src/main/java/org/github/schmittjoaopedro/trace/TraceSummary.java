@@ -0,0 +1,286 @@
+package org.github.schmittjoaopedro.trace;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Hotspots of a search trace: totals, objective timeline, variables with the most decisions and failures, and the
+ * most expensive subtrees near the root. The search tree is rebuilt from the events: a decision opens a node below the
+ * last one, a refutation closes the exhausted nodes and switches the last open decision to its right branch. A
+ * failure is charged to the variable of the deepest open decision. Sizes are counted in branches, i.e. decisions
+ * plus refutations, which is not Choco's node count; a complete trace also carries the counters Choco recorded.
+ */
+public class TraceSummary {
+
+    // Subtrees are reported down to this depth
+    private static final int SUBTREE_DEPTH = 2;
+
+    private final String[] names;
+
+    private final String source;
+
+    private final List<String> requirements;
+
+    private long decisions;
+
+    private long refutations;
+
+    private long fails;
+
+    private long restarts;
+
+    private int maxDepth;
+
+    private long micros;
+
+    private boolean completed;
+
+    private boolean truncated = true;
+
+    private long recordedNodes;
+
+    private long bytes;
+
+    private long[] decisionsByVar = new long[64];
+
+    private long[] failsByVar = new long[64];
+
+    private final List<long[]> timeline = new ArrayList<>();
+
+    private final List<Number> objectives = new ArrayList<>();
+
+    private final List<Subtree> subtrees = new ArrayList<>();
+
+    private final Deque<Branch> branches = new ArrayDeque<>();
+
+    private TraceSummary(TraceReader reader, String[] names) {
+        this.names = names;
+        this.source = reader.getSource();
+        this.requirements = reader.getRequirements();
+    }
+
+    // Reads the remaining events, names are those of Model.getVars() of the traced model (or null)
+    public static TraceSummary of(TraceReader reader, String[] names) {
+        TraceSummary summary = new TraceSummary(reader, names);
+        for (int event = reader.next(); event >= 0; event = reader.next()) {
+            summary.accept(reader, event);
+        }
+        summary.micros = reader.getMicros();
+        summary.bytes = reader.getPosition();
+        return summary;
+    }
+
+    private void accept(TraceReader reader, int event) {
+        switch (event) {
+            case TraceReader.INT_DECISION:
+            case TraceReader.REAL_DECISION:
+                decisions++;
+                int var = reader.getVar();
+                decisionsByVar = count(decisionsByVar, var);
+                String text = event == TraceReader.INT_DECISION
+                        ? name(var) + " " + reader.getOperatorSymbol() + " " + reader.getValue()
+                        : name(var) + (reader.isLeftFirst() ? " <= " : " >= ") + reader.getRealValue();
+                open(new Branch(var, text, reader.isRefutable()), reader);
+                maxDepth = Math.max(maxDepth, branches.size());
+                break;
+            case TraceReader.REFUTE:
+                refutations++;
+                while (!branches.isEmpty() && branches.peek().exhausted) {
+                    close(reader);
+                }
+                if (!branches.isEmpty()) {
+                    Branch left = close(reader);
+                    Branch right = new Branch(left.var, negate(left.text), false);
+                    open(right, reader);
+                }
+                break;
+            case TraceReader.FAIL:
+                fails++;
+                if (!branches.isEmpty()) {
+                    failsByVar = count(failsByVar, branches.peek().var);
+                }
+                break;
+            case TraceReader.SOLUTION:
+                timeline.add(new long[]{reader.getMicros(), decisions + refutations});
+                objectives.add(reader.getObjective());
+                break;
+            case TraceReader.RESTART:
+                restarts++;
+                while (!branches.isEmpty()) {
+                    close(reader);
+                }
+                break;
+            case TraceReader.END:
+                completed = reader.isCompleted();
+                recordedNodes = reader.getNodeCount();
+                truncated = false;
+                while (!branches.isEmpty()) {
+                    close(reader);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void open(Branch branch, TraceReader reader) {
+        Branch parent = branches.peek();
+        branch.depth = branches.size() + 1;
+        branch.path = parent == null ? branch.text : parent.path + " / " + branch.text;
+        branch.branches = decisions + refutations;
+        branch.fails = fails;
+        branch.micros = reader.getMicros();
+        branches.push(branch);
+    }
+
+    private Branch close(TraceReader reader) {
+        Branch branch = branches.pop();
+        if (branch.depth <= SUBTREE_DEPTH) {
+            subtrees.add(new Subtree(branch.path, decisions + refutations - branch.branches,
+                    fails - branch.fails, reader.getMicros() - branch.micros));
+        }
+        return branch;
+    }
+
+    private String name(int var) {
+        return names != null && var < names.length ? names[var] : "var#" + var;
+    }
+
+    private static String negate(String text) {
+        for (String[] pair : new String[][]{{" != ", " = "}, {" = ", " != "}, {" <= ", " > "}, {" >= ", " < "}}) {
+            int index = text.lastIndexOf(pair[0]);
+            if (index >= 0) {
+                return text.substring(0, index) + pair[1] + text.substring(index + pair[0].length());
+            }
+        }
+        return "not " + text;
+    }
+
+    private static long[] count(long[] counts, int var) {
+        if (var >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(var + 1, counts.length * 2));
+        }
+        counts[var]++;
+        return counts;
+    }
+
+    // Decisions plus refutations
+    public long getBranchCount() {
+        return decisions + refutations;
+    }
+
+    // Nodes counted by Choco, -1 when the trace was cut before the end
+    public long getRecordedNodeCount() {
+        return truncated ? -1 : recordedNodes;
+    }
+
+    public long getFailCount() {
+        return fails;
+    }
+
+    public long getSolutionCount() {
+        return objectives.size();
+    }
+
+    public long getRestartCount() {
+        return restarts;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void print(PrintStream out, int top) {
+        out.printf("Trace of %s %s%n", source, requirements);
+        out.printf("%,d branches (%,d decisions, %,d refutations), %,d fails, %d solutions, %d restarts, max depth %d, %.1f ms%s%n",
+                getBranchCount(), decisions, refutations, fails, objectives.size(), restarts, maxDepth, micros / 1e3,
+                truncated ? ", trace cut before the end" : completed ? ", complete" : ", stopped");
+        if (!truncated) {
+            out.printf("%,d nodes recorded by Choco%n", recordedNodes);
+        }
+        out.printf("%,d bytes, %.2f bytes per branch%n", bytes, bytes / (double) Math.max(1, getBranchCount()));
+
+        if (!objectives.isEmpty() && objectives.get(0) != null) {
+            out.println("Objective:");
+            for (int i = 0; i < objectives.size(); i++) {
+                out.printf("  %10.1f ms %,12d branches  %s%n", timeline.get(i)[0] / 1e3, timeline.get(i)[1], objectives.get(i));
+            }
+        }
+
+        out.println("Variables by fails:");
+        printTop(out, failsByVar, decisionsByVar, top, "fails", "decisions");
+        out.println("Variables by decisions:");
+        printTop(out, decisionsByVar, failsByVar, top, "decisions", "fails");
+
+        out.println("Subtrees by branches, depth <= " + SUBTREE_DEPTH + ":");
+        subtrees.sort(Comparator.comparingLong((Subtree subtree) -> subtree.branches).reversed());
+        for (Subtree subtree : subtrees.subList(0, Math.min(top, subtrees.size()))) {
+            out.printf("  %,12d branches %,10d fails %10.1f ms  %s%n", subtree.branches, subtree.fails, subtree.micros / 1e3, subtree.path);
+        }
+    }
+
+    private void printTop(PrintStream out, long[] counts, long[] others, int top, String label, String otherLabel) {
+        Integer[] vars = new Integer[counts.length];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = i;
+        }
+        Arrays.sort(vars, Comparator.comparingLong((Integer var) -> counts[var]).reversed());
+        for (int i = 0; i < Math.min(top, vars.length) && counts[vars[i]] > 0; i++) {
+            int var = vars[i];
+            out.printf("  %,12d %s %,12d %s  %s%n", counts[var], label, var < others.length ? others[var] : 0, otherLabel, name(var));
+        }
+    }
+
+    private static class Branch {
+
+        private final int var;
+
+        private final String text;
+
+        // No right branch left
+        private final boolean exhausted;
+
+        private int depth;
+
+        private String path;
+
+        // Branches of the trace when the branch was opened
+        private long branches;
+
+        private long fails;
+
+        private long micros;
+
+        Branch(int var, String text, boolean refutable) {
+            this.var = var;
+            this.text = text;
+            this.exhausted = !refutable;
+        }
+
+    }
+
+    private static class Subtree {
+
+        private final String path;
+
+        private final long branches;
+
+        private final long fails;
+
+        private final long micros;
+
+        Subtree(String path, long branches, long fails, long micros) {
+            this.path = path;
+            this.branches = branches;
+            this.fails = fails;
+            this.micros = micros;
+        }
+
+    }
+
+}
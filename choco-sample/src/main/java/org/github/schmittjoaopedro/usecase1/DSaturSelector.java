@@ -0,0 +1,179 @@
+package org.github.schmittjoaopedro.usecase1;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
+import org.chocosolver.solver.variables.IVariableMonitor;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IEventType;
+
+import java.util.Arrays;
+
+/**
+ * Dynamic DSatur ordering: the node with the fewest colors left (the most colored neighbors, as {@code ne} and
+ * {@code allDifferent} remove them), then the highest degree.
+ * <p>
+ * Scanning all nodes at every decision is quadratic on large graphs. Instead a heap holds an entry per domain
+ * change, pushed by a variable monitor. A node keeps only its latest entry valid, the older ones are dropped when
+ * popped. Entries whose priority is outdated (the domain grew back on backtrack) are pushed again with the right one
+ * when popped. Nodes popped while colored are parked with the world they were seen in, and put back in the heap when
+ * the search backtracks above that world.
+ */
+public class DSaturSelector implements VariableSelector<IntVar>, IVariableMonitor<IntVar> {
+
+    private static final int NODE_BITS = 21;
+
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+
+    private final IntVar[] regions;
+
+    private final Graph graph;
+
+    private final int firstId;
+
+    private final int nrColors;
+
+    private final IEnvironment environment;
+
+    // Max-heap of priority << NODE_BITS | (NODE_MASK - node)
+    private long[] heap;
+
+    private int heapSize;
+
+    // Valid heap entry of each node, -1 when the node is not in the heap
+    private final long[] queued;
+
+    // Colored nodes and the world they were seen colored in, by increasing world
+    private int[] parkedNodes;
+
+    private int[] parkedWorlds;
+
+    private int nrParked;
+
+    public DSaturSelector(IntVar[] regions, Graph graph, int nrColors) {
+        if (regions.length > NODE_MASK) {
+            throw new IllegalArgumentException("At most " + NODE_MASK + " nodes");
+        }
+        this.regions = regions;
+        this.graph = graph;
+        this.firstId = regions.length == 0 ? 0 : regions[0].getId();
+        this.nrColors = nrColors;
+        this.environment = regions.length == 0 ? null : regions[0].getModel().getEnvironment();
+        this.heap = new long[Math.max(16, 2 * regions.length)];
+        this.queued = new long[regions.length];
+        Arrays.fill(queued, -1);
+        this.parkedNodes = new int[16];
+        this.parkedWorlds = new int[16];
+        for (int v = 0; v < regions.length; v++) {
+            push(v);
+            regions[v].addMonitor(this);
+        }
+    }
+
+    @Override
+    public void onUpdate(IntVar var, IEventType evt) {
+        if (!var.isInstantiated()) {
+            push(var.getId() - firstId);
+        }
+    }
+
+    @Override
+    public IntVar getVariable(IntVar[] variables) {
+        unpark(environment.getWorldIndex());
+        while (heapSize > 0) {
+            long entry = pop();
+            int v = (int) (NODE_MASK - (entry & NODE_MASK));
+            if (queued[v] != entry) {
+                continue;
+            }
+            queued[v] = -1;
+            IntVar var = regions[v];
+            if (var.isInstantiated()) {
+                park(v);
+            } else if (entry >>> NODE_BITS != priority(v)) {
+                push(v);
+            } else {
+                // Comes back to the heap when the decision is undone
+                park(v);
+                return var;
+            }
+        }
+        return null;
+    }
+
+    // Fewest colors left first, then highest degree
+    private long priority(int v) {
+        return (long) (nrColors - regions[v].getDomainSize()) << 21 | Math.min(graph.degree(v), (1 << 21) - 1);
+    }
+
+    private void park(int v) {
+        if (nrParked == parkedNodes.length) {
+            parkedNodes = Arrays.copyOf(parkedNodes, nrParked * 2);
+            parkedWorlds = Arrays.copyOf(parkedWorlds, nrParked * 2);
+        }
+        parkedNodes[nrParked] = v;
+        parkedWorlds[nrParked++] = environment.getWorldIndex();
+    }
+
+    // Back to the heap, the nodes parked in the current world or a deeper one: they may be uncolored now
+    private void unpark(int world) {
+        while (nrParked > 0 && parkedWorlds[nrParked - 1] >= world) {
+            push(parkedNodes[--nrParked]);
+        }
+    }
+
+    private void push(int v) {
+        long entry = priority(v) << NODE_BITS | (NODE_MASK - v);
+        if (queued[v] == entry) {
+            return;
+        }
+        if (heapSize == heap.length) {
+            compact();
+        }
+        queued[v] = entry;
+        int i = heapSize++;
+        while (i > 0 && heap[(i - 1) >>> 1] < entry) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = entry;
+    }
+
+    // Drops the outdated entries, grows the heap if they were less than half of it
+    private void compact() {
+        heapSize = 0;
+        for (int v = 0; v < queued.length; v++) {
+            if (queued[v] >= 0) {
+                heap[heapSize++] = queued[v];
+            }
+        }
+        if (heapSize > heap.length / 2) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        Arrays.sort(heap, 0, heapSize);
+        // A descending array is a max-heap
+        for (int i = 0, j = heapSize - 1; i < j; i++, j--) {
+            long entry = heap[i];
+            heap[i] = heap[j];
+            heap[j] = entry;
+        }
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,261 @@
+package org.github.schmittjoaopedro.usecase1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Undirected graph in compressed sparse row form: the neighbors of node {@code v} are
+ * {@code targets[offsets[v]..offsets[v + 1])}, ascending, without self loops or duplicates.
+ */
+public class Graph {
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private Graph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    // Graph of the edges from[i] - to[i], on nodes 0..nrNodes - 1
+    public static Graph of(int nrNodes, int[] from, int[] to, int nrEdges) {
+        int[] offsets = new int[nrNodes + 1];
+        for (int i = 0; i < nrEdges; i++) {
+            if (from[i] != to[i]) {
+                offsets[from[i] + 1]++;
+                offsets[to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < nrNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[offsets[nrNodes]];
+        int[] next = Arrays.copyOf(offsets, nrNodes);
+        for (int i = 0; i < nrEdges; i++) {
+            if (from[i] != to[i]) {
+                targets[next[from[i]]++] = to[i];
+                targets[next[to[i]]++] = from[i];
+            }
+        }
+        // Sort every adjacency and drop the duplicated edges, compacting in place
+        int size = 0;
+        for (int v = 0, start = 0; v < nrNodes; v++) {
+            int end = offsets[v + 1];
+            Arrays.sort(targets, start, end);
+            offsets[v] = size;
+            for (int i = start; i < end; i++) {
+                if (i == start || targets[i] != targets[i - 1]) {
+                    targets[size++] = targets[i];
+                }
+            }
+            start = end;
+        }
+        offsets[nrNodes] = size;
+        return new Graph(offsets, Arrays.copyOf(targets, size));
+    }
+
+    /**
+     * Reads an edge list, one {@code u v} pair of node numbers per line. Lines starting with {@code #} or {@code %}
+     * are comments, other words on a line (weights) are ignored. Nodes are numbered from 0 up to the largest
+     * number found. The file is mapped in memory rather than read through a stream.
+     */
+    public static Graph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int[] from = new int[1024];
+            int[] to = new int[1024];
+            int nrEdges = 0;
+            int maxNode = -1;
+            int limit = buffer.limit();
+            int position = 0;
+            while (position < limit) {
+                byte first = buffer.get(position);
+                if (first == '#' || first == '%') {
+                    position = nextLine(buffer, position, limit);
+                    continue;
+                }
+                long u = -1;
+                long v = -1;
+                int word = 0;
+                // Parses the numbers of the line, keeping the first two
+                while (position < limit) {
+                    byte b = buffer.get(position);
+                    if (b == '\n') {
+                        position++;
+                        break;
+                    }
+                    if (b >= '0' && b <= '9') {
+                        long number = 0;
+                        while (position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+                            number = number * 10 + (b - '0');
+                            if (number > Integer.MAX_VALUE) {
+                                throw new IOException("Node number too large in " + path);
+                            }
+                            position++;
+                        }
+                        if (word == 0) {
+                            u = number;
+                        } else if (word == 1) {
+                            v = number;
+                        }
+                        word++;
+                    } else if (b == ' ' || b == '\t' || b == '\r' || b == ',') {
+                        position++;
+                    } else {
+                        // Weights and labels
+                        word++;
+                        while (position < limit && (b = buffer.get(position)) != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                            position++;
+                        }
+                    }
+                }
+                if (u < 0 && v < 0) {
+                    continue;
+                }
+                if (u < 0 || v < 0) {
+                    throw new IOException("Line with a single node in " + path);
+                }
+                if (nrEdges == from.length) {
+                    from = Arrays.copyOf(from, nrEdges * 2);
+                    to = Arrays.copyOf(to, nrEdges * 2);
+                }
+                from[nrEdges] = (int) u;
+                to[nrEdges] = (int) v;
+                nrEdges++;
+                maxNode = (int) Math.max(maxNode, Math.max(u, v));
+            }
+            return of(maxNode + 1, from, to, nrEdges);
+        }
+    }
+
+    private static int nextLine(MappedByteBuffer buffer, int position, int limit) {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    public void write(Path path) throws IOException {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.US_ASCII), 1 << 16)) {
+            writer.write("# " + getNrNodes() + " nodes, " + getNrEdges() + " edges\n");
+            for (int v = 0; v < getNrNodes(); v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    if (targets[i] > v) {
+                        writer.write(v + " " + targets[i] + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Planar map: a {@code width x height} grid of regions where every cell also borders one diagonal neighbor
+     * picked at random, as regions of a real map meet by threes.
+     */
+    public static Graph randomMap(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int nrNodes = width * height;
+        int[] from = new int[3 * nrNodes];
+        int[] to = new int[3 * nrNodes];
+        int nrEdges = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = y * width + x;
+                if (x + 1 < width) {
+                    from[nrEdges] = v;
+                    to[nrEdges++] = v + 1;
+                }
+                if (y + 1 < height) {
+                    from[nrEdges] = v;
+                    to[nrEdges++] = v + width;
+                }
+                if (x + 1 < width && y + 1 < height) {
+                    // One diagonal of the square v, v + 1, v + width, v + width + 1
+                    boolean down = random.nextBoolean();
+                    from[nrEdges] = down ? v : v + 1;
+                    to[nrEdges++] = down ? v + width + 1 : v + width;
+                }
+            }
+        }
+        return of(nrNodes, from, to, nrEdges);
+    }
+
+    // Random conflict graph with the given average degree
+    public static Graph randomConflicts(int nrNodes, int averageDegree, long seed) {
+        Random random = new Random(seed);
+        int nrEdges = (int) ((long) nrNodes * averageDegree / 2);
+        int[] from = new int[nrEdges];
+        int[] to = new int[nrEdges];
+        for (int i = 0; i < nrEdges; i++) {
+            from[i] = random.nextInt(nrNodes);
+            to[i] = random.nextInt(nrNodes);
+        }
+        return of(nrNodes, from, to, nrEdges);
+    }
+
+    /**
+     * Conflict graph made of random cliques, as in exam timetabling where the courses of each student form a
+     * clique. Every node is in {@code cliquesPerNode} cliques on average.
+     */
+    public static Graph randomCliques(int nrNodes, int cliqueSize, int cliquesPerNode, long seed) {
+        Random random = new Random(seed);
+        int nrCliques = nrNodes * cliquesPerNode / cliqueSize;
+        int nrEdges = nrCliques * cliqueSize * (cliqueSize - 1) / 2;
+        int[] from = new int[nrEdges];
+        int[] to = new int[nrEdges];
+        int[] clique = new int[cliqueSize];
+        int edge = 0;
+        for (int c = 0; c < nrCliques; c++) {
+            // Nodes close to each other, so that cliques overlap as courses of a curriculum do
+            int base = random.nextInt(nrNodes);
+            for (int i = 0; i < cliqueSize; i++) {
+                clique[i] = (base + random.nextInt(4 * cliqueSize)) % nrNodes;
+            }
+            for (int i = 0; i < cliqueSize; i++) {
+                for (int j = i + 1; j < cliqueSize; j++) {
+                    from[edge] = clique[i];
+                    to[edge++] = clique[j];
+                }
+            }
+        }
+        return of(nrNodes, from, to, nrEdges);
+    }
+
+    public int getNrNodes() {
+        return offsets.length - 1;
+    }
+
+    public int getNrEdges() {
+        return targets.length / 2;
+    }
+
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public int neighbor(int v, int i) {
+        return targets[offsets[v] + i];
+    }
+
+    public boolean isEdge(int u, int v) {
+        return Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) >= 0;
+    }
+
+    // Bytes held by the adjacency arrays
+    public long sizeInBytes() {
+        return 4L * (offsets.length + targets.length);
+    }
+}
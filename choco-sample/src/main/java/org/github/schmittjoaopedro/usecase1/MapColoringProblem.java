@@ -3,10 +3,15 @@ package org.github.schmittjoaopedro.usecase1;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.exception.ContradictionException;
-import org.chocosolver.solver.learn.XParameters;
-import org.chocosolver.solver.search.loop.learn.LearnSignedClauses;
 import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Requirement;
 import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.explain.ExplanationService;
+import org.github.schmittjoaopedro.explain.Rules;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
 
 public class MapColoringProblem {
 
@@ -18,11 +23,9 @@ public class MapColoringProblem {
     private static final int GREEN = 1;
     private static final int BLUE = 2;
 
-    private static Model createModel() {
+    public static Model createModel() {
         // MODELING
-        model = new Model("Map coloring");
-        utils = new Utils(model);
-        solver = model.getSolver();
+        Model model = new Model("Map coloring");
         // Variables and domain
         IntVar WA = model.intVar("WA", new int[]{RED, GREEN, BLUE});
         IntVar NT = model.intVar("NT", new int[]{RED, GREEN, BLUE});
@@ -32,54 +35,81 @@ public class MapColoringProblem {
         IntVar V = model.intVar("V", new int[]{RED, GREEN, BLUE});
         IntVar T = model.intVar("T", new int[]{RED, GREEN, BLUE});
         // Constraints
-        WA.ne(NT).post();
-        WA.ne(SA).post();
-        NT.ne(Q).post();
-        NT.ne(SA).post();
-        SA.ne(Q).post();
-        SA.ne(NSW).post();
-        SA.ne(V).post();
-        Q.ne(NSW).post();
-        NSW.ne(V).post();
+        border(WA, NT);
+        border(WA, SA);
+        border(NT, Q);
+        border(NT, SA);
+        border(SA, Q);
+        border(SA, NSW);
+        border(SA, V);
+        border(Q, NSW);
+        border(NSW, V);
+
+        return model;
+    }
+
+    public static Model createModel(int nrRegions) {
+        // MODELING
+        Model model = new Model("Map coloring " + nrRegions);
+        // Variables and domain
+        IntVar[] regions = model.intVarArray("R", nrRegions, new int[]{RED, GREEN, BLUE});
+        // Constraints
+        // Strip of triangles, region i borders regions i + 1 and i + 2
+        for (int i = 0; i < nrRegions; i++) {
+            for (int j = i + 1; j <= i + 2 && j < nrRegions; j++) {
+                border(regions[i], regions[j]);
+            }
+        }
 
         return model;
     }
 
-    public static void main(String[] args) {
+    // Neighbor regions have different colors
+    private static void border(IntVar a, IntVar b) {
+        Rules.post(a.getModel(), a.getName() + "-" + b.getName(), a.getName() + " and " + b.getName() + " border, they have different colors",
+                () -> a.ne(b).post());
+    }
+
+    public static void main(String[] args) throws ContradictionException {
+        // The base model is built once and every scenario runs on top of it
+        ModelTemplate template = new ModelTemplate(MapColoringProblem::createModel);
+        load(template.getModel());
 
         // Find first solution
         System.out.println("\nFirst solution");
-        model = createModel();
-        solver.solve();
-        printSolution();
+        template.query(Collections.emptyList(), solver -> {
+            solver.solve();
+            printSolution();
+            return solver.getSolutionCount();
+        });
 
         // Find all solutions
         System.out.println("\nAll solutions");
-        model = createModel();
-        while (solver.solve()) {
-            printSolution();
-        }
+        template.query(Collections.emptyList(), MapColoringProblem::printAllSolutions);
 
         // Find restricted solutions
         System.out.println("\nAll solutions given WA = GREEN");
-        model = createModel();
-        utils.getIntVar("WA").eq(GREEN).post(); // New constraint
-        while (solver.solve()) {
-            printSolution();
-        }
+        template.query(Collections.singletonList(Requirement.eq("WA", GREEN)), MapColoringProblem::printAllSolutions); // New constraint
 
         // Explain contradiction
         System.out.println("\nExplain why [WA = GREEN, NT = GREEN] doesn't work");
-        model = createModel();
-        utils.getIntVar("WA").eq(GREEN).post(); // New constraint
-        utils.getIntVar("NT").eq(GREEN).post(); // New constraint
-        try {
-            XParameters.PROOF = true;
-            solver.setLearningSignedClauses();
-            solver.propagate();
-        } catch (ContradictionException c) {
-            ((LearnSignedClauses) solver.getLearner()).getExplanation().learnSignedClause(c);
+        ExplanationService explanations = new ExplanationService(MapColoringProblem::createModel, 16);
+        System.out.println(explanations.explain(Arrays.asList(
+                Requirement.eq("WA", GREEN),
+                Requirement.eq("NT", GREEN))));
+    }
+
+    private static long printAllSolutions(Solver solver) {
+        while (solver.solve()) {
+            printSolution();
         }
+        return solver.getSolutionCount();
+    }
+
+    private static void load(Model newModel) {
+        model = newModel;
+        utils = new Utils(model);
+        solver = model.getSolver();
     }
 
     private static void printSolution() {
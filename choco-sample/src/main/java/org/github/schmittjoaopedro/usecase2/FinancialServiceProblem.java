@@ -3,10 +3,15 @@ package org.github.schmittjoaopedro.usecase2;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.exception.ContradictionException;
-import org.chocosolver.solver.learn.XParameters;
-import org.chocosolver.solver.search.loop.learn.LearnSignedClauses;
 import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Requirement;
 import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.explain.ExplanationService;
+import org.github.schmittjoaopedro.explain.Rules;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
 
 public class FinancialServiceProblem {
 
@@ -26,67 +31,79 @@ public class FinancialServiceProblem {
     private static final int INVESTMENT_FUND = 1;
     private static final int BANK_BOOK = 2;
 
-    private static Model createModel() {
+    public static Model createModel() {
         // MODELLING
-        model = new Model("Financial Service Problem");
-        utils = new Utils(model);
-        solver = model.getSolver();
+        Model model = new Model("Financial Service Problem");
         // Variables and domains
         IntVar willingnessToRisk = model.intVar("willingnessToRisk", new int[]{LOW, MEDIUM, HIGH});
         IntVar investmentDuration = model.intVar("investmentDuration", new int[]{SHORT_TERM, MEDIUM_TERM, LONG_TERM});
         IntVar expectedReturnRate = model.intVar("expectedReturnRate", new int[]{LOW, MEDIUM, HIGH});
         IntVar productName = model.intVar("productName", new int[]{EQUITY_FUND, INVESTMENT_FUND, BANK_BOOK});
         // Financial Service Constraints
-        willingnessToRisk.eq(LOW).imp(productName.eq(BANK_BOOK)).post();
-        willingnessToRisk.eq(MEDIUM).imp(productName.ne(EQUITY_FUND)).post();
-        investmentDuration.eq(SHORT_TERM).imp(productName.eq(BANK_BOOK)).post();
-        investmentDuration.eq(MEDIUM_TERM).imp(productName.ne(EQUITY_FUND)).post();
-        expectedReturnRate.eq(HIGH).or(expectedReturnRate.eq(MEDIUM)).imp(productName.ne(BANK_BOOK)).post();
-        willingnessToRisk.eq(LOW).and(expectedReturnRate.eq(HIGH)).not().post();
-        investmentDuration.eq(SHORT_TERM).and(expectedReturnRate.eq(HIGH)).not().post();
-        willingnessToRisk.eq(HIGH).and(expectedReturnRate.eq(LOW)).not().post();
+        Rules.post(model, "low-risk-product", "A low willingness to risk requires a bank book",
+                () -> willingnessToRisk.eq(LOW).imp(productName.eq(BANK_BOOK)).post());
+        Rules.post(model, "medium-risk-product", "A medium willingness to risk excludes equity funds",
+                () -> willingnessToRisk.eq(MEDIUM).imp(productName.ne(EQUITY_FUND)).post());
+        Rules.post(model, "short-term-product", "A short term investment requires a bank book",
+                () -> investmentDuration.eq(SHORT_TERM).imp(productName.eq(BANK_BOOK)).post());
+        Rules.post(model, "medium-term-product", "A medium term investment excludes equity funds",
+                () -> investmentDuration.eq(MEDIUM_TERM).imp(productName.ne(EQUITY_FUND)).post());
+        Rules.post(model, "return-product", "A medium or high expected return excludes bank books",
+                () -> expectedReturnRate.eq(HIGH).or(expectedReturnRate.eq(MEDIUM)).imp(productName.ne(BANK_BOOK)).post());
+        Rules.post(model, "low-risk-return", "A low willingness to risk excludes a high expected return",
+                () -> willingnessToRisk.eq(LOW).and(expectedReturnRate.eq(HIGH)).not().post());
+        Rules.post(model, "short-term-return", "A short term investment excludes a high expected return",
+                () -> investmentDuration.eq(SHORT_TERM).and(expectedReturnRate.eq(HIGH)).not().post());
+        Rules.post(model, "high-risk-return", "A high willingness to risk excludes a low expected return",
+                () -> willingnessToRisk.eq(HIGH).and(expectedReturnRate.eq(LOW)).not().post());
 
         return model;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws ContradictionException {
+        // The base model is built once and every scenario runs on top of it
+        ModelTemplate template = new ModelTemplate(FinancialServiceProblem::createModel);
+        load(template.getModel());
 
         // First solution
         System.out.println("\nFirst solution");
-        model = createModel();
-        solver.solve();
-        printSolution();
+        template.query(Collections.emptyList(), solver -> {
+            solver.solve();
+            printSolution();
+            return solver.getSolutionCount();
+        });
 
         // All solutions
         System.out.println("\nAll solutions");
-        model = createModel();
-        while (solver.solve()) {
-            printSolution();
-        }
+        template.query(Collections.emptyList(), FinancialServiceProblem::printAllSolutions);
 
         // Find restricted solutions
         System.out.println("\nAll solutions given willingnessToRisk = LOW and expectedReturnRate = LOW");
-        model = createModel();
-        utils.getIntVar("willingnessToRisk").eq(LOW).post(); // New constraint
-        utils.getIntVar("investmentDuration").eq(SHORT_TERM).post(); // New constraint
-        while (solver.solve()) {
-            printSolution();
-        }
+        template.query(Arrays.asList(
+                Requirement.eq("willingnessToRisk", LOW), // New constraint
+                Requirement.eq("investmentDuration", SHORT_TERM)), // New constraint
+                FinancialServiceProblem::printAllSolutions);
 
         // Explain contradiction
         System.out.println("\nExplain why [willingnessToRisk = LOW, expectedReturnRate = LOW, investmentDuration = SHORT_TERM] doesn't work");
-        model = createModel();
-        utils.getIntVar("willingnessToRisk").eq(LOW).post(); // New constraint
-        utils.getIntVar("investmentDuration").eq(SHORT_TERM).post(); // New constraint
-        utils.getIntVar("expectedReturnRate").eq(HIGH).post(); // New constraint
-        try {
-            solver.setLearningSignedClauses();
-            XParameters.PROOF = true;
-            solver.propagate();
-        } catch (ContradictionException c) {
-            ((LearnSignedClauses) solver.getLearner()).getExplanation().learnSignedClause(c);
+        ExplanationService explanations = new ExplanationService(FinancialServiceProblem::createModel, 16);
+        System.out.println(explanations.explain(Arrays.asList(
+                Requirement.eq("willingnessToRisk", LOW),
+                Requirement.eq("investmentDuration", SHORT_TERM),
+                Requirement.eq("expectedReturnRate", HIGH))));
+    }
+
+    private static long printAllSolutions(Solver solver) {
+        while (solver.solve()) {
+            printSolution();
         }
+        return solver.getSolutionCount();
+    }
 
+    private static void load(Model newModel) {
+        model = newModel;
+        utils = new Utils(model);
+        solver = model.getSolver();
     }
 
     private static void printSolution() {
@@ -0,0 +1,11 @@
+package org.github.schmittjoaopedro.usecase3;
+
+public enum CapacityEncoding {
+
+    // length_mm and used_space as real variables, capacity and used space as Ibex equations
+    REAL,
+
+    // length_mm in whole millimetres, capacity as a scalar constraint and used space scaled to an integer
+    INTEGER
+
+}
@@ -0,0 +1,78 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.github.schmittjoaopedro.Utils;
+
+/**
+ * Maximizes wagon.used_space with both capacity encodings on the same requirements and checks they agree.
+ * <p>
+ * The integer encoding rounds length_mm up to whole millimetres and used_space down to whole passengers per km,
+ * so its optimum is the real one times {@link WagonOptimizationProblem#USED_SPACE_SCALE}, at most one unit lower
+ * (rounding) and one millimetre of length lower (about 0.01%).
+ */
+public class CapacityEncodingCheck {
+
+    // nr_passengers, nr_seats (-1 when free)
+    private static final int[][] SCENARIOS = {
+            {160, -1}, {160, 30}, {-1, -1}, {50, -1}, {50, 50}, {75, 20}, {123, 41}, {200, 0}, {200, 200}, {199, 7}
+    };
+
+    // Best used_space in passengers per km and the time the optimization took in ms
+    public static double[] optimize(CapacityEncoding encoding, int nrPassengers, int nrSeats) {
+        Model model = WagonOptimizationProblem.createModel(new WagonModelOptions()
+                .setSeatEncoding(SeatEncoding.COMPACT)
+                .setCapacityEncoding(encoding));
+        Utils utils = new Utils(model);
+        if (nrPassengers >= 0) {
+            utils.getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+        }
+        if (nrSeats >= 0) {
+            utils.getIntVar("wagon.nr_seats").eq(nrSeats).post();
+        }
+        long start = System.nanoTime();
+        Solver solver = model.getSolver();
+        double best = Double.NaN;
+        while (solver.solve()) {
+            best = encoding == CapacityEncoding.INTEGER
+                    ? utils.getIntVar("wagon.used_space").getValue()
+                    : realValue(utils.getRealVar("wagon.used_space")) * WagonOptimizationProblem.USED_SPACE_SCALE;
+        }
+        return new double[]{best, (System.nanoTime() - start) / 1e6};
+    }
+
+    public static boolean agree(double real, double integer) {
+        if (Double.isNaN(real) || Double.isNaN(integer)) {
+            return Double.isNaN(real) && Double.isNaN(integer);
+        }
+        return integer <= real + 1e-3 && integer >= real * (1 - 1e-4) - 1;
+    }
+
+    private static double realValue(RealVar var) {
+        return (var.getLB() + var.getUB()) / 2;
+    }
+
+    public static void main(String[] args) {
+        boolean same = true;
+        double realTotal = 0;
+        double integerTotal = 0;
+        System.out.println("nr_passengers, nr_seats, real used_space, integer used_space, real ms, integer ms");
+        for (int[] scenario : SCENARIOS) {
+            double[] real = optimize(CapacityEncoding.REAL, scenario[0], scenario[1]);
+            double[] integer = optimize(CapacityEncoding.INTEGER, scenario[0], scenario[1]);
+            boolean agree = agree(real[0], integer[0]);
+            same &= agree;
+            realTotal += real[1];
+            integerTotal += integer[1];
+            System.out.printf("%d, %d, %.3f, %.0f, %.1f, %.1f%s%n", scenario[0], scenario[1], real[0], integer[0],
+                    real[1], integer[1], agree ? "" : " DIFFERENT");
+        }
+        System.out.printf("Total: real %.0f ms, integer %.0f ms, speed-up %.1f%n", realTotal, integerTotal, realTotal / integerTotal);
+        System.out.println(same ? "Both encodings agree" : "Encodings differ");
+        if (!same) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.lns.neighbors.IntNeighbor;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * LNS neighborhood that relaxes the wagon variables and a block of consecutive seats, and freezes every other seat
+ * to its value in the last solution. The block starts at a random seat; it grows each time a fragment gives no
+ * better solution and shrinks back to its initial size on every new solution.
+ */
+public class SeatBlockNeighborhood extends IntNeighbor {
+
+    private final int nrWagonVars;
+
+    private final int varsPerSeat;
+
+    private final int nrSeats;
+
+    private final int initialBlockSize;
+
+    private final Random random;
+
+    private double blockSize;
+
+    /**
+     * @param wagon     variables always relaxed
+     * @param seats     variables of each seat, in seat order, the same number per seat
+     * @param blockSize number of seats relaxed at first
+     */
+    public SeatBlockNeighborhood(IntVar[] wagon, IntVar[][] seats, int blockSize, long seed) {
+        super(concat(wagon, seats));
+        this.nrWagonVars = wagon.length;
+        this.varsPerSeat = seats.length == 0 ? 0 : seats[0].length;
+        this.nrSeats = seats.length;
+        this.initialBlockSize = Math.max(1, blockSize);
+        this.blockSize = initialBlockSize;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void recordSolution() {
+        super.recordSolution();
+        blockSize = initialBlockSize;
+    }
+
+    @Override
+    public void fixSomeVariables() throws ContradictionException {
+        int size = (int) Math.min(blockSize, nrSeats);
+        int first = random.nextInt(nrSeats - size + 1);
+        for (int seat = 0; seat < nrSeats; seat++) {
+            if (seat == first) {
+                seat += size - 1;
+                continue;
+            }
+            for (int i = nrWagonVars + seat * varsPerSeat, end = i + varsPerSeat; i < end; i++) {
+                // The value can be gone when the objective bound removed it
+                if (variables[i].contains(values[i])) {
+                    freeze(i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void restrictLess() {
+        blockSize = Math.min(nrSeats, blockSize * 1.5);
+    }
+
+    @Override
+    public boolean isSearchComplete() {
+        return blockSize >= nrSeats;
+    }
+
+    private static IntVar[] concat(IntVar[] wagon, IntVar[][] seats) {
+        IntVar[] vars = Arrays.copyOf(wagon, wagon.length + (seats.length == 0 ? 0 : seats.length * seats[0].length));
+        int i = wagon.length;
+        for (IntVar[] seat : seats) {
+            for (IntVar var : seat) {
+                vars[i++] = var;
+            }
+        }
+        return vars;
+    }
+}
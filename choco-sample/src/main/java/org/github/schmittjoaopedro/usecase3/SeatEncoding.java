@@ -0,0 +1,11 @@
+package org.github.schmittjoaopedro.usecase3;
+
+public enum SeatEncoding {
+
+    // One reified implication per pair of seats, O(MAX_SEATS^2) constraints
+    PAIRWISE,
+
+    // Every seat channelled to a shared type/color through a table constraint, O(MAX_SEATS) constraints
+    COMPACT
+
+}
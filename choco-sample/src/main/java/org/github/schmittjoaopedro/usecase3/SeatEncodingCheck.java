@@ -0,0 +1,85 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Enumerates the solutions of both seat encodings, projected on the named integer variables of the wagon, and
+ * checks that they are the same set.
+ */
+public class SeatEncodingCheck {
+
+    public static Set<String> solutions(WagonModelOptions options, int nrPassengers, int maxSpecialIndex) {
+        Model model = WagonOptimizationProblem.createModel(options);
+        Utils utils = new Utils(model);
+        utils.getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+        // Bounds the number of special seat patterns to enumerate on large wagons
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        for (int i = maxSpecialIndex; i < seat_type.length; i++) {
+            seat_type[i].ne(WagonOptimizationProblem.SPECIAL).post();
+        }
+        IntVar[] projection = projection(utils);
+        // The real variables follow from the integer ones, so the search only branches on the latter
+        Solver solver = model.getSolver();
+        solver.setSearch(Search.inputOrderLBSearch(projection));
+        model.clearObjective();
+        Set<String> solutions = new HashSet<>();
+        int[] values = new int[projection.length];
+        while (solver.solve()) {
+            for (int i = 0; i < projection.length; i++) {
+                values[i] = projection[i].getValue();
+            }
+            if (!solutions.add(Arrays.toString(values))) {
+                throw new IllegalStateException("Duplicated solution " + Arrays.toString(values));
+            }
+        }
+        return solutions;
+    }
+
+    public static boolean sameSolutions(int maxSeats, int nrPassengers, int maxSpecialIndex) {
+        Set<String> pairwise = solutions(new WagonModelOptions().setMaxSeats(maxSeats).setSeatEncoding(SeatEncoding.PAIRWISE), nrPassengers, maxSpecialIndex);
+        Set<String> compact = solutions(new WagonModelOptions().setMaxSeats(maxSeats).setSeatEncoding(SeatEncoding.COMPACT), nrPassengers, maxSpecialIndex);
+        System.out.println("max_seats = " + maxSeats + ", nr_passengers = " + nrPassengers + ": " +
+                pairwise.size() + " pairwise, " + compact.size() + " compact solutions");
+        return pairwise.equals(compact);
+    }
+
+    private static IntVar[] projection(Utils utils) {
+        IntVar[] wagon = {
+                utils.getIntVar("wagon.nr_passengers"),
+                utils.getIntVar("wagon.nr_seats"),
+                utils.getIntVar("wagon.nr_handrails"),
+                utils.getIntVar("wagon.standing_room"),
+                utils.getIntVar("handrail.type")
+        };
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        IntVar[] seat_color = utils.getIntVars("seat.color[*]");
+        IntVar[] projection = Arrays.copyOf(wagon, wagon.length + seat_type.length + seat_color.length);
+        System.arraycopy(seat_type, 0, projection, wagon.length, seat_type.length);
+        System.arraycopy(seat_color, 0, projection, wagon.length + seat_type.length, seat_color.length);
+        return projection;
+    }
+
+    public static void main(String[] args) {
+        boolean same = true;
+        for (int maxSeats = 0; maxSeats <= 5; maxSeats++) {
+            for (int nrPassengers : new int[]{50, 160}) {
+                same &= sameSolutions(maxSeats, nrPassengers, maxSeats);
+            }
+        }
+        // Everyone seated, so the wagon may have no handrail
+        same &= sameSolutions(55, 50, 3);
+        same &= sameSolutions(55, 52, 3);
+        System.out.println(same ? "Both encodings have the same solutions" : "Encodings differ");
+        if (!same) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that the seat symmetry breaking keeps exactly one solution per permutation class of the seats, then reports
+ * the search effort with and without it on the scenarios of {@link WagonOptimizationProblem#main}.
+ */
+public class SymmetryBreakingCheck {
+
+    // Solutions projected on the integer variables, with the seats in canonical order if canonicalize
+    public static Set<String> solutions(WagonModelOptions options, int nrPassengers, boolean canonicalize) {
+        Model model = WagonOptimizationProblem.createModel(options);
+        Utils utils = new Utils(model);
+        utils.getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+        IntVar[] wagon = {
+                utils.getIntVar("wagon.nr_seats"),
+                utils.getIntVar("wagon.nr_handrails"),
+                utils.getIntVar("handrail.type")
+        };
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        IntVar[] seat_color = utils.getIntVars("seat.color[*]");
+        Solver solver = model.getSolver();
+        IntVar[] search = Arrays.copyOf(wagon, wagon.length + 2 * seat_type.length);
+        System.arraycopy(seat_type, 0, search, wagon.length, seat_type.length);
+        System.arraycopy(seat_color, 0, search, wagon.length + seat_type.length, seat_color.length);
+        solver.setSearch(Search.inputOrderLBSearch(search));
+        model.clearObjective();
+        Set<String> solutions = new HashSet<>();
+        while (solver.solve()) {
+            int[] types = new int[seat_type.length];
+            int[] colors = new int[seat_color.length];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = seat_type[i].getValue();
+                colors[i] = seat_color[i].getValue();
+            }
+            if (options.isSymmetryBreaking() && !WagonOptimizationProblem.isCanonical(types, colors)) {
+                throw new IllegalStateException("Not canonical " + Arrays.toString(types) + " " + Arrays.toString(colors));
+            }
+            // (type, color) pairs sorted like the symmetry breaking does
+            int[] seats = new int[types.length];
+            for (int i = 0; i < seats.length; i++) {
+                seats[i] = types[i] * 4 + colors[i];
+            }
+            if (canonicalize) {
+                Arrays.sort(seats);
+            }
+            String solution = wagon[0].getValue() + " " + wagon[1].getValue() + " " + wagon[2].getValue() + " " + Arrays.toString(seats);
+            if (!solutions.add(solution) && options.isSymmetryBreaking()) {
+                throw new IllegalStateException("Two solutions of the same class " + solution);
+            }
+        }
+        return solutions;
+    }
+
+    public static boolean sameClasses(int maxSeats, int nrPassengers) {
+        WagonModelOptions options = new WagonModelOptions().setMaxSeats(maxSeats).setSeatEncoding(SeatEncoding.COMPACT);
+        int nrSolutions = solutions(options, nrPassengers, false).size();
+        Set<String> all = solutions(options, nrPassengers, true);
+        Set<String> broken = solutions(options.setSymmetryBreaking(true), nrPassengers, false);
+        System.out.println("max_seats = " + maxSeats + ", nr_passengers = " + nrPassengers + ": " + nrSolutions +
+                " solutions in " + all.size() + " classes, " + broken.size() + " solutions with symmetry breaking");
+        return all.equals(broken);
+    }
+
+    // Nodes, fails and milliseconds to prove the optimum
+    public static long[] optimize(WagonModelOptions options, int nrPassengers, int nrSeats) {
+        Model model = WagonOptimizationProblem.createModel(options);
+        Utils utils = new Utils(model);
+        utils.getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+        if (nrSeats >= 0) {
+            utils.getIntVar("wagon.nr_seats").eq(nrSeats).post();
+        }
+        long start = System.nanoTime();
+        Solver solver = model.getSolver();
+        while (solver.solve()) ;
+        return new long[]{solver.getNodeCount(), solver.getFailCount(), (System.nanoTime() - start) / 1000000};
+    }
+
+    private static void report(SeatEncoding encoding, int nrPassengers, int nrSeats) {
+        WagonModelOptions options = new WagonModelOptions().setSeatEncoding(encoding).setCapacityEncoding(CapacityEncoding.INTEGER);
+        long[] plain = optimize(options, nrPassengers, nrSeats);
+        long[] broken = optimize(options.setSymmetryBreaking(true), nrPassengers, nrSeats);
+        System.out.printf("%s, %d, %d, %d -> %d nodes, %d -> %d fails, %d -> %d ms%n", encoding, nrPassengers, nrSeats,
+                plain[0], broken[0], plain[1], broken[1], plain[2], broken[2]);
+    }
+
+    public static void main(String[] args) {
+        boolean same = true;
+        for (int maxSeats = 0; maxSeats <= 5; maxSeats++) {
+            for (int nrPassengers : new int[]{50, 160}) {
+                same &= sameClasses(maxSeats, nrPassengers);
+            }
+        }
+        System.out.println(same ? "One solution per class" : "Classes differ");
+        if (!same) {
+            System.exit(1);
+        }
+
+        System.out.println("encoding, nr_passengers, nr_seats, nodes, fails, time without -> with symmetry breaking");
+        for (SeatEncoding encoding : SeatEncoding.values()) {
+            report(encoding, 160, -1);
+            report(encoding, 160, 30);
+        }
+    }
+}
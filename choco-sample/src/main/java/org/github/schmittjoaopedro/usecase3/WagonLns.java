@@ -0,0 +1,170 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
+import org.chocosolver.solver.search.loop.lns.neighbors.PropagationGuidedNeighborhood;
+import org.chocosolver.solver.search.loop.lns.neighbors.RandomNeighborhood;
+import org.chocosolver.solver.search.loop.lns.neighbors.SequenceNeighborhood;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.metrics.SolverMetrics;
+import org.github.schmittjoaopedro.metrics.SolverProbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Large Neighborhood Search on the wagon model: good solutions within a time or fail limit, without proving them
+ * optimal. Each fragment keeps part of the last solution frozen and searches the rest with {@link WagonSearch};
+ * fragments are abandoned after {@link #FRAGMENT_FAILS} fails.
+ * <p>
+ * {@link #getMetrics()} returns the anytime quality curve (objective value and time of each improving solution).
+ */
+public class WagonLns {
+
+    public enum Neighborhood {
+        // Wagon variables and a block of consecutive seats
+        SEAT_BLOCK,
+        // Random variables, see RandomNeighborhood
+        RANDOM,
+        // Variables picked by following propagation, see PropagationGuidedNeighborhood
+        PROPAGATION_GUIDED,
+        // The three in turn
+        SEQUENCE
+    }
+
+    private static final int FRAGMENT_FAILS = 100;
+
+    private final Model model;
+
+    private final Neighborhood neighborhood;
+
+    private final SolverProbe probe;
+
+    private final Solution best;
+
+    public WagonLns(Model model, Neighborhood neighborhood, long seed) {
+        this.model = model;
+        this.neighborhood = neighborhood;
+        this.probe = new SolverProbe(model, -1);
+        this.best = new Solution(model);
+        WagonSearch.configure(model);
+        model.getSolver().setLNS(neighbor(new Utils(model), neighborhood, seed), new FailCounter(model, FRAGMENT_FAILS));
+    }
+
+    // Best solution found within the limits (0 for none), null if none was found
+    public Solution solve(long timeLimitMs, long failLimit) {
+        Solver solver = model.getSolver();
+        if (timeLimitMs > 0) {
+            solver.limitTime(timeLimitMs);
+        }
+        if (failLimit > 0) {
+            solver.limitFail(failLimit);
+        }
+        boolean found = false;
+        while (solver.solve()) {
+            best.record();
+            found = true;
+        }
+        return found ? best : null;
+    }
+
+    public SolverMetrics getMetrics() {
+        return probe.snapshot("LNS " + neighborhood);
+    }
+
+    private static INeighbor neighbor(Utils utils, Neighborhood neighborhood, long seed) {
+        IntVar[] wagon = wagonVars(utils);
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        IntVar[] seat_color = utils.getIntVars("seat.color[*]");
+        IntVar[][] seats = new IntVar[seat_type.length][];
+        IntVar[] all = Arrays.copyOf(wagon, wagon.length + 2 * seat_type.length);
+        for (int i = 0; i < seat_type.length; i++) {
+            seats[i] = new IntVar[]{seat_type[i], seat_color[i]};
+            all[wagon.length + 2 * i] = seat_type[i];
+            all[wagon.length + 2 * i + 1] = seat_color[i];
+        }
+        switch (neighborhood) {
+            case SEAT_BLOCK:
+                return new SeatBlockNeighborhood(wagon, seats, Math.max(10, seats.length / 20), seed);
+            case RANDOM:
+                return new RandomNeighborhood(all, 3, seed);
+            case PROPAGATION_GUIDED:
+                return new PropagationGuidedNeighborhood(all, 30, 10, seed);
+            default:
+                return new SequenceNeighborhood(
+                        new SeatBlockNeighborhood(wagon, seats, Math.max(10, seats.length / 20), seed),
+                        new RandomNeighborhood(all, 3, seed),
+                        new PropagationGuidedNeighborhood(all, 30, 10, seed));
+        }
+    }
+
+    // Integer variables of the wagon itself, length_mm only with the integer capacity encoding
+    private static IntVar[] wagonVars(Utils utils) {
+        List<IntVar> wagon = new ArrayList<>();
+        for (String name : new String[]{"wagon.nr_passengers", "wagon.nr_seats", "wagon.standing_room", "wagon.nr_handrails", "wagon.length_mm", "handrail.type"}) {
+            Variable var = utils.getRegistry().getVar(name);
+            if ((var.getTypeAndKind() & Variable.INT) != 0) {
+                wagon.add((IntVar) var);
+            }
+        }
+        return wagon.toArray(new IntVar[0]);
+    }
+
+    // Optimum with complete search: {objective, ms}
+    private static long[] complete(WagonModelOptions options, int nrPassengers) {
+        Model model = WagonOptimizationProblem.createModel(options);
+        new Utils(model).getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+        WagonSearch.configure(model);
+        long start = System.nanoTime();
+        Solver solver = model.getSolver();
+        solver.limitTime(60000);
+        long objective = -1;
+        while (solver.solve()) {
+            objective = solver.getBestSolutionValue().longValue();
+        }
+        return new long[]{objective, (System.nanoTime() - start) / 1000000};
+    }
+
+    public static void main(String[] args) {
+        long timeLimitMs = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int nrPassengers = 160;
+        System.out.println("seats, encoding, complete optimum (ms), LNS best by neighborhood (ms to best, improvements) within " + timeLimitMs + " ms");
+        for (int maxSeats : new int[]{200, 1000, 2000, 5000}) {
+            for (SeatEncoding encoding : SeatEncoding.values()) {
+                if (encoding == SeatEncoding.PAIRWISE && maxSeats > 200) {
+                    // Quadratic number of constraints, does not build in reasonable time
+                    continue;
+                }
+                WagonModelOptions options = new WagonModelOptions()
+                        .setMaxSeats(maxSeats)
+                        .setSeatEncoding(encoding)
+                        .setCapacityEncoding(CapacityEncoding.INTEGER);
+                long[] complete = complete(options, nrPassengers);
+                StringBuilder line = new StringBuilder().append(maxSeats).append(", ").append(encoding)
+                        .append(", ").append(complete[0]).append(" (").append(complete[1]).append(")");
+                for (Neighborhood neighborhood : Neighborhood.values()) {
+                    Model model = WagonOptimizationProblem.createModel(options);
+                    new Utils(model).getIntVar("wagon.nr_passengers").eq(nrPassengers).post();
+                    WagonLns lns = new WagonLns(model, neighborhood, 0);
+                    Solution solution = lns.solve(timeLimitMs, 0);
+                    SolverMetrics metrics = lns.getMetrics();
+                    long[] times = metrics.getObjectiveTimes();
+                    line.append(", ").append(neighborhood).append(' ');
+                    if (solution == null) {
+                        line.append("none");
+                    } else {
+                        line.append((long) metrics.getObjectiveValues()[times.length - 1])
+                                .append(" (").append(times[times.length - 1] / 1000000).append(", ").append(times.length).append(')');
+                    }
+                }
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.github.schmittjoaopedro.usecase3;
+
+public class WagonModelOptions {
+
+    private int maxSeats = WagonOptimizationProblem.MAX_SEATS;
+
+    private SeatEncoding seatEncoding = SeatEncoding.PAIRWISE;
+
+    private CapacityEncoding capacityEncoding = CapacityEncoding.REAL;
+
+    private boolean symmetryBreaking = false;
+
+    public int getMaxSeats() {
+        return maxSeats;
+    }
+
+    public WagonModelOptions setMaxSeats(int maxSeats) {
+        this.maxSeats = maxSeats;
+        return this;
+    }
+
+    public SeatEncoding getSeatEncoding() {
+        return seatEncoding;
+    }
+
+    public WagonModelOptions setSeatEncoding(SeatEncoding seatEncoding) {
+        this.seatEncoding = seatEncoding;
+        return this;
+    }
+
+    public CapacityEncoding getCapacityEncoding() {
+        return capacityEncoding;
+    }
+
+    public WagonModelOptions setCapacityEncoding(CapacityEncoding capacityEncoding) {
+        this.capacityEncoding = capacityEncoding;
+        return this;
+    }
+
+    public boolean isSymmetryBreaking() {
+        return symmetryBreaking;
+    }
+
+    // Orders the seats by (type, color), one seat layout per permutation class
+    public WagonModelOptions setSymmetryBreaking(boolean symmetryBreaking) {
+        this.symmetryBreaking = symmetryBreaking;
+        return this;
+    }
+
+}
@@ -3,10 +3,20 @@ package org.github.schmittjoaopedro.usecase3;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.extension.Tuples;
 import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
 import org.github.schmittjoaopedro.Utils;
+import org.github.schmittjoaopedro.explain.Rules;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class WagonOptimizationProblem {
 
@@ -18,143 +28,295 @@ public class WagonOptimizationProblem {
     private static final int BLUE = 0;
     private static final int RED = 1;
     private static final int WHITE = 2;
-    private static final int NO_COLOR = 3;
+    static final int NO_COLOR = 3;
 
     private static final int STANDARD = 0;
     private static final int PREMIUM = 1;
-    private static final int SPECIAL = 2;
-    private static final int NO_TYPE = 3;
+    static final int SPECIAL = 2;
+    static final int NO_TYPE = 3;
+
+    static final int MAX_SEATS = 200;
+
+    // Passengers per km, the unit of wagon.used_space with the integer capacity encoding
+    public static final int USED_SPACE_SCALE = 1000000;
+
+    public static Model createModel() {
+        return createModel(new WagonModelOptions());
+    }
 
-    private static int MAX_SEATS = 200;
+    public static Model createModel(WagonModelOptions options) {
+        return createModel(options, true);
+    }
 
-    private static Model createModel() {
+    // Without seats, the wagon numbers and the handrail only: a relaxation of the full model
+    static Model createModel(WagonModelOptions options, boolean seats) {
+        int maxSeats = options.getMaxSeats();
         // MODELLING
-        model = new Model("Wagon Model");
-        utils = new Utils(model);
-        solver = model.getSolver();
+        Model model = new Model("Wagon Model");
+        boolean integer = options.getCapacityEncoding() == CapacityEncoding.INTEGER;
         // Wagon
-        RealVar length_mm = model.realVar("wagon.length_mm", 10000.0, 20000.0, 1e-6);
+        Variable length_mm = integer ? model.intVar("wagon.length_mm", 10000, 20000, true) : model.realVar("wagon.length_mm", 10000.0, 20000.0, 1e-6);
         IntVar nr_passengers = model.intVar("wagon.nr_passengers", 50, 200, true);
-        IntVar nr_seats = model.intVar("wagon.nr_seats", 0, MAX_SEATS, true);
+        IntVar nr_seats = model.intVar("wagon.nr_seats", 0, maxSeats, true);
         IntVar nr_handrails = model.intVar("wagon.nr_handrails", 0, 1, true);
         IntVar standing_room = model.intVar("wagon.standing_room", 0, 200, true);
-        RealVar used_space = model.realVar("wagon.used_space", 0.0, Double.MAX_VALUE, 1e-6);
+        Variable used_space = integer ? model.intVar("wagon.used_space", 0, 200 * USED_SPACE_SCALE / 10000, true) : model.realVar("wagon.used_space", 0.0, Double.MAX_VALUE, 1e-6);
         // Handrail
         IntVar handrail_type = model.intVar("handrail.type", new int[]{STANDARD, PREMIUM, SPECIAL, NO_TYPE});
-        // Seats
-        IntVar[] seat_color = model.intVarArray("seat.color", MAX_SEATS, new int[]{BLUE, RED, WHITE, NO_COLOR});
-        IntVar[] seat_type = model.intVarArray("seat.type", MAX_SEATS, new int[]{STANDARD, PREMIUM, SPECIAL, NO_TYPE});
 
         // Constrain numbers
         // nr_seats + standing_room = nr_passengers
-        nr_seats.add(standing_room).eq(nr_passengers).post();
+        Rules.post(model, "passengers", "Every passenger has a seat or standing room",
+                () -> nr_seats.add(standing_room).eq(nr_passengers).post());
         // nr_seats + standing_room / 3 <= length_mm * 4 / 1000
-        utils.castReal(nr_seats).add(utils.castReal(standing_room).div(3.0)).le(length_mm.mul(4.0).div(1000.0)).equation().post();
+        Rules.post(model, "capacity", "4 seats or 12 standing passengers per meter of wagon", () -> {
+            if (integer) {
+                // 3000 * nr_seats + 1000 * standing_room <= 12 * length_mm
+                model.scalar(new IntVar[]{nr_seats, standing_room, (IntVar) length_mm}, new int[]{3000, 1000, -12}, "<=", 0).post();
+            } else {
+                Utils.castReal(nr_seats).add(Utils.castReal(standing_room).div(3.0)).le(((RealVar) length_mm).mul(4.0).div(1000.0)).equation().post();
+            }
+        });
 
         // Mandatory handrail for standing room with proper type
         // standing_room > 0 -> nr_handrails = 1
-        standing_room.gt(0).imp(nr_handrails.eq(1)).post();
+        Rules.post(model, "standing-handrail", "Standing room requires a handrail",
+                () -> standing_room.gt(0).imp(nr_handrails.eq(1)).post());
         // handrail_type != special
-        handrail_type.ne(SPECIAL).post();
+        Rules.post(model, "handrail-not-special", "Handrails are not of the special type",
+                () -> handrail_type.ne(SPECIAL).post());
         // nr_handrails = 0 <-> handrail_type = noType
-        nr_handrails.eq(0).iff(handrail_type.eq(NO_TYPE)).post();
+        Rules.post(model, "handrail-type", "A handrail has a type, no handrail has none",
+                () -> nr_handrails.eq(0).iff(handrail_type.eq(NO_TYPE)).post());
+
+        if (seats) {
+            IntVar[] seat_color = model.intVarArray("seat.color", maxSeats, new int[]{BLUE, RED, WHITE, NO_COLOR});
+            IntVar[] seat_type = model.intVarArray("seat.type", maxSeats, new int[]{STANDARD, PREMIUM, SPECIAL, NO_TYPE});
+            switch (options.getSeatEncoding()) {
+                case PAIRWISE:
+                    postPairwiseSeats(nr_seats, nr_handrails, handrail_type, seat_type, seat_color);
+                    break;
+                case COMPACT:
+                    postCompactSeats(nr_seats, nr_handrails, handrail_type, seat_type, seat_color);
+                    break;
+            }
+            if (options.isSymmetryBreaking()) {
+                postSeatOrder(seat_type, seat_color);
+            }
+        }
+
+        // Use full length for passengers (avoid dead space)
+        Rules.post(model, "used-space", "The used space is the number of passengers per length", () -> {
+            if (integer) {
+                // used_space = nr_passengers * USED_SPACE_SCALE / length_mm, rounded down
+                model.div(model.intScaleView(nr_passengers, USED_SPACE_SCALE), (IntVar) length_mm, (IntVar) used_space).post();
+            } else {
+                ((RealVar) used_space).eq(Utils.castReal(nr_passengers).div((RealVar) length_mm)).equation().post();
+            }
+        });
+        model.setObjective(true, used_space);
+
+        return model;
+    }
+
+    private static void postPairwiseSeats(IntVar nr_seats, IntVar nr_handrails, IntVar handrail_type, IntVar[] seat_type, IntVar[] seat_color) {
+        Model model = nr_seats.getModel();
+        int maxSeats = seat_type.length;
         // nr_handrails > 0 -> forall (i in 1..nr_seats where seat_type[i] != SPECIAL) (handrail_type = seat.type[i])
-        for (int i = 0; i < MAX_SEATS; i++) {
-            nr_handrails.gt(0).and(nr_seats.gt(i)).and(seat_type[i].ne(SPECIAL)).imp(handrail_type.eq(seat_type[i])).post();
+        for (int i = 0; i < maxSeats; i++) {
+            int seat = i;
+            Rules.post(model, "handrail-seat-type[" + i + "]", "The handrail has the type of seat " + i + " unless it is special",
+                    () -> nr_handrails.gt(0).and(nr_seats.gt(seat)).and(seat_type[seat].ne(SPECIAL)).imp(handrail_type.eq(seat_type[seat])).post());
         }
 
         // Same color and type for all seats but special
         // forall (i in nr_seats+1..max_seats) (seat_color[i] = noColor)
         // forall (i in nr_seats+1..max_seats) (seat_type[i] = noType)
-        for (int i = 0; i < MAX_SEATS; i++) {
-            nr_seats.le(i).imp(seat_color[i].eq(NO_COLOR)).post();
-            nr_seats.le(i).imp(seat_type[i].eq(NO_TYPE)).post();
+        for (int i = 0; i < maxSeats; i++) {
+            int seat = i;
+            Rules.post(model, "inactive-seat[" + i + "]", "Seat " + i + " has no color and no type beyond the number of seats", () -> {
+                nr_seats.le(seat).imp(seat_color[seat].eq(NO_COLOR)).post();
+                nr_seats.le(seat).imp(seat_type[seat].eq(NO_TYPE)).post();
+            });
         }
         // forall (i,j in 1..nr_seats where i<j) (seat_type[i] != special /\ seat_type[j] != special -> seat_type[i] = seat_type[j])
         // forall (i,j in 1..nr_seats where i<j) (seat_type[i] != special /\ seat_type[j] != special -> seat_color[i] = seat_color[j])
-        for (int j = 0; j < MAX_SEATS; j++) {
+        for (int j = 0; j < maxSeats; j++) {
             for (int i = 0; i < j; i++) {
-                nr_seats.gt(j).and(seat_type[i].ne(SPECIAL)).and(seat_type[j].ne(SPECIAL)).imp(seat_type[i].eq(seat_type[j])).post();
-                nr_seats.gt(j).and(seat_type[i].ne(SPECIAL)).and(seat_type[j].ne(SPECIAL)).imp(seat_color[i].eq(seat_color[j])).post();
+                int first = i;
+                int second = j;
+                Rules.post(model, "same-seat[" + i + "," + j + "]", "Seats " + i + " and " + j + " have the same type and color unless one is special", () -> {
+                    nr_seats.gt(second).and(seat_type[first].ne(SPECIAL)).and(seat_type[second].ne(SPECIAL)).imp(seat_type[first].eq(seat_type[second])).post();
+                    nr_seats.gt(second).and(seat_type[first].ne(SPECIAL)).and(seat_type[second].ne(SPECIAL)).imp(seat_color[first].eq(seat_color[second])).post();
+                });
             }
         }
         // forall (i in 1..nr_seats) (seat_type[i] = special -> seat_color = red)
-        for (int i = 0; i < MAX_SEATS; i++) {
-            nr_seats.gt(i).and(seat_type[i].eq(SPECIAL)).imp(seat_color[i].eq(RED)).post();
+        for (int i = 0; i < maxSeats; i++) {
+            int seat = i;
+            Rules.post(model, "special-seat-red[" + i + "]", "Seat " + i + " is red when it is special",
+                    () -> nr_seats.gt(seat).and(seat_type[seat].eq(SPECIAL)).imp(seat_color[seat].eq(RED)).post());
         }
+    }
 
-        // Use full length for passengers (avoid dead space)
-        used_space.eq(utils.castReal(nr_passengers).div(length_mm)).equation().post();
-        model.setObjective(true, used_space);
+    private static void postCompactSeats(IntVar nr_seats, IntVar nr_handrails, IntVar handrail_type, IntVar[] seat_type, IntVar[] seat_color) {
+        Model model = nr_seats.getModel();
+        int maxSeats = seat_type.length;
+        // Type and color shared by every non-special active seat, noType/noColor when there is no such seat
+        IntVar shared_type = model.intVar("seat.shared_type", new int[]{STANDARD, PREMIUM, NO_TYPE});
+        IntVar shared_color = model.intVar("seat.shared_color", new int[]{BLUE, RED, WHITE, NO_COLOR});
+        // Inactive seats are noType, so only active seats can be special
+        IntVar nr_special = model.intVar("seat.nr_special", 0, maxSeats, true);
+        Rules.post(model, "special-seats", "Number of special seats",
+                () -> model.count(SPECIAL, seat_type, nr_special).post());
+        // nr_seats > nr_special <-> exists (i in 1..nr_seats) (seat_type[i] != special)
+        BoolVar has_shared = Rules.define(model, "shared-seat", "The seats that are not special share a type and a color", () -> {
+            BoolVar shared = nr_seats.gt(nr_special).boolVar();
+            shared.not().imp(shared_type.eq(NO_TYPE).and(shared_color.eq(NO_COLOR))).post();
+            return shared;
+        });
+        // nr_handrails > 0 /\ has_shared -> handrail_type = shared_type
+        Rules.post(model, "handrail-seat-type", "The handrail has the type of the seats that are not special",
+                () -> nr_handrails.gt(0).and(has_shared).imp(handrail_type.eq(shared_type)).post());
+        // forall (i in 1..max_seats) table(i <= nr_seats, seat_type[i], seat_color[i], shared_type, shared_color)
+        Tuples seatTuples = compactSeatTuples();
+        for (int i = 0; i < maxSeats; i++) {
+            int seat = i;
+            Rules.post(model, "seat[" + i + "]", "Seat " + i + " is special and red, has the shared type and color, or is beyond the number of seats", () -> {
+                BoolVar active = nr_seats.gt(seat).boolVar();
+                model.table(new IntVar[]{active, seat_type[seat], seat_color[seat], shared_type, shared_color}, seatTuples).post();
+            });
+        }
+    }
 
-        return model;
+    // Allowed (active, type, color, shared_type, shared_color) combinations of a single seat
+    private static Tuples compactSeatTuples() {
+        int[] types = {STANDARD, PREMIUM, NO_TYPE};
+        int[] colors = {BLUE, RED, WHITE, NO_COLOR};
+        Tuples tuples = new Tuples(true);
+        for (int sharedType : types) {
+            for (int sharedColor : colors) {
+                // inactive seat: noType and noColor
+                tuples.add(0, NO_TYPE, NO_COLOR, sharedType, sharedColor);
+                // active special seat: red
+                tuples.add(1, SPECIAL, RED, sharedType, sharedColor);
+                // active non-special seat: shared type and color
+                tuples.add(1, sharedType, sharedColor, sharedType, sharedColor);
+            }
+        }
+        return tuples;
+    }
+
+    // Active seats are interchangeable, so seats are ordered by (type, color): special seats after the other active
+    // seats, inactive seats (noType) last, which they already are
+    private static void postSeatOrder(IntVar[] seat_type, IntVar[] seat_color) {
+        if (seat_type.length < 2) {
+            return;
+        }
+        IntVar[][] seats = new IntVar[seat_type.length][];
+        for (int i = 0; i < seat_type.length; i++) {
+            seats[i] = new IntVar[]{seat_type[i], seat_color[i]};
+        }
+        Model model = seat_type[0].getModel();
+        Rules.post(model, "seat-order", "Seats are ordered by type and color", () -> model.lexChainLessEq(seats).post());
+    }
+
+    // Whether the seats are in the order the symmetry breaking enforces
+    public static boolean isCanonical(int[] seat_type, int[] seat_color) {
+        for (int i = 1; i < seat_type.length; i++) {
+            if (seat_type[i - 1] > seat_type[i] || seat_type[i - 1] == seat_type[i] && seat_color[i - 1] > seat_color[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static void main(String[] args) throws ContradictionException {
+        // Capacity encoding as first argument, REAL by default
+        WagonModelOptions options = new WagonModelOptions();
+        if (args.length > 0) {
+            options.setCapacityEncoding(CapacityEncoding.valueOf(args[0]));
+        }
+        // The base model is built once and every scenario runs on top of it
+        ModelTemplate template = new ModelTemplate(() -> createModel(options));
+        load(template.getModel());
+        // Every scenario starts from the best solution of the previous one
+        WagonSearch.configure(model, solution);
 
         // Optimize solution (everyone standing)
-        model = createModel();
-        solution = new Solution(model);
-        utils.getIntVar("wagon.nr_passengers").eq(160).post(); // User constraint
-        // Apply constraints
-        System.out.println("------------- Options -------------");
-        solver.propagate();
-        printSolution();
-        // Optimize solution
-        System.out.println("------------- Solution -------------");
-        while (solver.solve()) {
-            System.out.println("Maximizing " + utils.getRealVarFormatted("wagon.used_space"));
-            solution.record();
-        }
-        solution.restore();
-        printSolution();
-        System.out.println("------------------------------------");
+        optimize(template, Collections.singletonList(
+                Requirement.eq("wagon.nr_passengers", 160))); // User constraint
 
         // Optimize solution (with seats)
-        model = createModel();
-        solution = new Solution(model);
-        utils.getIntVar("wagon.nr_passengers").eq(160).post(); // User constraint
-        utils.getIntVar("wagon.nr_seats").eq(30).post(); // User constraint
-        // Apply constraints
-        System.out.println("------------- Options -------------");
-        solver.propagate();
-        printSolution();
+        optimize(template, Arrays.asList(
+                Requirement.eq("wagon.nr_passengers", 160), // User constraint
+                Requirement.eq("wagon.nr_seats", 30))); // User constraint
+
+        // Best solution from all
+        optimize(template, Collections.emptyList());
+
+    }
+
+    private static void optimize(ModelTemplate template, List<Requirement> requirements) throws ContradictionException {
+        if (!requirements.isEmpty()) {
+            // Apply constraints
+            System.out.println("------------- Options -------------");
+            template.propagate(requirements, s -> {
+                printSolution();
+                return null;
+            });
+        }
         // Optimize solution
         System.out.println("------------- Solution -------------");
-        while (solver.solve()) {
-            System.out.println("Maximizing " + utils.getRealVarFormatted("wagon.used_space"));
-            solution.record();
-        }
-        solution.restore();
-        printSolution();
+        template.query(requirements, s -> {
+            while (s.solve()) {
+                System.out.println("Maximizing " + getNumberFormatted("wagon.used_space"));
+                solution.record();
+            }
+            solution.restore();
+            printSolution();
+            return s.getSolutionCount();
+        });
         System.out.println("------------------------------------");
+    }
 
-        // Best solution from all
-        model = createModel();
+    private static void load(Model newModel) {
+        model = newModel;
+        utils = new Utils(model);
+        solver = model.getSolver();
         solution = new Solution(model);
-        System.out.println("------------- Solution -------------");
-        while (solver.solve()) {
-            System.out.println("Maximizing " + utils.getRealVarFormatted("wagon.used_space"));
-            solution.record();
-        }
-        solution.restore();
-        printSolution();
-        System.out.println("------------------------------------");
+    }
 
+    // Real or integer variable, depending on the capacity encoding
+    private static String getNumberFormatted(String name) {
+        return getNumberFormatted(utils, name);
+    }
+
+    static String getNumberFormatted(Utils utils, String name) {
+        Variable var = utils.getRegistry().getVar(name);
+        return (var.getTypeAndKind() & Variable.REAL) != 0 ? utils.getRealVarFormatted(name) : utils.getIntVarFormatted(name);
     }
 
     private static void printSolution() {
-        System.out.println(utils.getRealVarFormatted("wagon.length_mm"));
-        System.out.println(utils.getRealVarFormatted("wagon.used_space"));
+        printSolution(utils, utils.getIntVars("seat.type[*]").length);
+    }
+
+    // Seats beyond the ones of the model (e.g. a presolved one) are printed as the inactive seats they are
+    static void printSolution(Utils utils, int maxSeats) {
+        System.out.println(getNumberFormatted(utils, "wagon.length_mm"));
+        System.out.println(getNumberFormatted(utils, "wagon.used_space"));
         System.out.println(utils.getIntVarFormatted("wagon.nr_passengers"));
         System.out.println(utils.getIntVarFormatted("wagon.nr_seats"));
         System.out.println(utils.getIntVarFormatted("wagon.nr_handrails"));
         System.out.println(utils.getIntVarFormatted("wagon.standing_room"));
         System.out.println(utils.getEnumVarFormatted("handrail.type", "STANDARD", "PREMIUM", "SPECIAL", "NO_TYPE"));
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        IntVar[] seat_color = utils.getIntVars("seat.color[*]");
         String prev = "";
-        for (int i = 0; i < MAX_SEATS; i++) {
-            String seat = "type = " + utils.getVarDesc("seat.type[" + i + "]", "STANDARD", "PREMIUM", "SPECIAL", "NO_TYPE") + ", " +
-                    "color = " + utils.getVarDesc("seat.color[" + i + "]", "BLUE", "RED", "WHITE", "NO_COLOR");
+        for (int i = 0; i < maxSeats; i++) {
+            String seat = i >= seat_type.length ? "type = NO_TYPE, color = NO_COLOR" :
+                    "type = " + utils.getVarDesc(seat_type[i], "STANDARD", "PREMIUM", "SPECIAL", "NO_TYPE") + ", " +
+                    "color = " + utils.getVarDesc(seat_color[i], "BLUE", "RED", "WHITE", "NO_COLOR");
             if (!prev.equals(seat)) {
                 System.out.println("seat[" + i + "] " + seat);
                 prev = seat;
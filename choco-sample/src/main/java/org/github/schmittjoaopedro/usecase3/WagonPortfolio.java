@@ -0,0 +1,104 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ParallelPortfolio;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Maximizes wagon.used_space with N copies of the wagon model solved by Choco's {@link ParallelPortfolio}, each copy
+ * with its own search strategy, restart policy and random seed. The portfolio shares the best bound on the objective
+ * among workers and stops all of them as soon as one proves optimality.
+ * <p>
+ * Ibex is not thread safe, so the models must use {@link CapacityEncoding#INTEGER}.
+ */
+public class WagonPortfolio {
+
+    private final ParallelPortfolio portfolio = new ParallelPortfolio(false);
+
+    private Model bestModel;
+
+    public WagonPortfolio(WagonModelOptions options, int nrWorkers, Consumer<Model> userConstraints) {
+        if (options.getCapacityEncoding() != CapacityEncoding.INTEGER) {
+            throw new IllegalArgumentException("ParallelPortfolio needs the integer capacity encoding");
+        }
+        for (int worker = 0; worker < nrWorkers; worker++) {
+            Model model = WagonOptimizationProblem.createModel(options);
+            userConstraints.accept(model);
+            configure(model, worker);
+            portfolio.addModel(model);
+        }
+    }
+
+    public Solution solve() {
+        Solution solution = null;
+        while (portfolio.solve()) {
+            bestModel = portfolio.getBestModel();
+            solution = new Solution(bestModel).record();
+        }
+        return solution;
+    }
+
+    // Model the best solution belongs to, read its values with the variables of this model
+    public Model getBestModel() {
+        return bestModel;
+    }
+
+    private static void configure(Model model, int worker) {
+        Solver solver = model.getSolver();
+        IntVar[] vars = model.retrieveIntVars(true);
+        switch (worker) {
+            case 0:
+                // Complete search without restarts
+                solver.setSearch(Search.lastConflict(Search.domOverWDegSearch(vars)));
+                break;
+            case 1:
+                solver.setSearch(Search.lastConflict(Search.activityBasedSearch(vars)));
+                solver.setLubyRestart(500, new FailCounter(model, 0), 5000);
+                break;
+            case 2:
+                solver.setSearch(Search.lastConflict(Search.conflictHistorySearch(vars)));
+                solver.setGeometricalRestart(100, 1.5, new FailCounter(model, 0), 1000);
+                break;
+            default:
+                solver.setSearch(Search.lastConflict(Search.randomSearch(vars, worker)));
+                solver.setLubyRestart(100 * worker, new FailCounter(model, 0), 5000);
+                break;
+        }
+    }
+
+    private static void userConstraints(Model model) {
+        new Utils(model).getIntVar("wagon.nr_passengers").eq(160).post();
+    }
+
+    public static void main(String[] args) {
+        int nrWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        WagonModelOptions options = new WagonModelOptions()
+                .setSeatEncoding(SeatEncoding.COMPACT)
+                .setCapacityEncoding(CapacityEncoding.INTEGER);
+
+        // Sequential loop
+        long start = System.currentTimeMillis();
+        Model model = WagonOptimizationProblem.createModel(options);
+        userConstraints(model);
+        Solver solver = model.getSolver();
+        while (solver.solve()) ;
+        long sequential = System.currentTimeMillis() - start;
+        System.out.println("Sequential: used_space = " + solver.getBestSolutionValue() + " in " + sequential + " ms");
+
+        // Portfolio
+        start = System.currentTimeMillis();
+        WagonPortfolio portfolio = new WagonPortfolio(options, nrWorkers, WagonPortfolio::userConstraints);
+        Solution solution = portfolio.solve();
+        long parallel = System.currentTimeMillis() - start;
+        IntVar used_space = new Utils(portfolio.getBestModel()).getIntVar("wagon.used_space");
+        System.out.println("Portfolio (" + nrWorkers + " workers): used_space = " + solution.getIntVal(used_space) + " in " + parallel + " ms");
+        System.out.printf("Speed-up: %.2f%n", (double) sequential / Math.max(1, parallel));
+    }
+}
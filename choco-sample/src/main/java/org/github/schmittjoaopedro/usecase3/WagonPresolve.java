@@ -0,0 +1,215 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Wagon model with only the seats in play for a query. The wagon numbers and the handrail (no seats) are propagated
+ * with the requirements first, then the model is built with ub(wagon.nr_seats) seat slots. The seats beyond are
+ * inactive (noType, noColor) in every solution of the full model, so both models have the same solutions on the seats
+ * they share, and the full-size view is the reduced solution followed by inactive seats.
+ * <p>
+ * Requirements on seats beyond the slots are checked against noType/noColor instead of being posted.
+ */
+public class WagonPresolve {
+
+    private static final String SEAT_TYPE = "seat.type";
+
+    private static final String SEAT_COLOR = "seat.color";
+
+    private final int maxSeats;
+
+    // null when the requirements are infeasible
+    private final Model model;
+
+    private final Utils utils;
+
+    private WagonPresolve(int maxSeats, Model model) {
+        this.maxSeats = maxSeats;
+        this.model = model;
+        this.utils = model != null ? new Utils(model) : null;
+    }
+
+    public static WagonPresolve presolve(WagonModelOptions options, Collection<Requirement> requirements) {
+        int maxSeats = options.getMaxSeats();
+        int nrSeatSlots = nrSeatSlots(options, requirements);
+        List<Requirement> posted = new ArrayList<>();
+        for (Requirement requirement : requirements) {
+            int seat = seatIndex(requirement.getName());
+            if (seat >= maxSeats) {
+                throw new IllegalArgumentException("Unknown variable " + requirement.getName());
+            }
+            if (seat < nrSeatSlots) {
+                posted.add(requirement);
+            } else if (!requirement.accepts(requirement.getName().startsWith(SEAT_TYPE) ? WagonOptimizationProblem.NO_TYPE : WagonOptimizationProblem.NO_COLOR)) {
+                nrSeatSlots = -1;
+                break;
+            }
+        }
+        if (nrSeatSlots < 0) {
+            return new WagonPresolve(maxSeats, null);
+        }
+        Model model = WagonOptimizationProblem.createModel(new WagonModelOptions()
+                .setMaxSeats(nrSeatSlots)
+                .setSeatEncoding(options.getSeatEncoding())
+                .setCapacityEncoding(options.getCapacityEncoding())
+                .setSymmetryBreaking(options.isSymmetryBreaking()));
+        Utils utils = new Utils(model);
+        for (Requirement requirement : posted) {
+            requirement.toConstraint(utils).post();
+        }
+        return new WagonPresolve(maxSeats, model);
+    }
+
+    // ub(wagon.nr_seats) after propagating the requirements on the model without seats, -1 when they fail
+    private static int nrSeatSlots(WagonModelOptions options, Collection<Requirement> requirements) {
+        Model probe = WagonOptimizationProblem.createModel(options, false);
+        Utils utils = new Utils(probe);
+        for (Requirement requirement : requirements) {
+            // Leaving the seat requirements out relaxes the probe, its bound is still valid
+            if (utils.getIntVar(requirement.getName()) != null) {
+                requirement.toConstraint(utils).post();
+            }
+        }
+        try {
+            probe.getSolver().propagate();
+        } catch (ContradictionException e) {
+            return -1;
+        }
+        return utils.getIntVar("wagon.nr_seats").getUB();
+    }
+
+    // Index of a seat.type[i] or seat.color[i] variable, -1 for the other variables
+    private static int seatIndex(String name) {
+        if (!name.endsWith("]") || !name.startsWith(SEAT_TYPE + "[") && !name.startsWith(SEAT_COLOR + "[")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(name.indexOf('[') + 1, name.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public boolean isInfeasible() {
+        return model == null;
+    }
+
+    public int getNrSeatSlots() {
+        return model == null ? 0 : utils.getIntVars(SEAT_TYPE + "[*]").length;
+    }
+
+    // Reduced model with the requirements posted, null when they are infeasible
+    public Model getModel() {
+        return model;
+    }
+
+    public Utils getUtils() {
+        return utils;
+    }
+
+    // Value in the full-size view of an integer variable of the full model, e.g. seat.type[150]
+    public int getValue(String name) {
+        int seat = seatIndex(name);
+        if (seat >= getNrSeatSlots()) {
+            return name.startsWith(SEAT_TYPE) ? WagonOptimizationProblem.NO_TYPE : WagonOptimizationProblem.NO_COLOR;
+        }
+        return utils.getIntVar(name).getValue();
+    }
+
+    public void printSolution() {
+        WagonOptimizationProblem.printSolution(utils, maxSeats);
+    }
+
+    // Best used_space, build time (ms), retained heap (MB) and search time (ms) of the model
+    private static double[] optimize(Supplier<Model> factory) {
+        // The heap is measured on a second copy, building the first one frees what earlier runs left behind
+        Model copy = factory.get();
+        long heap = Utils.usedHeap();
+        long start = System.nanoTime();
+        Model model = factory.get();
+        double buildMs = (System.nanoTime() - start) / 1e6;
+        double heapMb = (Utils.usedHeap() - heap) / 1e6;
+        // Keeps the copy until then
+        copy.getSolver().getSolutionCount();
+        WagonSearch.configure(model);
+        Solver solver = model.getSolver();
+        start = System.nanoTime();
+        while (solver.solve()) ;
+        double searchMs = (System.nanoTime() - start) / 1e6;
+        return new double[]{solver.getBestSolutionValue().doubleValue(), buildMs, heapMb, searchMs};
+    }
+
+    // Same best used_space on the full and the presolved model, with build, heap and search figures of both
+    private static void compare(List<List<Requirement>> queries, boolean print) {
+        for (SeatEncoding encoding : SeatEncoding.values()) {
+            WagonModelOptions options = new WagonModelOptions().setSeatEncoding(encoding).setCapacityEncoding(CapacityEncoding.INTEGER);
+            for (List<Requirement> requirements : queries) {
+                double[] fullResult = optimize(() -> {
+                    Model full = WagonOptimizationProblem.createModel(options);
+                    Utils utils = new Utils(full);
+                    for (Requirement requirement : requirements) {
+                        requirement.toConstraint(utils).post();
+                    }
+                    return full;
+                });
+                int[] nrSeatSlots = new int[1];
+                double[] reducedResult = optimize(() -> {
+                    WagonPresolve presolve = presolve(options, requirements);
+                    nrSeatSlots[0] = presolve.getNrSeatSlots();
+                    return presolve.getModel();
+                });
+                if (fullResult[0] != reducedResult[0]) {
+                    throw new IllegalStateException(requirements + ": used_space " + fullResult[0] + " full, " + reducedResult[0] + " presolved");
+                }
+                if (print) {
+                    System.out.printf("%s %s: used_space %.0f, %d seat slots, build %.1f -> %.1f ms, heap %.1f -> %.1f MB, search %.1f -> %.1f ms%n",
+                            encoding, requirements, fullResult[0], nrSeatSlots[0], fullResult[1], reducedResult[1],
+                            fullResult[2], reducedResult[2], fullResult[3], reducedResult[3]);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws ContradictionException {
+        // The integer capacity encoding makes both objectives exactly comparable
+        List<List<Requirement>> queries = Arrays.asList(
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30)),
+                Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 10),
+                        Requirement.eq("seat.type[3]", WagonOptimizationProblem.SPECIAL)),
+                Collections.singletonList(Requirement.eq("wagon.nr_passengers", 160)));
+        // The first round warms up the JIT, the second one is printed
+        for (int round = 0; round < 2; round++) {
+            compare(queries, round == 1);
+        }
+
+        // Full-size view of a presolved solution
+        WagonPresolve presolve = presolve(new WagonModelOptions(), Arrays.asList(
+                Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", 30)));
+        WagonSearch.configure(presolve.getModel());
+        Solver solver = presolve.getModel().getSolver();
+        Solution solution = new Solution(presolve.getModel());
+        while (solver.solve()) {
+            solution.record();
+        }
+        solution.restore();
+        System.out.println("------------- Solution -------------");
+        presolve.printSolution();
+        System.out.println("seat.type[150] = " + presolve.getValue("seat.type[150]"));
+
+        System.out.println("seat.type[40] = PREMIUM with 30 seats infeasible: " + presolve(new WagonModelOptions(), Arrays.asList(
+                Requirement.eq("wagon.nr_seats", 30), Requirement.eq("seat.type[40]", 1))).isInfeasible());
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.github.schmittjoaopedro.usecase3;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainLast;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMax;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.values.RealDomainMiddle;
+import org.chocosolver.solver.search.strategy.selectors.variables.Cyclic;
+import org.chocosolver.solver.search.strategy.selectors.variables.InputOrder;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.RealVar;
+import org.chocosolver.solver.variables.Variable;
+import org.github.schmittjoaopedro.Requirement;
+import org.github.schmittjoaopedro.session.ModelTemplate;
+import org.github.schmittjoaopedro.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search strategy for maximizing wagon.used_space, branching in this order:
+ * <ol>
+ * <li>wagon.nr_passengers (largest first), wagon.nr_seats (smallest first, standing takes less length), then
+ * wagon.length_mm shortest first (by dichotomy when real), so the first solution is already a good one</li>
+ * <li>handrail.type</li>
+ * <li>with the compact seat encoding, seat.nr_special (fewest first), seat.shared_type and seat.shared_color</li>
+ * <li>seat.type and seat.color, seat by seat</li>
+ * </ol>
+ * Integer variables take their value in the warm-start solution first, when it is still in their domain. Recording
+ * every solution of a search into the warm-start solution of the next one (on a {@link ModelTemplate}) makes
+ * similar requests start from the previous optimum.
+ */
+public class WagonSearch {
+
+    private static final double LENGTH_PRECISION = 1e-3;
+
+    public static void configure(Model model) {
+        configure(model, new Solution(model));
+    }
+
+    public static void configure(Model model, Solution warmStart) {
+        Utils utils = new Utils(model);
+        List<AbstractStrategy<?>> strategies = new ArrayList<>();
+        strategies.add(intSearch(warmStart, new IntDomainMax(), utils.getIntVar("wagon.nr_passengers")));
+        strategies.add(intSearch(warmStart, new IntDomainMin(), utils.getIntVar("wagon.nr_seats")));
+        strategies.add(lengthSearch(warmStart, utils.getRegistry().getVar("wagon.length_mm")));
+        strategies.add(intSearch(warmStart, new IntDomainMin(), utils.getIntVar("handrail.type")));
+        // With the compact encoding, the shared seat and the number of special seats fix most seats by propagation
+        if (utils.getIntVar("seat.nr_special") != null) {
+            strategies.add(intSearch(warmStart, new IntDomainMin(), utils.getIntVar("seat.nr_special"),
+                    utils.getIntVar("seat.shared_type"), utils.getIntVar("seat.shared_color")));
+        }
+        IntVar[] seat_type = utils.getIntVars("seat.type[*]");
+        IntVar[] seat_color = utils.getIntVars("seat.color[*]");
+        IntVar[] seats = new IntVar[seat_type.length * 2];
+        for (int i = 0; i < seat_type.length; i++) {
+            seats[2 * i] = seat_type[i];
+            seats[2 * i + 1] = seat_color[i];
+        }
+        if (seats.length > 0) {
+            strategies.add(intSearch(warmStart, new IntDomainMin(), seats));
+        }
+        // used_space follows from the rest, a real one still needs to be narrowed to its precision
+        Variable used_space = utils.getRegistry().getVar("wagon.used_space");
+        if ((used_space.getTypeAndKind() & Variable.REAL) != 0) {
+            strategies.add(Search.realVarSearch((RealVar) used_space));
+        }
+        // Variables introduced by the encodings (shared seat, reifications) are branched on last, if ever.
+        // Not makeCompleteStrategy(true): it appends another default search at every solve after a reset.
+        strategies.add(Search.defaultSearch(model));
+        model.getSolver().setSearch(strategies.toArray(new AbstractStrategy<?>[0]));
+    }
+
+    private static AbstractStrategy<IntVar> intSearch(Solution warmStart, IntValueSelector fallback, IntVar... vars) {
+        return Search.intVarSearch(new InputOrder<>(vars[0].getModel()), new IntDomainLast(warmStart, fallback, null), vars);
+    }
+
+    // Shorter first: a real length by dichotomy, an integer one is its smallest value once the seats are known
+    private static AbstractStrategy<?> lengthSearch(Solution warmStart, Variable length) {
+        if ((length.getTypeAndKind() & Variable.REAL) != 0) {
+            return Search.realVarSearch(new Cyclic<>(), new RealDomainMiddle(), LENGTH_PRECISION, true, (RealVar) length);
+        }
+        return intSearch(warmStart, new IntDomainMin(), (IntVar) length);
+    }
+
+    // Nodes and milliseconds to prove the optimum of each request, one after the other on the same template
+    private static void run(String name, WagonModelOptions options, int strategy, List<List<Requirement>> requests) throws Exception {
+        ModelTemplate template = new ModelTemplate(() -> WagonOptimizationProblem.createModel(options));
+        Model model = template.getModel();
+        Solution solution = new Solution(model);
+        if (strategy == 1) {
+            configure(model);
+        } else if (strategy == 2) {
+            configure(model, solution);
+        }
+        StringBuilder line = new StringBuilder(name);
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (List<Requirement> requirements : requests) {
+            long[] nodes = template.query(requirements, solver -> {
+                long firstSolutionNodes = -1;
+                while (solver.solve()) {
+                    if (firstSolutionNodes < 0) {
+                        firstSolutionNodes = solver.getNodeCount();
+                    }
+                    solution.record();
+                }
+                return new long[]{firstSolutionNodes, solver.getNodeCount()};
+            });
+            line.append(", ").append(nodes[0]).append('/').append(nodes[1]);
+            totalNodes += nodes[1];
+        }
+        System.out.println(line + " -> " + totalNodes + " nodes in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Near-identical requests, as a user adjusting a configuration
+        List<List<Requirement>> requests = new ArrayList<>();
+        for (int nrSeats = 30; nrSeats <= 34; nrSeats++) {
+            requests.add(Arrays.asList(Requirement.eq("wagon.nr_passengers", 160), Requirement.eq("wagon.nr_seats", nrSeats)));
+        }
+        for (int nrPassengers = 161; nrPassengers <= 165; nrPassengers++) {
+            requests.add(Arrays.asList(Requirement.eq("wagon.nr_passengers", nrPassengers), Requirement.parse("wagon.nr_seats >= 20")));
+        }
+        System.out.println("Nodes to the first solution/to the proof of optimality of each request");
+        for (CapacityEncoding capacity : CapacityEncoding.values()) {
+            WagonModelOptions options = new WagonModelOptions().setSeatEncoding(SeatEncoding.COMPACT).setCapacityEncoding(capacity);
+            run(capacity + " default search", options, 0, requests);
+            run(capacity + " wagon search", options, 1, requests);
+            run(capacity + " wagon search, warm start", options, 2, requests);
+        }
+    }
+}